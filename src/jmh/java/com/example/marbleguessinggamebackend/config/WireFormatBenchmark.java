@@ -0,0 +1,108 @@
+package com.example.marbleguessinggamebackend.config;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.example.marbleguessinggamebackend.dto.GameEvent;
+import com.example.marbleguessinggamebackend.dto.MoveResult;
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.model.GameStatus;
+import com.example.marbleguessinggamebackend.model.Move;
+import com.example.marbleguessinggamebackend.model.Turn;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+// What a move costs on the wire in each format: the reply to the player, the
+// broadcast message of its event and the game snapshot a client fetches after
+// a gap. Encoding is done by the server, decoding by clients; the reply is read
+// into a MoveResult, the rest into a tree as a client without the server's
+// classes would. The size of each payload is printed once per fork.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+  @Param({ "json", "smile", "cbor" })
+  public String format;
+
+  private ObjectMapper mapper;
+  private MoveResult result;
+  private List<GameEvent> events;
+  private Game game;
+  private byte[] resultBytes;
+  private byte[] eventBytes;
+  private byte[] gameBytes;
+
+  @Setup
+  public void setUp() throws IOException {
+    mapper = new WireFormats(Jackson2ObjectMapperBuilder.json()).mapper(WireFormat.valueOf(format.toUpperCase()));
+
+    // A guess resolved mid game, the move with the most fields
+    game = new Game("0ksucoD6AOe", "alice").toBuilder()
+        .player2("bob")
+        .status(GameStatus.IN_PROGRESS)
+        .stake1(8)
+        .stake2(12)
+        .move(Move.HIDE)
+        .turn(Turn.PLAYER_2)
+        .version(4)
+        .build();
+    var event = GameEvent.guessResolved("bob", "ODD", true, 3, -2);
+    event.setVersion(4);
+    result = MoveResult.of(game, event);
+    events = List.of(event);
+
+    resultBytes = mapper.writeValueAsBytes(result);
+    eventBytes = mapper.writeValueAsBytes(events);
+    gameBytes = mapper.writeValueAsBytes(game);
+    System.out.printf("%n%s bytes: result %d, events %d, game %d%n", format, resultBytes.length, eventBytes.length,
+        gameBytes.length);
+  }
+
+  @Benchmark
+  public byte[] encodeResult() throws IOException {
+    return mapper.writeValueAsBytes(result);
+  }
+
+  @Benchmark
+  public MoveResult decodeResult() throws IOException {
+    return mapper.readValue(resultBytes, MoveResult.class);
+  }
+
+  @Benchmark
+  public byte[] encodeEvents() throws IOException {
+    return mapper.writeValueAsBytes(events);
+  }
+
+  @Benchmark
+  public JsonNode decodeEvents() throws IOException {
+    return mapper.readTree(eventBytes);
+  }
+
+  @Benchmark
+  public byte[] encodeGame() throws IOException {
+    return mapper.writeValueAsBytes(game);
+  }
+
+  @Benchmark
+  public JsonNode decodeGame() throws IOException {
+    return mapper.readTree(gameBytes);
+  }
+}
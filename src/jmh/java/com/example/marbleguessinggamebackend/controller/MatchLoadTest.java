@@ -0,0 +1,413 @@
+package com.example.marbleguessinggamebackend.controller;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.lang.reflect.Type;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.marbleguessinggamebackend.MarbleGuessingGameBackendApplication;
+import com.example.marbleguessinggamebackend.dto.GameEvent;
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.model.GameStatus;
+import com.example.marbleguessinggamebackend.model.Move;
+import com.example.marbleguessinggamebackend.service.GameRules;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+// Player pairs playing whole games against a server on this machine, to
+// reproduce production load locally. Each pair creates, joins and plays games
+// through the REST API until the time is up, while both players follow the game
+// on /topic/gamestate/{gameId} over SockJS/STOMP.
+//
+// Every game is checked. The pair keeps a replica of the game played by
+// GameRules; the server's final state must match it, and each player's events
+// must match the moves made, in version order, with no gaps. A player whose
+// subscription went live after the first events counts as late, as a client
+// that resyncs from a snapshot would, and events delivered twice are counted
+// and dropped as a client does, by version.
+//
+// Call latency (every REST call) and broadcast lag (move sent to its event
+// received) are recorded in HDR histograms, printed and written to .hgrm files.
+// Run with ./gradlew matchLoadTest -Ppairs=N -Pseconds=S, adding
+// -Pserver=http://localhost:8080 to load a running server instead of one
+// started in process.
+public class MatchLoadTest {
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+  // Highest latency the histograms track, in microseconds
+  private static final long MAX_MICROS = TimeUnit.MINUTES.toMicros(1);
+  private static final long EVENT_WAIT = TimeUnit.SECONDS.toNanos(30);
+
+  // Event as a player received it
+  private record Received(long version, String type, JsonNode delta, long at) {
+  }
+
+  // Events a player received for each game they follow
+  private static class Follower {
+
+    private final StompSession session;
+    private final Map<String, LinkedBlockingQueue<Received>> games = new ConcurrentHashMap<>();
+
+    Follower(StompSession session) {
+      this.session = session;
+    }
+
+    StompSession.Subscription follow(String gameId) {
+      var received = new LinkedBlockingQueue<Received>();
+      games.put(gameId, received);
+      return session.subscribe("/topic/gamestate/" + gameId, new StompFrameHandler() {
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+          return JsonNode.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+          var at = System.nanoTime();
+          for (var event : (JsonNode) payload)
+            received.add(new Received(event.path("version").asLong(), event.path("type").asText(),
+                event.get("delta"), at));
+        }
+      });
+    }
+
+    LinkedBlockingQueue<Received> events(String gameId) {
+      return games.get(gameId);
+    }
+
+    void forget(String gameId) {
+      games.remove(gameId);
+    }
+  }
+
+  // Counts and histograms shared by every pair
+  private static class Results {
+
+    final Recorder calls = new Recorder(MAX_MICROS, 3);
+    final Recorder lag = new Recorder(MAX_MICROS, 3);
+    final LongAdder games = new LongAdder();
+    final LongAdder moves = new LongAdder();
+    final LongAdder failedCalls = new LongAdder();
+    final LongAdder inconsistent = new LongAdder();
+    final LongAdder late = new LongAdder();
+    final LongAdder duplicates = new LongAdder();
+    final AtomicReference<String> firstProblem = new AtomicReference<>();
+
+    void problem(String gameId, String problem) {
+      inconsistent.increment();
+      firstProblem.compareAndSet(null, "game " + gameId + ": " + problem);
+    }
+  }
+
+  // What a pair expects the server to broadcast for a version
+  private record Expected(GameEvent.Type type, int delta, long sentAt) {
+  }
+
+  private static class Pair {
+
+    private final HttpClient http;
+    private final String base;
+    private final String[] players;
+    private final Follower[] followers;
+    private final Results results;
+    private final Random random;
+
+    Pair(HttpClient http, String base, int index, Follower[] followers, Results results) {
+      this.http = http;
+      this.base = base;
+      this.players = new String[] { "p1-" + index, "p2-" + index };
+      this.followers = followers;
+      this.results = results;
+      this.random = new Random(index);
+    }
+
+    private String get(String path, String player) throws Exception {
+      return call(HttpRequest.newBuilder(URI.create(base + "/api/v1" + path)).header("player", player).GET());
+    }
+
+    private String post(String path, String player, String json) throws Exception {
+      return call(HttpRequest.newBuilder(URI.create(base + "/api/v1" + path))
+          .header("player", player)
+          .header("Content-Type", "application/json")
+          .POST(HttpRequest.BodyPublishers.ofString(json)));
+    }
+
+    // Time a REST call, returning its body or null if it failed
+    private String call(HttpRequest.Builder request) throws Exception {
+      var start = System.nanoTime();
+      var response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+      results.calls.recordValue(Math.min(MAX_MICROS, (System.nanoTime() - start) / 1000));
+      if (response.statusCode() == 200)
+        return response.body();
+      results.failedCalls.increment();
+      return null;
+    }
+
+    void play(long deadline) throws Exception {
+      while (System.nanoTime() < deadline)
+        playGame();
+    }
+
+    private void playGame() throws Exception {
+      var created = post("/create", players[0], "");
+      if (created == null)
+        return;
+      var gameId = created.substring(created.lastIndexOf(' ') + 1);
+      var subscriptions = new StompSession.Subscription[followers.length];
+      for (int i = 0; i < followers.length; i++)
+        subscriptions[i] = followers[i].follow(gameId);
+
+      // Event expected for each version; version 0 is the new game
+      var expected = new ArrayList<Expected>();
+      expected.add(null);
+      var sentAt = System.nanoTime();
+      if (post("/join/" + gameId, players[1], "") == null) {
+        unfollow(gameId, subscriptions);
+        return;
+      }
+      expected.add(new Expected(GameEvent.Type.JOINED, 0, sentAt));
+
+      var game = new Game(gameId, players[0]).toBuilder()
+          .player2(players[1])
+          .status(GameStatus.IN_PROGRESS)
+          .stake1(GameRules.STAKE)
+          .stake2(GameRules.STAKE)
+          .build();
+
+      while (game.getStatus() == GameStatus.IN_PROGRESS) {
+        var step = GameRules.step(game);
+        var player = players[step.player().ordinal()];
+        Game next;
+        String reply;
+        GameEvent.Type type;
+        sentAt = System.nanoTime();
+        if (step.move() == Move.HIDE) {
+          var count = 1 + random.nextInt(GameRules.stake(game, step.player()));
+          reply = post("/" + gameId + "/hide", player, "{\"count\":" + count + "}");
+          next = GameRules.hide(game, count);
+          type = GameEvent.Type.HIDDEN;
+        } else if (step.move() == Move.BET) {
+          var count = 1 + random.nextInt(GameRules.stake(game, step.player()));
+          reply = post("/" + gameId + "/bet", player, "{\"count\":" + count + "}");
+          next = GameRules.bet(game, count);
+          type = GameEvent.Type.BET_PLACED;
+        } else {
+          var guess = random.nextBoolean() ? "ODD" : "EVEN";
+          reply = post("/" + gameId + "/guess", player, "{\"guess\":\"" + guess + "\"}");
+          next = GameRules.guess(game, guess);
+          type = next.getStatus() == GameStatus.ENDED ? GameEvent.Type.GAME_WON : GameEvent.Type.GUESS_RESOLVED;
+        }
+        if (reply == null) {
+          results.problem(gameId, step.move() + " by " + player + " was refused on " + game);
+          post("/" + gameId + "/quit", player, "{}");
+          unfollow(gameId, subscriptions);
+          return;
+        }
+        results.moves.increment();
+        expected.add(new Expected(type, next.getStake1() - game.getStake1(), sentAt));
+        game = next;
+      }
+
+      check(gameId, game, expected.size() - 1);
+      for (int i = 0; i < followers.length; i++)
+        check(gameId, followers[i], expected);
+      unfollow(gameId, subscriptions);
+      results.games.increment();
+    }
+
+    private void unfollow(String gameId, StompSession.Subscription[] subscriptions) {
+      for (int i = 0; i < followers.length; i++) {
+        subscriptions[i].unsubscribe();
+        followers[i].forget(gameId);
+      }
+    }
+
+    // The server's state matches the replica
+    private void check(String gameId, Game game, long version) throws Exception {
+      var body = get("/" + gameId, players[0]);
+      if (body == null) {
+        results.problem(gameId, "final state could not be fetched");
+        return;
+      }
+      var server = mapper.readTree(body);
+      if (!server.path("status").asText().equals(game.getStatus().name())
+          || server.path("stake1").asInt() != game.getStake1()
+          || server.path("stake2").asInt() != game.getStake2()
+          || !Objects.equals(server.path("winner").textValue(), game.getWinner())
+          || server.path("version").asLong() != version)
+        results.problem(gameId, "server has " + body + " but the moves made give " + game + " at version " + version);
+    }
+
+    // The events a player received match the moves made
+    private void check(String gameId, Follower follower, List<Expected> expected) throws InterruptedException {
+      var last = expected.size() - 1;
+      var events = follower.events(gameId);
+      var waitUntil = System.nanoTime() + EVENT_WAIT;
+      long seen = 0;
+      var first = true;
+      while (seen < last) {
+        var event = events.poll(waitUntil - System.nanoTime(), TimeUnit.NANOSECONDS);
+        if (event == null) {
+          results.problem(gameId, "events after version " + seen + " of " + last + " never arrived");
+          return;
+        }
+        var version = event.version();
+        if (first && version > 1) {
+          results.late.increment();
+        } else if (version <= seen) {
+          // Delivered again; clients drop versions they have seen
+          results.duplicates.increment();
+          continue;
+        } else if (version != seen + 1) {
+          results.problem(gameId, "event version " + version + " received after " + seen);
+          return;
+        }
+        first = false;
+        seen = version;
+        if (version > last) {
+          results.problem(gameId, "event version " + version + " is past the last move at " + last);
+          return;
+        }
+        var move = expected.get((int) version);
+        if (!event.type().equals(move.type().name())
+            || (event.delta() != null ? event.delta().asInt() : 0) != move.delta()) {
+          results.problem(gameId, "event " + event + " doesn't match the move " + move);
+          return;
+        }
+        results.lag.recordValue(Math.min(MAX_MICROS, Math.max(0, event.at() - move.sentAt()) / 1000));
+      }
+    }
+  }
+
+  private static Follower follower(WebSocketStompClient client, String base) throws Exception {
+    return new Follower(client.connect(base + "/game", new StompSessionHandlerAdapter() {
+    }).get(30, TimeUnit.SECONDS));
+  }
+
+  private static Results run(String base, List<Follower[]> followers, int seconds) throws Exception {
+    var results = new Results();
+    var http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    var pool = Executors.newFixedThreadPool(followers.size());
+    try {
+      var start = System.nanoTime();
+      var deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+      var pairs = new ArrayList<Future<?>>();
+      for (int i = 0; i < followers.size(); i++) {
+        var pair = new Pair(http, base, i, followers.get(i), results);
+        pairs.add(pool.submit(() -> {
+          pair.play(deadline);
+          return null;
+        }));
+      }
+      for (var pair : pairs) {
+        try {
+          pair.get();
+        } catch (ExecutionException e) {
+          results.firstProblem.compareAndSet(null, "pair failed: " + e.getCause());
+        }
+      }
+      var elapsed = (System.nanoTime() - start) / 1e9;
+      System.out.printf("%,d pairs: %,d games (%,d inconsistent), %,d moves, %,d failed calls in %.1f s, "
+          + "%,.0f games/s, %,.0f moves/s, %,d late subscriptions, %,d duplicate events%n",
+          followers.size(), results.games.sum(), results.inconsistent.sum(), results.moves.sum(),
+          results.failedCalls.sum(), elapsed, results.games.sum() / elapsed, results.moves.sum() / elapsed,
+          results.late.sum(), results.duplicates.sum());
+      if (results.firstProblem.get() != null)
+        System.out.println("First problem: " + results.firstProblem.get());
+    } finally {
+      pool.shutdownNow();
+    }
+    return results;
+  }
+
+  private static void report(String name, Histogram histogram, File dir) throws Exception {
+    System.out.printf("%-13s p50 %.2f ms, p99 %.2f ms, p999 %.2f ms, max %.2f ms (%,d samples)%n", name,
+        histogram.getValueAtPercentile(50) / 1e3, histogram.getValueAtPercentile(99) / 1e3,
+        histogram.getValueAtPercentile(99.9) / 1e3, histogram.getMaxValue() / 1e3, histogram.getTotalCount());
+    // Percentile distribution in milliseconds, as HdrHistogram's plotter reads it
+    try (var out = new PrintStream(new File(dir, name.replace(' ', '-') + ".hgrm"))) {
+      histogram.outputPercentileDistribution(out, 1e3);
+    }
+  }
+
+  // Only this machine may be loaded
+  static void checkLocal(String base) throws Exception {
+    var host = URI.create(base).getHost();
+    if (host == null || !InetAddress.getByName(host).isLoopbackAddress())
+      throw new IllegalArgumentException("Load can only be sent to this machine, not to: " + base);
+  }
+
+  public static void main(String[] args) throws Exception {
+    var pairs = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    var seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+    var dir = new File(args.length > 2 ? args[2] : "build/load");
+    var server = args.length > 3 && !args[3].isBlank() ? args[3] : null;
+    dir.mkdirs();
+
+    ConfigurableApplicationContext context = null;
+    String base;
+    if (server != null) {
+      checkLocal(server);
+      base = server;
+    } else {
+      // Room for every pair's games until ended games are evicted
+      context = SpringApplication.run(MarbleGuessingGameBackendApplication.class, "--server.port=0",
+          "--server.address=127.0.0.1", "--logging.level.com.example=WARN", "--game.event-log.enabled=false",
+          "--game.rate-limit.enabled=false",
+          "--game.max-games=" + Math.max(100000, pairs * 1000),
+          "--server.tomcat.max-connections=" + (pairs * 4 + 100));
+      base = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+    }
+
+    var stompClient = MoveLoadTest.stompClient();
+    try {
+      // Both players of every pair follow their games on their own connection
+      var followers = new ArrayList<Follower[]>();
+      for (int i = 0; i < pairs; i++)
+        followers.add(new Follower[] { follower(stompClient, base), follower(stompClient, base) });
+      System.out.printf("Connected %,d players to %s%n", pairs * 2, base);
+
+      run(base, followers, Math.max(1, seconds / 5));
+      System.out.println("-- warmed up");
+      var results = run(base, followers, seconds);
+      report("call latency", results.calls.getIntervalHistogram(), dir);
+      report("broadcast lag", results.lag.getIntervalHistogram(), dir);
+      System.out.println("Histograms written to " + dir.getAbsolutePath());
+
+      for (var pair : followers)
+        for (var follower : pair)
+          follower.session.disconnect();
+    } finally {
+      stompClient.stop();
+      if (context != null)
+        context.close();
+    }
+  }
+}
@@ -0,0 +1,212 @@
+package com.example.marbleguessinggamebackend.controller;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.example.marbleguessinggamebackend.MarbleGuessingGameBackendApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+// Players asking to be matched over STOMP at a fixed rate, 10,000 a second by
+// default, against a server on this machine. Requests are sent on schedule
+// whether or not earlier ones were answered, and the time to be paired is
+// measured from when each request was due, so a server falling behind shows up
+// as latency instead of as a lower request rate.
+// Reports requests and matches per second, players left unpaired and the time
+// to be paired as an HDR histogram, also written to time-to-match.hgrm.
+// Run with ./gradlew matchmakeLoadTest -Prate=N -Pseconds=S -Pconnections=C,
+// adding -Pserver=http://localhost:8080 to load a running server.
+public class MatchmakeLoadTest {
+
+  // Highest time to match the histogram tracks, in microseconds
+  private static final long MAX_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+  // A client connection and the players waiting on it, with when they were due
+  private static class Connection {
+
+    final Map<String, Long> due = new ConcurrentHashMap<>();
+    // Set once the subscriptions are live
+    volatile StompSession session;
+  }
+
+  private static class Results {
+
+    final Recorder timeToMatch = new Recorder(MAX_MICROS, 3);
+    final LongAdder paired = new LongAdder();
+    final LongAdder errors = new LongAdder();
+    volatile long lastMatchAt;
+  }
+
+  private static Connection connect(WebSocketStompClient client, String base, Results[] results)
+      throws Exception {
+    var connection = new Connection();
+    var session = client.connect(base + "/game", new StompSessionHandlerAdapter() {
+    }).get(30, TimeUnit.SECONDS);
+    BlockingQueue<Object> probes = new LinkedBlockingQueue<>();
+
+    session.subscribe("/user/queue/matches", new StompFrameHandler() {
+      @Override
+      public Type getPayloadType(StompHeaders headers) {
+        return JsonNode.class;
+      }
+
+      @Override
+      public void handleFrame(StompHeaders headers, Object payload) {
+        var now = System.nanoTime();
+        var game = (JsonNode) payload;
+        var run = results[0];
+        for (var player : new String[] { game.path("player1").asText(), game.path("player2").asText() }) {
+          var due = connection.due.remove(player);
+          if (due != null) {
+            run.timeToMatch.recordValue(Math.min(MAX_MICROS, Math.max(0, now - due) / 1000));
+            run.paired.increment();
+            run.lastMatchAt = now;
+          }
+        }
+      }
+    });
+    session.subscribe("/user/queue/errors", new StompFrameHandler() {
+      @Override
+      public Type getPayloadType(StompHeaders headers) {
+        return Map.class;
+      }
+
+      @Override
+      public void handleFrame(StompHeaders headers, Object payload) {
+        // Errors while connecting are answers to probes
+        if (connection.session == null)
+          probes.add(payload);
+        else
+          results[0].errors.increment();
+      }
+    });
+    // Subscriptions are handled concurrently with sends, wait until they are live
+    while (probes.poll(1, TimeUnit.SECONDS) == null)
+      MoveLoadTest.probe(session);
+    connection.session = session;
+    return connection;
+  }
+
+  private static void matchmake(StompSession session, String player) {
+    var headers = new StompHeaders();
+    headers.setDestination("/app/matchmake");
+    headers.add("player", player);
+    session.send(headers, Map.of());
+  }
+
+  private static Results run(String name, List<Connection> connections, Results[] current, int rate,
+      int seconds) throws Exception {
+    var results = new Results();
+    current[0] = results;
+    var requests = (long) rate * seconds;
+    var interval = 1e9 / rate;
+
+    var start = System.nanoTime();
+    for (long i = 0; i < requests; i++) {
+      var due = start + (long) (i * interval);
+      var now = System.nanoTime();
+      if (now < due)
+        LockSupport.parkNanos(due - now);
+      var connection = connections.get((int) (i % connections.size()));
+      var player = name + "-" + i;
+      connection.due.put(player, due);
+      matchmake(connection.session, player);
+    }
+    var sent = System.nanoTime();
+
+    // Wait for the replies; one player may be left waiting for a partner
+    var waitUntil = sent + TimeUnit.SECONDS.toNanos(30);
+    long unpaired;
+    while ((unpaired = unpaired(connections)) > 1 && System.nanoTime() < waitUntil)
+      Thread.sleep(10);
+
+    var sendSeconds = (sent - start) / 1e9;
+    var matchSeconds = (Math.max(results.lastMatchAt, start) - start) / 1e9;
+    System.out.printf("%-6s %,d requests in %.1f s (%,.0f/s for a target of %,d/s), %,d players paired "
+        + "(%,.0f matches/s), %,d unpaired, %,d errors%n",
+        name, requests, sendSeconds, requests / sendSeconds, rate, results.paired.sum(),
+        results.paired.sum() / 2 / Math.max(matchSeconds, 1e-9), unpaired, results.errors.sum());
+
+    // Leave no one waiting for the next run
+    for (var connection : connections)
+      connection.due.clear();
+    return results;
+  }
+
+  private static long unpaired(List<Connection> connections) {
+    long unpaired = 0;
+    for (var connection : connections)
+      unpaired += connection.due.size();
+    return unpaired;
+  }
+
+  public static void main(String[] args) throws Exception {
+    var rate = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+    var seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    var connectionCount = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+    var dir = new File(args.length > 3 ? args[3] : "build/load");
+    var server = args.length > 4 && !args[4].isBlank() ? args[4] : null;
+    dir.mkdirs();
+
+    ConfigurableApplicationContext context = null;
+    String base;
+    if (server != null) {
+      MatchLoadTest.checkLocal(server);
+      base = server;
+    } else {
+      // Every match starts a game, and games are only evicted once idle
+      context = SpringApplication.run(MarbleGuessingGameBackendApplication.class, "--server.port=0",
+          "--server.address=127.0.0.1", "--logging.level.com.example=WARN", "--game.event-log.enabled=false",
+          "--game.rate-limit.enabled=false",
+          "--game.max-games=" + ((long) rate * (seconds + seconds / 5 + 1)),
+          "--server.tomcat.max-connections=" + (connectionCount + 100));
+      base = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+    }
+
+    var stompClient = MoveLoadTest.stompClient();
+    try {
+      var current = new Results[] { new Results() };
+      var connections = new ArrayList<Connection>();
+      for (int i = 0; i < connectionCount; i++)
+        connections.add(connect(stompClient, base, current));
+      System.out.printf("Connected %,d clients to %s%n", connectionCount, base);
+
+      run("warmup", connections, current, rate, Math.max(1, seconds / 5));
+      var results = run("run", connections, current, rate, seconds);
+
+      var histogram = results.timeToMatch.getIntervalHistogram();
+      System.out.printf("time to match p50 %.2f ms, p99 %.2f ms, p999 %.2f ms, max %.2f ms%n",
+          histogram.getValueAtPercentile(50) / 1e3, histogram.getValueAtPercentile(99) / 1e3,
+          histogram.getValueAtPercentile(99.9) / 1e3, histogram.getMaxValue() / 1e3);
+      try (var out = new PrintStream(new File(dir, "time-to-match.hgrm"))) {
+        histogram.outputPercentileDistribution(out, 1e3);
+      }
+      System.out.println("Histogram written to " + dir.getAbsolutePath());
+
+      for (var connection : connections)
+        connection.session.disconnect();
+    } finally {
+      stompClient.stop();
+      if (context != null)
+        context.close();
+    }
+  }
+}
@@ -0,0 +1,266 @@
+package com.example.marbleguessinggamebackend.controller;
+
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.example.marbleguessinggamebackend.MarbleGuessingGameBackendApplication;
+import com.example.marbleguessinggamebackend.config.VirtualThreads;
+import com.example.marbleguessinggamebackend.dto.MoveResult;
+import com.example.marbleguessinggamebackend.service.GameService;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+// Moves per second and move latency over REST and over STOMP against a local
+// server. Each client plays one game, waiting for the reply to a move before
+// the next, and the hider and guesser swap every round so the game never ends.
+// Run with ./gradlew moveLoadTest -Pclients=N -Pseconds=S, adding
+// -PvirtualThreads to run the server and clients on virtual threads
+public class MoveLoadTest {
+
+  interface Mover {
+    void move(String gameId, String move, String player, Map<String, Object> body) throws Exception;
+
+    default void close() {
+    }
+  }
+
+  private static String gameId(String created) {
+    return created.substring(created.lastIndexOf(' ') + 1);
+  }
+
+  // Move latencies of one client, merged after the run
+  private static class Latencies {
+
+    private long[] samples = new long[1024];
+    private int count;
+
+    void add(long nanos) {
+      if (count == samples.length)
+        samples = Arrays.copyOf(samples, count * 2);
+      samples[count++] = nanos;
+    }
+
+    void addAll(Latencies other) {
+      for (int i = 0; i < other.count; i++)
+        add(other.samples[i]);
+    }
+
+    double percentile(double p) {
+      if (count == 0)
+        return 0;
+      Arrays.sort(samples, 0, count);
+      return samples[(int) Math.min(count - 1, Math.ceil(p / 100 * count) - 1)] / 1e6;
+    }
+  }
+
+  // Play rounds until the deadline, timing each move
+  private static Latencies play(GameService gs, int client, long deadline, Mover mover) throws Exception {
+    var players = new String[] { "hider-" + client, "guesser-" + client };
+    var gameId = gameId(gs.startGame(players[0]));
+    gs.joinGame(gameId, players[1]);
+
+    var latencies = new Latencies();
+    for (int round = 0; System.nanoTime() < deadline; round++) {
+      var hider = players[round % 2];
+      var guesser = players[(round + 1) % 2];
+      timed(latencies, () -> mover.move(gameId, "hide", hider, Map.of("count", 1)));
+      timed(latencies, () -> mover.move(gameId, "bet", guesser, Map.of("count", 1)));
+      timed(latencies, () -> mover.move(gameId, "guess", guesser, Map.of("guess", "ODD")));
+    }
+    return latencies;
+  }
+
+  private interface Move {
+    void run() throws Exception;
+  }
+
+  private static void timed(Latencies latencies, Move move) throws Exception {
+    var start = System.nanoTime();
+    move.run();
+    latencies.add(System.nanoTime() - start);
+  }
+
+  private static void run(String name, int clients, int seconds, Callable<Mover> connect, GameService gs,
+      ExecutorService pool) throws Exception {
+    // Connect every client before the clock starts
+    var connecting = new ArrayList<Future<Mover>>();
+    for (int i = 0; i < clients; i++)
+      connecting.add(pool.submit(connect));
+    var movers = new ArrayList<Mover>();
+    for (var mover : connecting) {
+      try {
+        movers.add(mover.get());
+      } catch (ExecutionException e) {
+        // Counted as a connection the server refused
+      }
+    }
+
+    var start = System.nanoTime();
+    var deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+    var results = new ArrayList<Future<Latencies>>();
+    for (int i = 0; i < movers.size(); i++) {
+      var client = i;
+      results.add(pool.submit(() -> play(gs, client, deadline, movers.get(client))));
+    }
+    var all = new Latencies();
+    var failed = 0;
+    for (var result : results) {
+      try {
+        all.addAll(result.get());
+      } catch (ExecutionException e) {
+        if (failed++ == 0)
+          System.out.println("First failure: " + e.getCause());
+      }
+    }
+    var elapsed = (System.nanoTime() - start) / 1e9;
+    for (var mover : movers)
+      mover.close();
+
+    System.out.printf("%-5s %,d/%,d clients connected, %,d failed: %,d moves in %.1f s, %,.0f moves/s, "
+        + "p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+        name, movers.size(), clients, failed, all.count, elapsed, all.count / elapsed,
+        all.percentile(50), all.percentile(99), all.percentile(100));
+  }
+
+  static Mover rest(HttpClient http, String base) {
+    return (gameId, move, player, body) -> {
+      var json = body.containsKey("guess") ? "{\"guess\":\"" + body.get("guess") + "\"}"
+          : "{\"count\":" + body.get("count") + "}";
+      var request = HttpRequest.newBuilder(URI.create(base + "/api/v1/" + gameId + "/" + move))
+          .header("player", player)
+          .header("Content-Type", "application/json")
+          .POST(HttpRequest.BodyPublishers.ofString(json))
+          .build();
+      var response = http.send(request, HttpResponse.BodyHandlers.ofString());
+      if (response.statusCode() != 200)
+        throw new IllegalStateException(move + " failed: " + response.body());
+    };
+  }
+
+  private static StompFrameHandler into(BlockingQueue<Object> queue, Class<?> type) {
+    return new StompFrameHandler() {
+      @Override
+      public Type getPayloadType(StompHeaders headers) {
+        return type;
+      }
+
+      @Override
+      public void handleFrame(StompHeaders headers, Object payload) {
+        queue.add(payload);
+      }
+    };
+  }
+
+  // SockJS client reading replies as JSON
+  static WebSocketStompClient stompClient() {
+    var client = new WebSocketStompClient(
+        new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+    client.setMessageConverter(
+        new CompositeMessageConverter(List.of(new StringMessageConverter(), new MappingJackson2MessageConverter())));
+    return client;
+  }
+
+  static Mover stomp(WebSocketStompClient client, String base) throws Exception {
+    var session = client.connect(base + "/game", new StompSessionHandlerAdapter() {
+    }).get(10, TimeUnit.SECONDS);
+    BlockingQueue<Object> replies = new LinkedBlockingQueue<>();
+    session.subscribe("/user/queue/results", into(replies, MoveResult.class));
+    session.subscribe("/user/queue/errors", into(replies, Map.class));
+    // Subscriptions are handled concurrently with sends, wait until they are live
+    while (!(replies.poll(1, TimeUnit.SECONDS) instanceof Map))
+      probe(session);
+
+    return new Mover() {
+      @Override
+      public void move(String gameId, String move, String player, Map<String, Object> body) throws Exception {
+        send(session, replies, gameId, move, player, body);
+      }
+
+      @Override
+      public void close() {
+        session.disconnect();
+      }
+    };
+  }
+
+  // Move on a game that doesn't exist, answered on the errors queue
+  static final String PROBE = "probe";
+
+  static void probe(StompSession session) {
+    var headers = new StompHeaders();
+    headers.setDestination("/app/" + PROBE + "/quit");
+    headers.add("player", PROBE);
+    session.send(headers, Map.of());
+  }
+
+  private static void send(StompSession session, BlockingQueue<Object> replies, String gameId, String move,
+      String player, Map<String, Object> body) throws InterruptedException {
+    var headers = new StompHeaders();
+    headers.setDestination("/app/" + gameId + "/" + move);
+    headers.add("player", player);
+    session.send(headers, body);
+    var reply = replies.poll(10, TimeUnit.SECONDS);
+    // Answers to probes sent while subscribing may still arrive
+    while (reply instanceof Map && String.valueOf(((Map<?, ?>) reply).get("message")).contains(PROBE))
+      reply = replies.poll(10, TimeUnit.SECONDS);
+    if (!(reply instanceof MoveResult))
+      throw new IllegalStateException(move + " failed: " + reply);
+  }
+
+  public static void main(String[] args) throws Exception {
+    var clients = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+    var seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    var virtual = args.length > 2 && args[2].equals("virtual");
+
+    var context = SpringApplication.run(MarbleGuessingGameBackendApplication.class, "--server.port=0",
+        "--game.rate-limit.enabled=false", "--logging.level.com.example=WARN", "--game.max-games=" + (clients * 4),
+        "--server.tomcat.max-connections=" + (clients * 2 + 100), "--game.threads.virtual=" + virtual);
+    // Clients block on every move, so they need as many threads as the server
+    var pool = virtual ? VirtualThreads.perTaskExecutor() : Executors.newFixedThreadPool(clients);
+    try {
+      var base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+      var gs = context.getBean(GameService.class);
+      System.out.println(virtual ? "Server on virtual threads" : "Server on platform thread pools");
+
+      var http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+      var stompClient = stompClient();
+
+      // Warm up both paths before measuring
+      run("rest", clients, Math.max(1, seconds / 5), () -> rest(http, base), gs, pool);
+      run("stomp", clients, Math.max(1, seconds / 5), () -> stomp(stompClient, base), gs, pool);
+      System.out.println("--");
+      run("rest", clients, seconds, () -> rest(http, base), gs, pool);
+      run("stomp", clients, seconds, () -> stomp(stompClient, base), gs, pool);
+      stompClient.stop();
+    } finally {
+      pool.shutdownNow();
+      context.close();
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package com.example.marbleguessinggamebackend.controller;
+
+import java.net.http.HttpClient;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.example.marbleguessinggamebackend.MarbleGuessingGameBackendApplication;
+import com.example.marbleguessinggamebackend.controller.MoveLoadTest.Mover;
+import com.example.marbleguessinggamebackend.service.GameService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+// Round trip of a move against the whole server on a local port: a REST call
+// answered with the result, or a STOMP message answered on the player's results
+// queue. Each thread plays its own game, waiting for each reply before the next
+// move. The game event log is off so the fork's output stays readable.
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoundTripBenchmark {
+
+  private static final Map<String, Object> HIDE = Map.of("count", 1);
+  private static final Map<String, Object> BET = Map.of("count", 1);
+  private static final Map<String, Object> GUESS = Map.of("guess", "ODD");
+
+  @Param({ "rest", "stomp" })
+  public String transport;
+
+  private ConfigurableApplicationContext context;
+  private GameService gs;
+  private String base;
+  private HttpClient http;
+  private WebSocketStompClient stompClient;
+  private final AtomicInteger players = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = SpringApplication.run(MarbleGuessingGameBackendApplication.class, "--server.port=0",
+        "--game.rate-limit.enabled=false", "--logging.level.com.example=WARN", "--game.event-log.enabled=false");
+    gs = context.getBean(GameService.class);
+    base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+    http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    stompClient = MoveLoadTest.stompClient();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    stompClient.stop();
+    context.close();
+  }
+
+  @State(Scope.Thread)
+  public static class Player {
+
+    Mover mover;
+    String gameId;
+    String hider;
+    String guesser;
+    int move;
+
+    @Setup(Level.Trial)
+    public void setUp(RoundTripBenchmark server) throws Exception {
+      var client = server.players.getAndIncrement();
+      hider = "hider-" + client;
+      guesser = "guesser-" + client;
+      var created = server.gs.startGame(hider);
+      gameId = created.substring(created.lastIndexOf(' ') + 1);
+      server.gs.joinGame(gameId, guesser);
+      mover = server.transport.equals("rest") ? MoveLoadTest.rest(server.http, server.base)
+          : MoveLoadTest.stomp(server.stompClient, server.base);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      mover.close();
+    }
+  }
+
+  // One move per call, in rounds of hide, bet and a correct guess, after which
+  // the guesser hides, so the game never ends
+  @Benchmark
+  public void move(Player player) throws Exception {
+    switch (player.move++ % 3) {
+      case 0:
+        player.mover.move(player.gameId, "hide", player.hider, HIDE);
+        break;
+      case 1:
+        player.mover.move(player.gameId, "bet", player.guesser, BET);
+        break;
+      default:
+        player.mover.move(player.gameId, "guess", player.guesser, GUESS);
+        var next = player.guesser;
+        player.guesser = player.hider;
+        player.hider = next;
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package com.example.marbleguessinggamebackend.journal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.model.GameStatus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Per-move cost of journaling, with and without waiting for the group commit,
+// and the time to recover a journal of many games.
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class JournalBenchmark {
+
+  private static Game game(int i) {
+    return new Game("00000000-0000-0000-0000-" + String.format("%012d", i), "player-" + i).toBuilder()
+        .player2("player-" + (i + 1))
+        .status(GameStatus.IN_PROGRESS)
+        .stake1(10)
+        .stake2(10)
+        .build();
+  }
+
+  @State(Scope.Benchmark)
+  public static class Appending {
+
+    private Path dir;
+    private JournalWriter writer;
+    private final Game[] games = new Game[1024];
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+      dir = Files.createTempDirectory("journal-bench");
+      writer = new JournalWriter(dir, 64 << 20);
+      for (int i = 0; i < games.length; i++)
+        games[i] = game(i);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      writer.close();
+    }
+
+    Game next() {
+      var i = ThreadLocalRandom.current().nextInt(games.length);
+      var game = games[i].withVersion(games[i].getVersion() + 1);
+      games[i] = game;
+      return game;
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Recovering {
+
+    @Param({ "1000000" })
+    public int games;
+
+    // Read all games from the snapshot or all moves from the segments
+    @Param({ "true", "false" })
+    public boolean snapshot;
+
+    private Path dir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+      dir = Files.createTempDirectory("journal-bench");
+      var all = new ArrayList<Game>(games);
+      for (int i = 0; i < games; i++)
+        all.add(game(i));
+
+      var writer = new JournalWriter(dir, 256 << 20);
+      if (snapshot) {
+        writer.snapshot(all);
+      } else {
+        // Three moves per game
+        for (int move = 0; move < 3; move++)
+          for (var game : all)
+            writer.append(game.withVersion(move));
+      }
+      writer.close();
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @Warmup(iterations = 3, time = 1)
+  @Measurement(iterations = 5, time = 1)
+  @Threads(16)
+  public void appendAndSync(Appending state) {
+    state.writer.append(state.next());
+    state.writer.sync();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @Warmup(iterations = 3, time = 1)
+  @Measurement(iterations = 5, time = 1)
+  @Threads(16)
+  public void append(Appending state) {
+    state.writer.append(state.next());
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 1)
+  @Measurement(iterations = 3)
+  public Collection<Game> recover(Recovering state) throws IOException {
+    return JournalReplay.replay(state.dir);
+  }
+}
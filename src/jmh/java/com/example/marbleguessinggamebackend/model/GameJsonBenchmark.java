@@ -0,0 +1,89 @@
+package com.example.marbleguessinggamebackend.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.example.marbleguessinggamebackend.dto.GameEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+// Jackson serialization as the server does it, with a mapper configured like
+// Spring Boot's: a game as GET /api/v1/{gameId} returns it, a page of games
+// streamed as GET /api/v1 does, and a broadcast message of move events.
+// Run with -prof gc to see the bytes allocated per call.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GameJsonBenchmark {
+
+  private static final int PAGE = 100;
+
+  private ObjectMapper mapper;
+  private Game game;
+  private final List<Game> page = new ArrayList<>(PAGE);
+  private List<GameEvent> events;
+  private final ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+
+  @Setup
+  public void setUp() {
+    mapper = Jackson2ObjectMapperBuilder.json().build();
+    for (int i = 0; i < PAGE; i++) {
+      page.add(new Game("game-" + i, "player-" + i).toBuilder()
+          .player2("player-" + (i + 1))
+          .status(GameStatus.IN_PROGRESS)
+          .stake1(7)
+          .stake2(13)
+          .move(Move.BET)
+          .turn(Turn.PLAYER_2)
+          .hidden(3)
+          .version(42)
+          .build());
+    }
+    game = page.get(0).withoutSecrets();
+
+    var hidden = GameEvent.hidden("alice");
+    hidden.setVersion(41);
+    var bet = GameEvent.betPlaced("bob", 2);
+    bet.setVersion(42);
+    events = List.of(hidden, bet);
+  }
+
+  @Benchmark
+  public byte[] game() throws IOException {
+    return mapper.writeValueAsBytes(game);
+  }
+
+  @Benchmark
+  public int page() throws IOException {
+    out.reset();
+    try (var generator = mapper.createGenerator(out)) {
+      generator.writeStartArray();
+      for (var game : page)
+        generator.writeObject(game.withoutSecrets());
+      generator.writeEndArray();
+    }
+    return out.size();
+  }
+
+  @Benchmark
+  public byte[] events() throws IOException {
+    return mapper.writeValueAsBytes(events);
+  }
+}
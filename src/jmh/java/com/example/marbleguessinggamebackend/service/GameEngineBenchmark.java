@@ -0,0 +1,91 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.store.ShardedGameStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Moves per second through each engine with one caller thread per core, each
+// moving marbles in a random game out of many
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class GameEngineBenchmark {
+
+  private static final int GAMES = 4096;
+
+  @Param({ "mailbox", "cas", "sharded" })
+  public String engine;
+
+  private String[] ids;
+  private GameEngine games;
+  private GameExecutor executor;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    var shards = new GameShards(0);
+    var registry = engine.equals("sharded") ? new GameRegistry(new ShardedGameStore(shards)) : new GameRegistry();
+    switch (engine) {
+      case "mailbox":
+        executor = new GameExecutor(0);
+        games = new MailboxGameEngine(registry, executor);
+        break;
+      case "cas":
+        games = new CasGameEngine(registry);
+        break;
+      default:
+        games = new ShardedGameEngine(registry, shards, new SimpleMeterRegistry());
+    }
+
+    ids = new String[GAMES];
+    for (int i = 0; i < GAMES; i++) {
+      ids[i] = "game-" + i;
+      games.open(ids[i]);
+      registry.addGame(new Game(ids[i], "alice").toBuilder()
+          .player2("bob")
+          .stake1(7)
+          .stake2(13)
+          .build());
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (executor != null)
+      executor.shutdown();
+    if (games instanceof ShardedGameEngine)
+      ((ShardedGameEngine) games).shutdown();
+  }
+
+  @Benchmark
+  public Transition move() {
+    var gameId = ids[ThreadLocalRandom.current().nextInt(GAMES)];
+    return games.apply(gameId, current -> {
+      var game = current.next().stake1(current.getStake2()).stake2(current.getStake1()).build();
+      return new Transition(game, null, null);
+    }, transition -> {
+    });
+  }
+}
@@ -0,0 +1,84 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.store.HeapGameStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Creating ids with 64 concurrent creators, and looking games up by id in the
+// heap store, keyed on longs, against a ConcurrentHashMap keyed on the id
+// strings as the store was before. Lookups build a fresh String per call, as a
+// request does, so its hash isn't cached.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(64)
+@State(Scope.Benchmark)
+public class GameIdBenchmark {
+
+  @Param({ "uuid", "time", "random" })
+  public String ids;
+
+  @Param({ "100000" })
+  public int resident;
+
+  private GameIdGenerator generator;
+  private char[][] gameIds;
+  private HeapGameStore store;
+  private ConcurrentHashMap<String, Game> stringMap;
+
+  @Setup
+  public void setUp() {
+    generator = switch (ids) {
+    case "uuid" -> new UuidIdGenerator();
+    case "random" -> new RandomIdGenerator();
+    default -> new TimeOrderedIdGenerator(0);
+    };
+    gameIds = new char[resident][];
+    store = new HeapGameStore();
+    stringMap = new ConcurrentHashMap<>();
+    for (int i = 0; i < resident; i++) {
+      var gameId = generator.next();
+      gameIds[i] = gameId.toCharArray();
+      var game = new Game(gameId, "player-" + i);
+      store.put(game);
+      stringMap.put(gameId, game);
+    }
+  }
+
+  private String randomId() {
+    return new String(gameIds[ThreadLocalRandom.current().nextInt(resident)]);
+  }
+
+  @Benchmark
+  public String create() {
+    return generator.next();
+  }
+
+  @Benchmark
+  public Game lookup() {
+    return store.get(randomId());
+  }
+
+  @Benchmark
+  public Game lookupStringMap() {
+    return stringMap.get(randomId());
+  }
+}
@@ -0,0 +1,82 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.example.marbleguessinggamebackend.model.Game;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Registry operations with many resident games. removeAndAdd keeps the size
+// steady; scanRemoveAndAdd is the old removal through values().remove for
+// comparison.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class GameRegistryBenchmark {
+
+  @Param({ "10000", "100000", "1000000" })
+  public int resident;
+
+  private GameRegistry registry;
+  // Same games in a plain map for the old scanning removal
+  private final Map<String, Game> map = new ConcurrentHashMap<>();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    registry = new GameRegistry();
+    for (int i = 0; i < resident; i++) {
+      var game = new Game("game-" + i, "player-" + (i % (resident / 2)))
+          .withPlayer2("player-" + ((i + 1) % (resident / 2)));
+      registry.addGame(game);
+      map.put(game.getGameId(), game);
+    }
+  }
+
+  private Game randomGame() {
+    return registry.getGame("game-" + ThreadLocalRandom.current().nextInt(resident));
+  }
+
+  @Benchmark
+  public Game lookup() {
+    return randomGame();
+  }
+
+  @Benchmark
+  public boolean removeAndAdd() {
+    var game = randomGame();
+    var removed = registry.removeGame(game);
+    registry.addGame(game);
+    return removed;
+  }
+
+  @Benchmark
+  public boolean scanRemoveAndAdd() {
+    var game = randomGame();
+    var removed = map.values().remove(game);
+    map.put(game.getGameId(), game);
+    return removed;
+  }
+
+  @Benchmark
+  public List<Game> gamesOfPlayer() {
+    return registry.gamesOf("player-" + ThreadLocalRandom.current().nextInt(resident / 2));
+  }
+}
@@ -0,0 +1,189 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.example.marbleguessinggamebackend.cluster.GameRouter;
+import com.example.marbleguessinggamebackend.config.WireFormat;
+import com.example.marbleguessinggamebackend.config.WireFormats;
+import com.example.marbleguessinggamebackend.dto.MoveResult;
+import com.example.marbleguessinggamebackend.exception.GameException;
+import com.example.marbleguessinggamebackend.model.Turn;
+import com.example.marbleguessinggamebackend.store.ShardedGameStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import ch.qos.logback.classic.Logger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Moves per second through GameService on each engine, with one caller thread
+// per core, on a single game or on many.
+// uncontended: each thread plays games of its own, so every move is accepted.
+// contended: every thread plays the same games, making whichever move the game
+// it picked is waiting for. Threads race for each move and the losers are
+// rejected; the accepted and rejected counters split the moves by outcome.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class GameServiceBenchmark {
+
+  @Param({ "cas", "mailbox", "sharded" })
+  public String engine;
+
+  @Param({ "1", "4096" })
+  public int games;
+
+  private GameService gs;
+  private GameRegistry registry;
+  private GameExecutor executor;
+  private GameEngine moves;
+  private GameBroadcaster broadcaster;
+  // Games every thread plays in the contended benchmark
+  private String[] shared;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(ch.qos.logback.classic.Level.WARN);
+
+    var shards = new GameShards(0);
+    registry = engine.equals("sharded") ? new GameRegistry(new ShardedGameStore(shards)) : new GameRegistry();
+    switch (engine) {
+      case "mailbox":
+        executor = new GameExecutor(0);
+        moves = new MailboxGameEngine(registry, executor);
+        break;
+      case "cas":
+        moves = new CasGameEngine(registry);
+        break;
+      default:
+        moves = new ShardedGameEngine(registry, shards, new SimpleMeterRegistry());
+    }
+    var meters = new SimpleMeterRegistry();
+    broadcaster = new GameBroadcaster(new SimpMessagingTemplate((message, timeout) -> true),
+        new WireFormats(Jackson2ObjectMapperBuilder.json()), meters, 1024, Duration.ZERO, Set.of(WireFormat.JSON));
+    broadcaster.start();
+    // Room for the shared games and those of up to 256 threads
+    var evictor = new GameEvictor(registry, moves, broadcaster, meters, Duration.ofSeconds(1), Duration.ofMinutes(5),
+        Duration.ofMinutes(30), games * 257);
+    gs = new GameService(registry, moves, evictor, new NoGameJournal(), broadcaster, new GameRouter(List.of(), 0),
+        new GameMetrics(registry, meters),
+        new GameEventLog(new ObjectMapper(), meters, new StandardEnvironment(), false, 1024, 1.0));
+
+    shared = start(gs, "shared", games);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    broadcaster.stop();
+    if (executor != null)
+      executor.shutdown();
+    if (moves instanceof ShardedGameEngine)
+      ((ShardedGameEngine) moves).shutdown();
+  }
+
+  // Start and join games between two players
+  private static String[] start(GameService gs, String name, int count) {
+    var ids = new String[count];
+    for (int i = 0; i < count; i++) {
+      var created = gs.startGame(name + "-1");
+      ids[i] = created.substring(created.lastIndexOf(' ') + 1);
+      gs.joinGame(ids[i], name + "-2");
+    }
+    return ids;
+  }
+
+  @State(Scope.Thread)
+  public static class Own {
+
+    private static int threads;
+
+    String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp(GameServiceBenchmark benchmark) {
+      int thread;
+      synchronized (Own.class) {
+        thread = threads++;
+      }
+      ids = start(benchmark.gs, "thread-" + thread, benchmark.games);
+    }
+  }
+
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Outcomes {
+
+    public long accepted;
+    public long rejected;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      accepted = 0;
+      rejected = 0;
+    }
+  }
+
+  private static String pick(String[] ids) {
+    return ids.length == 1 ? ids[0] : ids[ThreadLocalRandom.current().nextInt(ids.length)];
+  }
+
+  // Make the move the game is waiting for as the player on turn. Players hide
+  // and bet one marble and the guesser is always right, so the stakes only
+  // swing by one and games never end.
+  private MoveResult move(String gameId) {
+    var game = registry.getGame(gameId);
+    var step = GameRules.step(game);
+    var player = step.player() == Turn.PLAYER_1 ? game.getPlayer1() : game.getPlayer2();
+    switch (step.move()) {
+      case HIDE:
+        return gs.hide(1, gameId, player);
+      case BET:
+        return gs.bet(1, gameId, player);
+      default:
+        return gs.guess(gameId, player, "ODD");
+    }
+  }
+
+  @Benchmark
+  public MoveResult uncontended(Own own) {
+    return move(pick(own.ids));
+  }
+
+  @Benchmark
+  public MoveResult contended(Outcomes outcomes) {
+    try {
+      var result = move(pick(shared));
+      outcomes.accepted++;
+      return result;
+    } catch (GameException e) {
+      outcomes.rejected++;
+      return null;
+    }
+  }
+}
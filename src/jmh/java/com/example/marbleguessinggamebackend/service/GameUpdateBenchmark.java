@@ -0,0 +1,94 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.util.concurrent.TimeUnit;
+
+import com.example.marbleguessinggamebackend.model.Game;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Read-heavy traffic on one game: one writer moving marbles between the stakes
+// and three readers summing them, as the lobby and broadcaster do. Compares
+// copy-and-swap installs in GameRegistry against locking a mutable state, as
+// games were before they were immutable.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class GameUpdateBenchmark {
+
+  private static final String GAME_ID = "benchmark";
+
+  private GameRegistry registry;
+  private Stakes locked;
+
+  private static final class Stakes {
+    int stake1 = 7;
+    int stake2 = 13;
+  }
+
+  @Setup
+  public void setUp() {
+    registry = new GameRegistry();
+    registry.addGame(newGame());
+    locked = new Stakes();
+  }
+
+  private static Game newGame() {
+    return new Game(GAME_ID, "alice").toBuilder()
+        .player2("bob")
+        .stake1(7)
+        .stake2(13)
+        .build();
+  }
+
+  @Benchmark
+  @Group("cas")
+  @GroupThreads(1)
+  public Transition casWrite() {
+    return registry.update(GAME_ID, current -> {
+      var game = current.next().stake1(current.getStake2()).stake2(current.getStake1()).build();
+      return new Transition(game, null, null);
+    });
+  }
+
+  @Benchmark
+  @Group("cas")
+  @GroupThreads(3)
+  public int casRead() {
+    var game = registry.getGame(GAME_ID);
+    return game.getStake1() + game.getStake2();
+  }
+
+  @Benchmark
+  @Group("synchronized")
+  @GroupThreads(1)
+  public void synchronizedWrite() {
+    synchronized (locked) {
+      var stake1 = locked.stake1;
+      locked.stake1 = locked.stake2;
+      locked.stake2 = stake1;
+    }
+  }
+
+  @Benchmark
+  @Group("synchronized")
+  @GroupThreads(3)
+  public int synchronizedRead() {
+    synchronized (locked) {
+      return locked.stake1 + locked.stake2;
+    }
+  }
+}
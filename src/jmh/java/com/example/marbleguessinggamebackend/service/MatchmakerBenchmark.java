@@ -0,0 +1,99 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.example.marbleguessinggamebackend.cluster.GameRouter;
+import com.example.marbleguessinggamebackend.config.WireFormat;
+import com.example.marbleguessinggamebackend.config.WireFormats;
+import com.example.marbleguessinggamebackend.model.Game;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import ch.qos.logback.classic.Logger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Players asking the Matchmaker for a match per second, with one thread per
+// core, each asking as a new player. Every second player is paired and starts
+// a game, which the pairing thread removes again so the registry stays small.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class MatchmakerBenchmark {
+
+  private GameRegistry registry;
+  private GameEngine engine;
+  private GameBroadcaster broadcaster;
+  private Matchmaker matchmaker;
+  private final AtomicInteger threads = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(ch.qos.logback.classic.Level.WARN);
+
+    registry = new GameRegistry();
+    engine = new CasGameEngine(registry);
+    var meters = new SimpleMeterRegistry();
+    broadcaster = new GameBroadcaster(new SimpMessagingTemplate((message, timeout) -> true),
+        new WireFormats(Jackson2ObjectMapperBuilder.json()), meters, 1024, Duration.ZERO, Set.of(WireFormat.JSON));
+    broadcaster.start();
+    var evictor = new GameEvictor(registry, engine, broadcaster, meters, Duration.ofSeconds(1), Duration.ofMinutes(5),
+        Duration.ofMinutes(30), 1000000);
+    var gs = new GameService(registry, engine, evictor, new NoGameJournal(), broadcaster, new GameRouter(List.of(), 0),
+        new GameMetrics(registry, meters),
+        new GameEventLog(new ObjectMapper(), meters, new StandardEnvironment(), false, 1024, 1.0));
+    matchmaker = new Matchmaker(gs, meters);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    broadcaster.stop();
+  }
+
+  @State(Scope.Thread)
+  public static class Players {
+
+    String prefix;
+    long next;
+
+    @Setup(Level.Trial)
+    public void setUp(MatchmakerBenchmark benchmark) {
+      prefix = "player-" + benchmark.threads.getAndIncrement() + "-";
+    }
+  }
+
+  @Benchmark
+  public Game matchmake(Players players) {
+    var match = matchmaker.matchmake(players.prefix + players.next++, null);
+    var game = match.getNow(null);
+    if (game != null) {
+      registry.removeGame(game);
+      engine.close(game.getGameId());
+    }
+    return game;
+  }
+}
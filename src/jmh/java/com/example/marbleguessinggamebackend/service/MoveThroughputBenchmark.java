@@ -0,0 +1,121 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.example.marbleguessinggamebackend.cluster.GameRouter;
+import com.example.marbleguessinggamebackend.config.WireFormat;
+import com.example.marbleguessinggamebackend.config.WireFormats;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Accepted moves per second through GameService with logging on and off. With
+// logging on, logback is set up from the server's logback-spring.xml, with the
+// game event log enabled and written to a temp directory.
+// Each invocation plays a round: hide, bet and a correct guess, after which the
+// players swap roles, so games never end.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MoveThroughputBenchmark {
+
+  @Param({ "on", "off" })
+  public String logging;
+
+  private GameService gs;
+  private GameBroadcaster broadcaster;
+  private GameEventLog eventLog;
+  private File dir;
+
+  private String gameId;
+  private String hider = "alice";
+  private String guesser = "bob";
+
+  @Setup
+  public void setUp() throws Exception {
+    var root = (Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
+    root.detachAndStopAllAppenders();
+    root.setLevel(Level.WARN);
+    if (logging.equals("on")) {
+      dir = Files.createTempDirectory("moves").toFile();
+      var context = (LoggerContext) LoggerFactory.getILoggerFactory();
+      context.reset();
+      context.putProperty("LOG_PATH", dir.getPath());
+      var configurator = new JoranConfigurator();
+      configurator.setContext(context);
+      configurator.doConfigure(getClass().getResource("/logback-spring.xml"));
+    }
+
+    var registry = new GameRegistry();
+    var engine = new CasGameEngine(registry);
+    var meters = new SimpleMeterRegistry();
+    broadcaster = new GameBroadcaster(new SimpMessagingTemplate((message, timeout) -> true),
+        new WireFormats(Jackson2ObjectMapperBuilder.json()), meters, 1024, Duration.ZERO, Set.of(WireFormat.JSON));
+    broadcaster.start();
+    var evictor = new GameEvictor(registry, engine, broadcaster, meters, Duration.ofSeconds(1), Duration.ofMinutes(5),
+        Duration.ofMinutes(30), 1000);
+    eventLog = new GameEventLog(new ObjectMapper(), meters, new StandardEnvironment(), logging.equals("on"), 8192,
+        1.0);
+    eventLog.start();
+    gs = new GameService(registry, engine, evictor, new NoGameJournal(), broadcaster, new GameRouter(List.of(), 0),
+        new GameMetrics(registry, meters), eventLog);
+
+    var created = gs.startGame("alice");
+    gameId = created.substring(created.lastIndexOf(' ') + 1);
+    gs.joinGame(gameId, "bob");
+  }
+
+  @TearDown
+  public void tearDown() {
+    broadcaster.stop();
+    eventLog.stop();
+    if (dir != null) {
+      ((LoggerContext) LoggerFactory.getILoggerFactory()).reset();
+      for (var file : dir.listFiles())
+        file.delete();
+      dir.delete();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(3)
+  public void round() {
+    gs.hide(1, gameId, hider);
+    gs.bet(1, gameId, guesser);
+    gs.guess(gameId, guesser, "ODD");
+    // The guesser hides next
+    var next = guesser;
+    guesser = hider;
+    hider = next;
+  }
+}
@@ -0,0 +1,112 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.example.marbleguessinggamebackend.cluster.GameRouter;
+import com.example.marbleguessinggamebackend.config.WireFormat;
+import com.example.marbleguessinggamebackend.config.WireFormats;
+import com.example.marbleguessinggamebackend.exception.GameException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Cost of moves GameService rejects: out of turn, in the wrong phase and on a
+// game that doesn't exist. Run with -prof gc to see the bytes allocated per
+// rejected move.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RejectedMoveBenchmark {
+
+  @Param({ "cas", "mailbox" })
+  public String engine;
+
+  private GameService gs;
+  private GameExecutor executor;
+  private String gameId;
+
+  @Setup
+  public void setUp() {
+    // Log at the level the application runs with
+    ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+
+    var registry = new GameRegistry();
+    GameEngine games;
+    if (engine.equals("mailbox")) {
+      executor = new GameExecutor(1);
+      games = new MailboxGameEngine(registry, executor);
+    } else {
+      games = new CasGameEngine(registry);
+    }
+    var meters = new SimpleMeterRegistry();
+    var broadcaster = new GameBroadcaster(new SimpMessagingTemplate((message, timeout) -> true),
+        new WireFormats(Jackson2ObjectMapperBuilder.json()), meters, 1024, Duration.ZERO, Set.of(WireFormat.JSON));
+    var evictor = new GameEvictor(registry, games, broadcaster, meters, Duration.ofSeconds(1), Duration.ofMinutes(5),
+        Duration.ofMinutes(30), 1000);
+    gs = new GameService(registry, games, evictor, new NoGameJournal(), broadcaster, new GameRouter(List.of(), 0),
+        new GameMetrics(registry, meters),
+        new GameEventLog(new ObjectMapper(), meters, new StandardEnvironment(), false, 1024, 1.0));
+
+    var created = gs.startGame("alice");
+    gameId = created.substring(created.lastIndexOf(' ') + 1);
+    gs.joinGame(gameId, "bob");
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (executor != null)
+      executor.shutdown();
+  }
+
+  @Benchmark
+  public Object outOfTurn() {
+    try {
+      return gs.hide(1, gameId, "bob");
+    } catch (GameException e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public Object wrongPhase() {
+    try {
+      return gs.bet(1, gameId, "bob");
+    } catch (GameException e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public Object unknownGame() {
+    try {
+      return gs.hide(1, "missing", "alice");
+    } catch (GameException e) {
+      return e;
+    }
+  }
+}
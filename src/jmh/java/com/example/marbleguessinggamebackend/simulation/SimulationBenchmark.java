@@ -0,0 +1,67 @@
+package com.example.marbleguessinggamebackend.simulation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Simulated games per second. oneCore plays a batch on the benchmark thread,
+// which is the rate per core; allCores splits a larger run over the common
+// fork-join pool, so dividing it by the cores printed at setup shows how well
+// the simulator scales.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimulationBenchmark {
+
+  private static final int BATCH = 1024;
+  private static final int RUN = 64 * 1024;
+
+  // Strategies of the two players, e.g. ADAPTIVE-RANDOM
+  @Param({ "RANDOM-RANDOM", "ADAPTIVE-RANDOM", "ADAPTIVE-GREEDY" })
+  public String matchup;
+
+  @Param({ "10" })
+  public int stake;
+
+  private Strategy a;
+  private Strategy b;
+  private Simulator simulator;
+  private long next;
+
+  @Setup
+  public void setUp() {
+    var strategies = matchup.split("-");
+    a = Strategy.valueOf(strategies[0]);
+    b = Strategy.valueOf(strategies[1]);
+    simulator = new Simulator();
+    System.out.printf("%n%d cores%n", Runtime.getRuntime().availableProcessors());
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public SimulationStats oneCore() {
+    var from = next;
+    next += BATCH;
+    return Simulator.play(a, b, stake, 42, from, from + BATCH);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RUN)
+  public SimulationStats allCores() {
+    return simulator.run(a, b, stake, RUN, next++);
+  }
+}
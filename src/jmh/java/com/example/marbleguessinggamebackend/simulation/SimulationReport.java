@@ -0,0 +1,39 @@
+package com.example.marbleguessinggamebackend.simulation;
+
+import java.util.Arrays;
+
+// Plays every pair of strategies at each stake and prints win rates and how
+// long the games ran. Run with ./gradlew simulate -Pgames=N -Pstakes=5,10,20
+public class SimulationReport {
+
+  public static void main(String[] args) {
+    var games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+    var stakes = Arrays.stream((args.length > 1 ? args[1] : "5,10,20").split(",")).mapToInt(Integer::parseInt)
+        .toArray();
+    var seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+    var strategies = Strategy.values();
+    var simulator = new Simulator();
+
+    System.out.printf("%,d games per pair, seed %d%n", games, seed);
+    System.out.printf("%-6s %-9s %-9s %7s %7s %12s %10s %6s %6s %6s %11s%n", "stake", "a", "b", "a wins", "b wins",
+        "first hider", "avg rounds", "p50", "p99", "max", "games/s");
+    var start = System.nanoTime();
+    var total = 0L;
+    for (var stake : stakes)
+      for (int i = 0; i < strategies.length; i++)
+        for (int j = i; j < strategies.length; j++) {
+          var begun = System.nanoTime();
+          var stats = simulator.run(strategies[i], strategies[j], stake, games, seed);
+          var seconds = (System.nanoTime() - begun) / 1e9;
+          total += stats.games();
+          System.out.printf("%-6d %-9s %-9s %6.1f%% %6.1f%% %11.1f%% %10.2f %6d %6d %6d %,11.0f%s%n", stake,
+              strategies[i], strategies[j], 100 * stats.winRateA(), 100 * stats.winRateB(),
+              100 * stats.firstHiderWinRate(), stats.averageRounds(), stats.roundsPercentile(0.5),
+              stats.roundsPercentile(0.99), stats.maxRounds(), stats.games() / seconds,
+              stats.unfinished() > 0 ? String.format(" (%,d unfinished)", stats.unfinished()) : "");
+        }
+    var seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("%,d games in %.1f s, %,.0f games/s on %d cores%n", total, seconds, total / seconds,
+        Runtime.getRuntime().availableProcessors());
+  }
+}
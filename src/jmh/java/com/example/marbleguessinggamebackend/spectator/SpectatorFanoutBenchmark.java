@@ -0,0 +1,201 @@
+package com.example.marbleguessinggamebackend.spectator;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.example.marbleguessinggamebackend.cluster.GameForwarder;
+import com.example.marbleguessinggamebackend.cluster.GameRouter;
+import com.example.marbleguessinggamebackend.config.WireFormat;
+import com.example.marbleguessinggamebackend.config.WireFormats;
+import com.example.marbleguessinggamebackend.dto.SpectatorView;
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.model.GameStatus;
+import com.example.marbleguessinggamebackend.service.GameBroadcaster;
+import com.example.marbleguessinggamebackend.service.GameRegistry;
+import com.example.marbleguessinggamebackend.service.Transition;
+import com.example.marbleguessinggamebackend.store.HeapGameStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Time to send one state of a game to all its spectators through the simple
+// broker, as the server does, with every message encoded as the STOMP frame
+// its session would be sent. Each invocation installs a new state first.
+// - cachedFrame: the spectator frame, serialized once and sent as bytes
+// - convertAndSend: the view converted by the template on each send
+// - convertPerSpectator: a copy converted and sent to each spectator
+// - lateJoin: a spectator subscribing, sent the cached frame, and leaving
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpectatorFanoutBenchmark {
+
+  @Param({ "10000" })
+  public int spectators;
+
+  private GameRegistry registry;
+  private SimpleBrokerMessageHandler broker;
+  private SimpMessagingTemplate mt;
+  private MappingJackson2MessageConverter converter;
+  private ExecutorSubscribableChannel clientOutbound;
+  private SpectatorFrames frames;
+  private String gameId;
+  private long joins;
+
+  // Frames and bytes encoded, so the work isn't optimized away
+  private long sent;
+  private long bytes;
+
+  // What StompSubProtocolHandler does with each message to a session
+  private final StompEncoder encoder = new StompEncoder();
+
+  private void encode(Message<?> message) {
+    if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE)
+      return;
+    var accessor = StompHeaderAccessor.wrap(message);
+    accessor.updateStompCommandAsServerMessage();
+    accessor.setNativeHeader("subscription", accessor.getSubscriptionId());
+    accessor.setNativeHeader("message-id", accessor.getSessionId() + "-" + sent);
+    var frame = new TextMessage(encoder.encode(accessor.getMessageHeaders(), (byte[]) message.getPayload()));
+    sent++;
+    bytes += frame.getPayloadLength();
+  }
+
+  // A message from a session: a connect, or a subscription to the destination
+  private static Message<byte[]> control(SimpMessageType type, int session, String destination) {
+    var accessor = SimpMessageHeaderAccessor.create(type);
+    accessor.setSessionId("session-" + session);
+    accessor.setSubscriptionId("sub-0");
+    if (destination != null)
+      accessor.setDestination(destination);
+    else
+      accessor.setHeader(SimpMessageHeaderAccessor.HEART_BEAT_HEADER, new long[] { 0, 0 });
+    return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+  }
+
+  @Setup
+  public void setUp() {
+    var root = (Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
+    root.setLevel(Level.WARN);
+
+    registry = new GameRegistry(new HeapGameStore());
+    var game = new Game("0ksucoD6AOe", "alice").toBuilder()
+        .player2("bob")
+        .status(GameStatus.IN_PROGRESS)
+        .stake1(10)
+        .stake2(10)
+        .build();
+    registry.addGame(game);
+    gameId = game.getGameId();
+
+    var clientInbound = new ExecutorSubscribableChannel();
+    clientOutbound = new ExecutorSubscribableChannel();
+    clientOutbound.subscribe(this::encode);
+    var brokerChannel = new ExecutorSubscribableChannel();
+    broker = new SimpleBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel, List.of("/topic"));
+    broker.start();
+
+    var formats = new WireFormats(Jackson2ObjectMapperBuilder.json());
+    mt = new SimpMessagingTemplate(brokerChannel);
+    converter = new MappingJackson2MessageConverter();
+    converter.setObjectMapper(formats.mapper(WireFormat.JSON));
+    mt.setMessageConverter(converter);
+    var meters = new SimpleMeterRegistry();
+    var broadcaster = new GameBroadcaster(mt, formats, meters, 1024, Duration.ZERO, Set.of(WireFormat.JSON));
+    var router = new GameRouter(List.of(), 0);
+    var forwarder = new GameForwarder(router, new RestTemplateBuilder(), formats.mapper(WireFormat.JSON),
+        Duration.ofSeconds(2));
+    frames = new SpectatorFrames(registry, router, forwarder, formats, mt, clientOutbound, broadcaster, meters,
+        false, Set.of(WireFormat.JSON), Duration.ofSeconds(1));
+
+    // The broker only sends to sessions that connected
+    for (int i = 0; i < spectators; i++) {
+      broker.handleMessage(control(SimpMessageType.CONNECT, i, null));
+      var subscribe = control(SimpMessageType.SUBSCRIBE, i, SpectatorFrames.TOPIC + gameId);
+      broker.handleMessage(subscribe);
+      frames.subscribed(new SessionSubscribeEvent(this, subscribe));
+    }
+    System.out.printf("%n%,d spectators, %,d bytes per frame%n", spectators, bytes / sent);
+  }
+
+  @TearDown
+  public void tearDown() {
+    broker.stop();
+    System.out.printf("%n%,d frames encoded%n", sent);
+  }
+
+  // Install the next state, as a move would
+  private Game move() {
+    return registry.update(gameId, current -> {
+      var next = current.next().bet(current.getBet() % 10 + 1).build();
+      return new Transition(next, null);
+    }).game();
+  }
+
+  @Benchmark
+  public void cachedFrame() {
+    frames.sent(gameId, move().getVersion());
+  }
+
+  @Benchmark
+  public void convertAndSend() {
+    mt.convertAndSend(SpectatorFrames.TOPIC + gameId, SpectatorView.of(move()));
+  }
+
+  @Benchmark
+  public void convertPerSpectator() {
+    var view = SpectatorView.of(move());
+    for (int i = 0; i < spectators; i++) {
+      var accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+      accessor.setSessionId("session-" + i);
+      accessor.setSubscriptionId("sub-0");
+      accessor.setDestination(SpectatorFrames.TOPIC + gameId);
+      accessor.setLeaveMutable(true);
+      clientOutbound.send(converter.toMessage(view, accessor.getMessageHeaders()));
+    }
+  }
+
+  @Benchmark
+  public void lateJoin() {
+    var session = spectators + (int) (joins++ % 1000);
+    frames.subscribed(new SessionSubscribeEvent(this,
+        control(SimpMessageType.SUBSCRIBE, session, SpectatorFrames.TOPIC + gameId)));
+    frames.unsubscribed(new SessionUnsubscribeEvent(this,
+        control(SimpMessageType.UNSUBSCRIBE, session, SpectatorFrames.TOPIC + gameId)));
+  }
+}
@@ -0,0 +1,68 @@
+package com.example.marbleguessinggamebackend.store;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.service.GameStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Read and install costs of each store with many resident games. The slab
+// store trades a Game allocation per read for far fewer resident objects; see
+// GameStoreFootprint for the memory side.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@Threads(4)
+@State(Scope.Benchmark)
+public class GameStoreBenchmark {
+
+  @Param({ "heap", "slab" })
+  public String store;
+
+  @Param({ "1000000" })
+  public int resident;
+
+  private GameStore games;
+  private String[] ids;
+
+  @Setup
+  public void setUp() {
+    games = store.equals("slab") ? new SlabGameStore() : new HeapGameStore();
+    ids = new String[resident];
+    for (int i = 0; i < resident; i++) {
+      ids[i] = "game-" + i;
+      games.put(new Game(ids[i], "player-" + i).withPlayer2("player-" + (i + 1)));
+    }
+  }
+
+  private String randomId() {
+    return ids[ThreadLocalRandom.current().nextInt(resident)];
+  }
+
+  @Benchmark
+  public Game get() {
+    return games.get(randomId());
+  }
+
+  @Benchmark
+  public boolean getAndReplace() {
+    var current = games.get(randomId());
+    var next = current.next().stake1(current.getStake2()).stake2(current.getStake1()).build();
+    return games.replace(current, next);
+  }
+}
@@ -0,0 +1,44 @@
+package com.example.marbleguessinggamebackend.store;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.model.GameStatus;
+import com.example.marbleguessinggamebackend.service.GameStore;
+
+// Heap retained per game by each store, measured after filling it with idle
+// games. Run with ./gradlew storeFootprint -Pgames=N
+public class GameStoreFootprint {
+
+  private static long usedHeap() {
+    for (int i = 0; i < 5; i++)
+      System.gc();
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  private static void measure(String name, Supplier<GameStore> factory, int games) {
+    var before = usedHeap();
+    var store = factory.get();
+    for (int i = 0; i < games; i++) {
+      store.put(new Game(String.format("%08d-0000-0000-0000-000000000000", i), "player-" + i).toBuilder()
+          .player2("player-" + (i + 1))
+          .status(GameStatus.IN_PROGRESS)
+          .stake1(10)
+          .stake2(10)
+          .build());
+    }
+    var after = usedHeap();
+    var gcs = ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .mapToLong(gc -> gc.getCollectionCount()).sum();
+
+    System.out.printf("%-5s %,d games: %,d bytes, %d bytes per game (%d collections so far)%n",
+        name, store.size(), after - before, (after - before) / games, gcs);
+  }
+
+  public static void main(String[] args) {
+    var games = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    measure("heap", HeapGameStore::new, games);
+    measure("slab", SlabGameStore::new, games);
+  }
+}
@@ -0,0 +1,19 @@
+package com.example.marbleguessinggamebackend.cluster;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+@Configuration
+public class ClusterConfig implements WebMvcConfigurer {
+
+  private final OwnerRedirectInterceptor ownerRedirect;
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(ownerRedirect).addPathPatterns("/api/v1/**");
+  }
+}
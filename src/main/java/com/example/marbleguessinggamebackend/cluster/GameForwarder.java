@@ -0,0 +1,79 @@
+package com.example.marbleguessinggamebackend.cluster;
+
+import java.time.Duration;
+
+import com.example.marbleguessinggamebackend.dto.MoveResult;
+import com.example.marbleguessinggamebackend.dto.SpectatorView;
+import com.example.marbleguessinggamebackend.exception.GameException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Plays a STOMP move on the node that owns the game through its REST API, so a
+// client can stay connected to any node. Also reads games from their owner.
+@Slf4j
+@Component
+public class GameForwarder {
+
+  private final GameRouter router;
+  private final RestTemplate rest;
+  // Reads give up after the timeout, so a slow owner can't hold up the caller
+  private final RestTemplate reads;
+  private final ObjectMapper mapper;
+
+  public GameForwarder(GameRouter router, RestTemplateBuilder builder, ObjectMapper mapper,
+      @Value("${game.cluster.read-timeout:PT2S}") Duration readTimeout) {
+    this.router = router;
+    this.rest = builder.build();
+    this.reads = builder.setConnectTimeout(readTimeout).setReadTimeout(readTimeout).build();
+    this.mapper = mapper;
+  }
+
+  public MoveResult forward(String gameId, String move, String player, Object body) {
+    var headers = new HttpHeaders();
+    headers.set("player", player);
+    var url = router.ownerUrl(gameId) + "/api/v1/" + gameId + "/" + move;
+    try {
+      return rest.postForObject(url, new HttpEntity<>(body, headers), MoveResult.class);
+    } catch (HttpClientErrorException e) {
+      // Rethrow the owner's error so the client sees the same message
+      throw new GameException(message(e));
+    }
+  }
+
+  // The game as spectators see it on its owner now. Null if the owner doesn't
+  // have it or doesn't answer within the read timeout.
+  public SpectatorView spectate(String gameId) {
+    var url = router.ownerUrl(gameId) + "/api/v1/" + gameId;
+    try {
+      return reads.getForObject(url, SpectatorView.class);
+    } catch (HttpClientErrorException e) {
+      return null;
+    } catch (RestClientException e) {
+      log.error("Can't read game: {} from its owner: {}", gameId, e.getMessage());
+      return null;
+    }
+  }
+
+  private String message(HttpClientErrorException e) {
+    try {
+      var message = mapper.readTree(e.getResponseBodyAsString()).path("message");
+      if (message.isTextual())
+        return message.asText();
+    } catch (JsonProcessingException ignored) {
+      // Not an Error body, e.g. a missing header
+    }
+    log.error("Forwarded move failed: {}", e.getMessage());
+    return e.getResponseBodyAsString();
+  }
+}
@@ -0,0 +1,88 @@
+package com.example.marbleguessinggamebackend.cluster;
+
+import java.util.List;
+
+import com.example.marbleguessinggamebackend.service.GameIdGenerator;
+import com.example.marbleguessinggamebackend.service.TimeOrderedIdGenerator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Decides which node owns a game when several nodes run behind a load
+// balancer. Each game lives on one node, picked by rendezvous hashing of its id
+// over game.cluster.nodes, so every node agrees on the owner without talking to
+// the others and adding a node only moves the games it wins.
+//
+// A node only creates games it owns. Requests for a game owned by another node
+// are redirected or forwarded to it.
+@Component
+public class GameRouter {
+
+  private final List<String> nodes;
+  private final int self;
+  private final long[] seeds;
+  private final GameIdGenerator ids;
+
+  @Autowired
+  public GameRouter(@Value("${game.cluster.nodes:}") List<String> nodes,
+      @Value("${game.cluster.node:0}") int self, GameIdGenerator ids) {
+    this.nodes = List.copyOf(nodes);
+    this.ids = ids;
+    this.self = self;
+    if (!this.nodes.isEmpty() && (self < 0 || self >= this.nodes.size()))
+      throw new IllegalArgumentException("game.cluster.node must be an index into game.cluster.nodes");
+    seeds = new long[this.nodes.size()];
+    for (int i = 0; i < seeds.length; i++)
+      seeds[i] = mix(this.nodes.get(i).hashCode());
+  }
+
+  public GameRouter(List<String> nodes, int self) {
+    this(nodes, self, new TimeOrderedIdGenerator(self));
+  }
+
+  private static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  public boolean clustered() {
+    return nodes.size() > 1;
+  }
+
+  // Index of the node owning a game
+  public int owner(String gameId) {
+    var hash = gameId.hashCode();
+    var owner = 0;
+    var best = Long.MIN_VALUE;
+    for (int i = 0; i < seeds.length; i++) {
+      var score = mix(hash ^ seeds[i]);
+      if (score > best) {
+        best = score;
+        owner = i;
+      }
+    }
+    return owner;
+  }
+
+  public boolean owns(String gameId) {
+    return !clustered() || owner(gameId) == self;
+  }
+
+  // Base URL of the node owning a game
+  public String ownerUrl(String gameId) {
+    return nodes.get(owner(gameId));
+  }
+
+  // New id of a game this node owns
+  public String newGameId() {
+    var gameId = ids.next();
+    while (!owns(gameId))
+      gameId = ids.next();
+    return gameId;
+  }
+}
@@ -0,0 +1,39 @@
+package com.example.marbleguessinggamebackend.cluster;
+
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import lombok.RequiredArgsConstructor;
+
+// Redirects REST requests for a game to the node that owns it. A 307 keeps the
+// method and body, so clients replay the move against the owner.
+@RequiredArgsConstructor
+@Component
+public class OwnerRedirectInterceptor implements HandlerInterceptor {
+
+  private final GameRouter router;
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    @SuppressWarnings("unchecked")
+    var variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+    var gameId = variables == null ? null : variables.get("gameId");
+    if (gameId == null || router.owns(gameId))
+      return true;
+
+    var location = router.ownerUrl(gameId) + request.getRequestURI();
+    if (request.getQueryString() != null)
+      location += "?" + request.getQueryString();
+    response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+    response.setHeader(HttpHeaders.LOCATION, location);
+    return false;
+  }
+}
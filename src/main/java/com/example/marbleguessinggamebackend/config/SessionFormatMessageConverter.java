@@ -0,0 +1,38 @@
+package com.example.marbleguessinggamebackend.config;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+
+// STOMP converter for the sessions that asked for one binary format: reads
+// what they send and writes what they are sent, as application/octet-stream
+// (see WireFormat). Everything else is left to the JSON converter.
+class SessionFormatMessageConverter extends MappingJackson2MessageConverter {
+
+  private final WireFormats formats;
+  private final WireFormat format;
+
+  SessionFormatMessageConverter(WireFormats formats, WireFormat format) {
+    super(format.stompContentType());
+    this.formats = formats;
+    this.format = format;
+    setObjectMapper(formats.mapper(format));
+    setStrictContentTypeMatch(true);
+  }
+
+  private boolean ofSession(MessageHeaders headers) {
+    return headers != null && formats.of(SimpMessageHeaderAccessor.getSessionId(headers)) == format;
+  }
+
+  @Override
+  protected boolean canConvertFrom(Message<?> message, Class<?> targetClass) {
+    return ofSession(message.getHeaders()) && super.canConvertFrom(message, targetClass);
+  }
+
+  @Override
+  protected boolean canConvertTo(Object payload, MessageHeaders headers) {
+    return ofSession(headers) && (getMimeType(headers) == null || supportsMimeType(headers))
+        && getObjectMapper().canSerialize(payload.getClass());
+  }
+}
@@ -0,0 +1,58 @@
+package com.example.marbleguessinggamebackend.config;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Runs HTTP requests and STOMP messages on virtual threads instead of the
+// Tomcat and channel pools, so a move blocked waiting for its game holds no
+// platform thread. Needs a Java 21 runtime; start with -PvirtualThreads.
+@Slf4j
+@ConditionalOnProperty(name = "game.threads.virtual", havingValue = "true")
+@Configuration
+public class VirtualThreadConfig implements WebSocketMessageBrokerConfigurer {
+
+  // Virtual threads cost little while blocked, so the channel pools can be far
+  // larger than the platform defaults of two threads per core
+  @Value("${game.threads.virtual-channel-threads:4096}")
+  private int channelThreads;
+
+  public VirtualThreadConfig() {
+    if (!VirtualThreads.available())
+      throw new IllegalStateException("game.threads.virtual needs Java 21 or later, running on "
+          + Runtime.version());
+    log.info("Running requests and messages on virtual threads");
+  }
+
+  // One virtual thread per request
+  @Bean
+  public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadRequests() {
+    return handler -> handler.setExecutor(VirtualThreads.perTaskExecutor());
+  }
+
+  private ThreadPoolTaskExecutor channelExecutor(String prefix) {
+    var executor = new ThreadPoolTaskExecutor();
+    executor.setThreadFactory(VirtualThreads.factory(prefix));
+    executor.setCorePoolSize(channelThreads);
+    executor.setAllowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  @Override
+  public void configureClientInboundChannel(ChannelRegistration registration) {
+    registration.taskExecutor(channelExecutor("inbound-"));
+  }
+
+  @Override
+  public void configureClientOutboundChannel(ChannelRegistration registration) {
+    registration.taskExecutor(channelExecutor("outbound-"));
+  }
+}
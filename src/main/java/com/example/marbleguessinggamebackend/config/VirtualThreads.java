@@ -0,0 +1,48 @@
+package com.example.marbleguessinggamebackend.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// Virtual threads through reflection, so the code still builds for Java 17 and
+// only needs a Java 21 runtime when virtual threads are turned on
+public final class VirtualThreads {
+
+  private VirtualThreads() {
+  }
+
+  public static boolean available() {
+    try {
+      Thread.class.getMethod("ofVirtual");
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  // Executor starting a new virtual thread per task
+  public static ExecutorService perTaskExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      throw unavailable(e);
+    }
+  }
+
+  // Factory of virtual threads named prefix0, prefix1, ...
+  public static ThreadFactory factory(String prefix) {
+    try {
+      var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      var ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+      builder = ofVirtual.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+      return (ThreadFactory) ofVirtual.getMethod("factory").invoke(builder);
+    } catch (ReflectiveOperationException e) {
+      throw unavailable(e);
+    }
+  }
+
+  private static IllegalStateException unavailable(Exception e) {
+    return new IllegalStateException("Virtual threads need Java 21 or later, running on "
+        + Runtime.version(), e);
+  }
+}
@@ -1,23 +1,93 @@
 package com.example.marbleguessinggamebackend.config;
 
+import java.time.Duration;
+import java.util.List;
+
+import com.example.marbleguessinggamebackend.ratelimit.RemoteAddressInterceptor;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import lombok.RequiredArgsConstructor;
 
+@RequiredArgsConstructor
 @EnableWebSocketMessageBroker
 @Configuration
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+  private final WireFormats formats;
+
+  @Value("${game.websocket.send-time-limit:PT10S}")
+  private Duration sendTimeLimit;
+
+  @Value("${game.websocket.send-buffer-size:512KB}")
+  private DataSize sendBufferSize;
+
+  @Value("${game.broker.relay.enabled:false}")
+  private boolean relay;
+
+  @Value("${game.broker.relay.host:localhost}")
+  private String relayHost;
+
+  @Value("${game.broker.relay.port:61613}")
+  private int relayPort;
+
+  @Value("${game.broker.relay.login:guest}")
+  private String relayLogin;
+
+  @Value("${game.broker.relay.passcode:guest}")
+  private String relayPasscode;
+
   @Override
   public void registerStompEndpoints(StompEndpointRegistry registry) {
-    registry.addEndpoint("/game").setAllowedOrigins("*").withSockJS();
+    registry.addEndpoint("/game").addInterceptors(new RemoteAddressInterceptor()).setAllowedOrigins("*").withSockJS();
   }
 
+  // The simple broker only reaches clients connected to this node. With more
+  // than one node, broadcasts are relayed through an external STOMP broker so
+  // they reach subscribers on every node.
   @Override
   public void configureMessageBroker(MessageBrokerRegistry registry) {
-    registry.setApplicationDestinationPrefixes("/app").enableSimpleBroker("/topic");
+    registry.setApplicationDestinationPrefixes("/app");
+    // Messages to a session are sent by a pool of threads and could overtake
+    // each other, so a client would see events out of version order
+    registry.setPreservePublishOrder(true);
+    if (relay) {
+      registry.enableStompBrokerRelay("/topic", "/queue")
+          .setRelayHost(relayHost)
+          .setRelayPort(relayPort)
+          .setClientLogin(relayLogin)
+          .setClientPasscode(relayPasscode)
+          .setSystemLogin(relayLogin)
+          .setSystemPasscode(relayPasscode);
+    } else {
+      registry.enableSimpleBroker("/topic", "/queue");
+    }
+  }
+
+  // Binary formats ahead of the default converters, which handle JSON, strings
+  // and bytes
+  @Override
+  public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+    messageConverters.add(new SessionFormatMessageConverter(formats, WireFormat.SMILE));
+    messageConverters.add(new SessionFormatMessageConverter(formats, WireFormat.CBOR));
+    return true;
+  }
+
+  // A client that can't keep up buffers messages up to these limits and is then
+  // disconnected, so it never holds up the threads sending to other clients. It
+  // resyncs from a snapshot when it reconnects.
+  @Override
+  public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+    registration.setSendTimeLimit((int) sendTimeLimit.toMillis())
+        .setSendBufferSizeLimit((int) sendBufferSize.toBytes());
   }
 
 }
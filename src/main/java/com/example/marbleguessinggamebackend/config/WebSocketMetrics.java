@@ -0,0 +1,68 @@
+package com.example.marbleguessinggamebackend.config;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.AbstractSubProtocolEvent;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Gauges of connected STOMP sessions and their subscriptions, kept from the
+// session events. A disconnect drops whatever the session still subscribed to.
+@Component
+public class WebSocketMetrics {
+
+  // Subscriptions per session
+  private final ConcurrentHashMap<String, AtomicInteger> sessions = new ConcurrentHashMap<>();
+  private final AtomicLong subscriptions = new AtomicLong();
+
+  public WebSocketMetrics(MeterRegistry meters) {
+    Gauge.builder("websocket.sessions", sessions, ConcurrentHashMap::size)
+        .description("Connected STOMP sessions")
+        .register(meters);
+    Gauge.builder("websocket.subscriptions", subscriptions, AtomicLong::get)
+        .description("Subscriptions of connected STOMP sessions")
+        .register(meters);
+  }
+
+  private static String sessionId(AbstractSubProtocolEvent event) {
+    return SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+  }
+
+  @EventListener
+  public void connected(SessionConnectedEvent event) {
+    sessions.putIfAbsent(sessionId(event), new AtomicInteger());
+  }
+
+  @EventListener
+  public void disconnected(SessionDisconnectEvent event) {
+    var subscribed = sessions.remove(event.getSessionId());
+    if (subscribed != null)
+      subscriptions.addAndGet(-subscribed.get());
+  }
+
+  @EventListener
+  public void subscribed(SessionSubscribeEvent event) {
+    var subscribed = sessions.get(sessionId(event));
+    if (subscribed != null) {
+      subscribed.incrementAndGet();
+      subscriptions.incrementAndGet();
+    }
+  }
+
+  @EventListener
+  public void unsubscribed(SessionUnsubscribeEvent event) {
+    var subscribed = sessions.get(sessionId(event));
+    if (subscribed != null && subscribed.getAndUpdate(n -> Math.max(n - 1, 0)) > 0)
+      subscriptions.decrementAndGet();
+  }
+}
@@ -0,0 +1,62 @@
+package com.example.marbleguessinggamebackend.config;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+// Encodings of REST responses and STOMP payloads. Smile and CBOR carry the same
+// fields as JSON in fewer bytes and are cheaper to parse. Broadcasts in a
+// binary format go to the game topic with the format's suffix, e.g.
+// /topic/gamestate/{gameId}/smile.
+//
+// Spring only sends STOMP bodies in binary WebSocket frames when they are
+// application/octet-stream, and never over SockJS; any other body goes in a
+// UTF-8 text frame that mangles the bytes. So STOMP bodies in a binary format
+// are labelled application/octet-stream and need a plain WebSocket connection.
+public enum WireFormat {
+
+  JSON(MediaType.APPLICATION_JSON, ""),
+  SMILE(new MediaType("application", "x-jackson-smile"), "/smile"),
+  CBOR(MediaType.APPLICATION_CBOR, "/cbor");
+
+  private static final WireFormat[] VALUES = values();
+
+  private final MediaType mediaType;
+  private final String topicSuffix;
+
+  WireFormat(MediaType mediaType, String topicSuffix) {
+    this.mediaType = mediaType;
+    this.topicSuffix = topicSuffix;
+  }
+
+  public MediaType mediaType() {
+    return mediaType;
+  }
+
+  public MimeType stompContentType() {
+    return this == JSON ? mediaType : MimeTypeUtils.APPLICATION_OCTET_STREAM;
+  }
+
+  public String topicSuffix() {
+    return topicSuffix;
+  }
+
+  // Format a client prefers from an Accept header, JSON if it accepts none of
+  // them or sent no header
+  public static WireFormat negotiate(String accept) {
+    if (accept == null || accept.isBlank())
+      return JSON;
+    try {
+      var accepted = MediaType.parseMediaTypes(accept);
+      MediaType.sortBySpecificityAndQuality(accepted);
+      for (var type : accepted)
+        for (var format : VALUES)
+          if (type.includes(format.mediaType))
+            return format;
+    } catch (InvalidMediaTypeException ignored) {
+      // Answer as if the header was missing
+    }
+    return JSON;
+  }
+}
@@ -0,0 +1,22 @@
+package com.example.marbleguessinggamebackend.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+// REST responses in the format of the Accept header, and request bodies in the
+// format of their Content-Type. JSON stays the default.
+@Configuration
+public class WireFormatConfig {
+
+  @Bean
+  public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(WireFormats formats) {
+    return new MappingJackson2SmileHttpMessageConverter(formats.mapper(WireFormat.SMILE));
+  }
+
+  @Bean
+  public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(WireFormats formats) {
+    return new MappingJackson2CborHttpMessageConverter(formats.mapper(WireFormat.CBOR));
+  }
+}
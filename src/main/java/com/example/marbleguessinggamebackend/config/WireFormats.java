@@ -0,0 +1,54 @@
+package com.example.marbleguessinggamebackend.config;
+
+import java.util.EnumMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+// A mapper per wire format, all configured like Spring Boot's JSON mapper, and
+// the format each STOMP session asked for. A session picks its format with an
+// accept header on its CONNECT frame; replies to it are sent in that format.
+@Component
+public class WireFormats {
+
+  private final EnumMap<WireFormat, ObjectMapper> mappers = new EnumMap<>(WireFormat.class);
+  // Sessions that asked for a binary format
+  private final ConcurrentHashMap<String, WireFormat> sessions = new ConcurrentHashMap<>();
+
+  public WireFormats(Jackson2ObjectMapperBuilder builder) {
+    mappers.put(WireFormat.JSON, builder.build());
+    mappers.put(WireFormat.SMILE, builder.factory(new SmileFactory()).build());
+    mappers.put(WireFormat.CBOR, builder.factory(new CBORFactory()).build());
+  }
+
+  public ObjectMapper mapper(WireFormat format) {
+    return mappers.get(format);
+  }
+
+  public WireFormat of(String sessionId) {
+    return sessionId == null ? WireFormat.JSON : sessions.getOrDefault(sessionId, WireFormat.JSON);
+  }
+
+  @EventListener
+  public void connect(SessionConnectEvent event) {
+    var headers = StompHeaderAccessor.wrap(event.getMessage());
+    var format = WireFormat.negotiate(headers.getFirstNativeHeader(HttpHeaders.ACCEPT.toLowerCase()));
+    if (format != WireFormat.JSON)
+      sessions.put(headers.getSessionId(), format);
+  }
+
+  @EventListener
+  public void disconnected(SessionDisconnectEvent event) {
+    sessions.remove(event.getSessionId());
+  }
+}
@@ -1,24 +1,43 @@
 package com.example.marbleguessinggamebackend.controller;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
 import javax.servlet.http.HttpServletRequest;
 
+import com.example.marbleguessinggamebackend.config.WireFormat;
+import com.example.marbleguessinggamebackend.config.WireFormats;
 import com.example.marbleguessinggamebackend.dto.Guess;
 import com.example.marbleguessinggamebackend.dto.MarbleCount;
+import com.example.marbleguessinggamebackend.dto.MoveResult;
 import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.model.GameStatus;
 import com.example.marbleguessinggamebackend.service.GameRegistry;
 import com.example.marbleguessinggamebackend.service.GameService;
+import com.example.marbleguessinggamebackend.service.Matchmaker;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -30,21 +49,76 @@ import lombok.RequiredArgsConstructor;
 @RestController
 public class GameAPI {
 
+  private static final int MAX_PAGE_SIZE = 500;
+  private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+  // Time the reply of a player paired just as the match timed out may take,
+  // while their game starts
+  private static final long MATCH_REPLY_GRACE_MILLIS = 5000;
+
   private final GameService gs;
   private final GameRegistry gr;
+  private final WireFormats formats;
+  private final Matchmaker matchmaker;
 
-  // Get all games endpoint
-  @Operation(summary = "Get all games")
+  @Value("${game.matchmaking.timeout:PT30S}")
+  private Duration matchTimeout;
+
+  // Get games endpoint
+  @Operation(summary = "Get games, a page at a time")
   @ApiResponses(value = {
-      @ApiResponse(responseCode = "200", description = "Fetched all games", content = {
-          @Content(mediaType = "application/json", schema = @Schema(implementation = Game.class)) })
+      @ApiResponse(responseCode = "200", description = "Fetched a page of games. The X-Next-Cursor header holds the cursor of the next page if there may be more games", content = {
+          @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = Game.class))) })
   })
+  @Parameter(in = ParameterIn.QUERY, name = "status", description = "Only games with this status, e.g. NEW for games waiting for a second player")
+  @Parameter(in = ParameterIn.QUERY, name = "after", description = "Cursor from the X-Next-Cursor header of the previous page")
+  @Parameter(in = ParameterIn.QUERY, name = "limit", description = "Max games in the page, up to " + MAX_PAGE_SIZE)
   @GetMapping()
-  public ResponseEntity<Object[]> getAllGames() {
-    // Get all games from the game registry
-    var games = gr.getGames();
+  public ResponseEntity<StreamingResponseBody> getAllGames(@RequestParam(required = false) GameStatus status,
+      @RequestParam(required = false) String after, @RequestParam(defaultValue = "100") int limit,
+      @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+    // Get a page of games from the game registry
+    var size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    var page = gr.page(status, after, size);
+    // The body is written here rather than by a message converter, so the
+    // format is picked here too
+    var format = WireFormat.negotiate(accept);
+    var response = ResponseEntity.ok().contentType(format.mediaType());
+    // A full page means there may be more games after it
+    if (page.size() == size)
+      response.header(NEXT_CURSOR_HEADER, page.get(page.size() - 1).getGameId());
 
-    return ResponseEntity.ok(games.values().toArray());
+    // Write games one by one instead of building the whole array in memory
+    return response.body(out -> {
+      try (var generator = formats.mapper(format).createGenerator(out)) {
+        generator.writeStartArray();
+        for (var game : page)
+          generator.writeObject(game.withoutSecrets());
+        generator.writeEndArray();
+      }
+    });
+  }
+
+  // Get player games endpoint
+  @Operation(summary = "Get the games a player is in")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Fetched player games", content = {
+          @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = Game.class))) })
+  })
+  @GetMapping("/players/{player}")
+  public ResponseEntity<List<Game>> getPlayerGames(@PathVariable String player) {
+    return ResponseEntity.ok(gs.playerGames(player));
+  }
+
+  // Get game endpoint
+  @Operation(summary = "Get the current state of a game")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Fetched game. The hidden marbles are only shown to the player who hid them", content = {
+          @Content(mediaType = "application/json", schema = @Schema(implementation = Game.class)) })
+  })
+  @Parameter(in = ParameterIn.HEADER, name = "player", description = "Player name header")
+  @GetMapping("/{gameId}")
+  public ResponseEntity<Game> getGame(HttpServletRequest request, @PathVariable String gameId) {
+    return ResponseEntity.ok(gs.snapshot(gameId, request.getHeader("player")));
   }
 
   // Create game endpoint
@@ -88,15 +162,55 @@ public class GameAPI {
     return ResponseEntity.ok(response);
   }
 
+  // Matchmaking endpoint
+  @Operation(summary = "Wait to be paired with another player in a new game")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Paired with another player. The game is in progress and the player who waited longer hides first", content = {
+          @Content(mediaType = "application/json", schema = @Schema(implementation = Game.class)) }),
+      @ApiResponse(responseCode = "204", description = "No other player asked for a match in time. Ask again", content = @Content),
+      @ApiResponse(responseCode = "400", description = "Player header is missing or the game can't be started", content = {
+          @Content(mediaType = "text/plain") })
+  })
+  @Parameter(in = ParameterIn.HEADER, required = true, name = "player", description = "Player name header")
+  @PostMapping("/matchmake")
+  public DeferredResult<ResponseEntity<Object>> matchmake(HttpServletRequest request) {
+    var player = request.getHeader("player");
+    var result = new DeferredResult<ResponseEntity<Object>>(matchTimeout.toMillis() + MATCH_REPLY_GRACE_MILLIS,
+        ResponseEntity.noContent().build());
+    if (player == null || player.isBlank()) {
+      result.setResult(ResponseEntity.badRequest().body("player header is missing."));
+      return result;
+    }
+    // The request thread is released while the player waits
+    var match = matchmaker.matchmake(player, null);
+    match.whenComplete((game, e) -> {
+      if (e == null)
+        result.setResult(ResponseEntity.ok(game));
+      else if (e instanceof CancellationException)
+        result.setResult(ResponseEntity.noContent().build());
+      else
+        result.setErrorResult(e instanceof CompletionException ? e.getCause() : e);
+    });
+    if (match.isDone())
+      return result;
+    // Only this match is cancelled, not a later request of the player. A
+    // player paired just as the time ran out is replied the game once it has
+    // started; the request itself only times out if that takes the grace too.
+    CompletableFuture.delayedExecutor(matchTimeout.toMillis(), TimeUnit.MILLISECONDS)
+        .execute(() -> matchmaker.cancel(match));
+    result.onTimeout(() -> matchmaker.cancel(match));
+    return result;
+  }
+
   // Hide marbles endpoint
   @Operation(summary = "Hide marbles")
   @ApiResponses(value = {
       @ApiResponse(responseCode = "200", description = "Hid marbles", content = {
-          @Content(mediaType = "text/plain") })
+          @Content(mediaType = "application/json", schema = @Schema(implementation = MoveResult.class)) })
   })
   @Parameter(in = ParameterIn.HEADER, required = true, name = "player", description = "Player name header")
   @PostMapping("/{gameId}/hide")
-  public ResponseEntity<String> hide(HttpServletRequest request, @PathVariable String gameId,
+  public ResponseEntity<Object> hide(HttpServletRequest request, @PathVariable String gameId,
       @RequestBody MarbleCount mc) {
     var player = request.getHeader("player");
     if (player == null || player.isBlank())
@@ -112,11 +226,11 @@ public class GameAPI {
   @Operation(summary = "Bet marbles")
   @ApiResponses(value = {
       @ApiResponse(responseCode = "200", description = "Bet marbles", content = {
-          @Content(mediaType = "text/plain") })
+          @Content(mediaType = "application/json", schema = @Schema(implementation = MoveResult.class)) })
   })
   @Parameter(in = ParameterIn.HEADER, required = true, name = "player", description = "Player name header")
   @PostMapping("/{gameId}/bet")
-  public ResponseEntity<String> bet(HttpServletRequest request, @PathVariable String gameId,
+  public ResponseEntity<Object> bet(HttpServletRequest request, @PathVariable String gameId,
       @RequestBody MarbleCount mc) {
     var player = request.getHeader("player");
     if (player == null || player.isBlank())
@@ -132,11 +246,11 @@ public class GameAPI {
   @Operation(summary = "Guess marbles")
   @ApiResponses(value = {
       @ApiResponse(responseCode = "200", description = "Guessed marbles", content = {
-          @Content(mediaType = "text/plain") })
+          @Content(mediaType = "application/json", schema = @Schema(implementation = MoveResult.class)) })
   })
   @Parameter(in = ParameterIn.HEADER, required = true, name = "player", description = "Player name header")
   @PostMapping("/{gameId}/guess")
-  public ResponseEntity<String> guess(HttpServletRequest request, @PathVariable String gameId, @RequestBody Guess g) {
+  public ResponseEntity<Object> guess(HttpServletRequest request, @PathVariable String gameId, @RequestBody Guess g) {
     var player = request.getHeader("player");
     if (player == null || player.isBlank())
       return ResponseEntity.badRequest().body("player header is missing.");
@@ -151,11 +265,11 @@ public class GameAPI {
   @Operation(summary = "Restart game")
   @ApiResponses(value = {
       @ApiResponse(responseCode = "200", description = "Restarted game", content = {
-          @Content(mediaType = "text/plain") })
+          @Content(mediaType = "application/json", schema = @Schema(implementation = MoveResult.class)) })
   })
   @Parameter(in = ParameterIn.HEADER, required = true, name = "player", description = "Player name header")
   @PostMapping("/{gameId}/restart")
-  public ResponseEntity<String> restart(HttpServletRequest request, @PathVariable String gameId) {
+  public ResponseEntity<Object> restart(HttpServletRequest request, @PathVariable String gameId) {
     var player = request.getHeader("player");
     if (player == null || player.isBlank())
       return ResponseEntity.badRequest().body("player header is missing.");
@@ -168,11 +282,11 @@ public class GameAPI {
   @Operation(summary = "Quit game")
   @ApiResponses(value = {
       @ApiResponse(responseCode = "200", description = "Quit game", content = {
-          @Content(mediaType = "text/plain") })
+          @Content(mediaType = "application/json", schema = @Schema(implementation = MoveResult.class)) })
   })
   @Parameter(in = ParameterIn.HEADER, required = true, name = "player", description = "Player name header")
   @PostMapping("/{gameId}/quit")
-  public ResponseEntity<String> quit(HttpServletRequest request, @PathVariable String gameId) {
+  public ResponseEntity<Object> quit(HttpServletRequest request, @PathVariable String gameId) {
     var player = request.getHeader("player");
     if (player == null || player.isBlank())
       return ResponseEntity.badRequest().body("player header is missing.");
@@ -0,0 +1,134 @@
+package com.example.marbleguessinggamebackend.controller;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.example.marbleguessinggamebackend.cluster.GameForwarder;
+import com.example.marbleguessinggamebackend.cluster.GameRouter;
+import com.example.marbleguessinggamebackend.dto.Guess;
+import com.example.marbleguessinggamebackend.dto.MarbleCount;
+import com.example.marbleguessinggamebackend.dto.MoveResult;
+import com.example.marbleguessinggamebackend.exception.Error;
+import com.example.marbleguessinggamebackend.exception.GameException;
+import com.example.marbleguessinggamebackend.service.GameService;
+import com.example.marbleguessinggamebackend.service.Matchmaker;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.stereotype.Controller;
+
+import lombok.RequiredArgsConstructor;
+
+// Moves sent over the STOMP connection clients already hold for game updates,
+// e.g. SEND /app/{gameId}/hide with a player header and {"count": 3}. The reply
+// goes to the sender's /user/queue/results, errors to /user/queue/errors.
+// Moves on games owned by another node are forwarded to it.
+// SEND /app/matchmake asks to be paired with another player; the game goes to
+// /user/queue/matches of both players once they are. A player who isn't paired
+// within game.matchmaking.timeout, as for REST, gets a REQUEST_TIMEOUT error.
+// Replies are JSON unless the session asked for Smile or CBOR with an accept
+// header on its CONNECT frame, see WireFormats.
+@RequiredArgsConstructor
+@Controller
+public class GameMessages {
+
+  private static final String RESULTS = "/queue/results";
+  private static final String MATCHES = "/queue/matches";
+  private static final String ERRORS = "/queue/errors";
+
+  private final GameService gs;
+  private final GameRouter router;
+  private final GameForwarder forwarder;
+  private final Matchmaker matchmaker;
+  private final SimpMessagingTemplate mt;
+
+  @Value("${game.matchmaking.timeout:PT30S}")
+  private Duration matchTimeout;
+
+  private static String player(String player) {
+    if (player == null || player.isBlank())
+      throw new GameException("player header is missing.");
+    return player;
+  }
+
+  private MoveResult play(String gameId, String move, String player, Object body, Supplier<MoveResult> local) {
+    return router.owns(gameId) ? local.get() : forwarder.forward(gameId, move, player, body);
+  }
+
+  @MessageMapping("/{gameId}/hide")
+  @SendToUser(destinations = RESULTS, broadcast = false)
+  public MoveResult hide(@DestinationVariable String gameId, @Header(name = "player", required = false) String player,
+      @Payload MarbleCount mc) {
+    return play(gameId, "hide", player(player), mc, () -> gs.hide(mc.getCount(), gameId, player));
+  }
+
+  @MessageMapping("/{gameId}/bet")
+  @SendToUser(destinations = RESULTS, broadcast = false)
+  public MoveResult bet(@DestinationVariable String gameId, @Header(name = "player", required = false) String player,
+      @Payload MarbleCount mc) {
+    return play(gameId, "bet", player(player), mc, () -> gs.bet(mc.getCount(), gameId, player));
+  }
+
+  @MessageMapping("/{gameId}/guess")
+  @SendToUser(destinations = RESULTS, broadcast = false)
+  public MoveResult guess(@DestinationVariable String gameId, @Header(name = "player", required = false) String player,
+      @Payload Guess g) {
+    return play(gameId, "guess", player(player), g, () -> gs.guess(gameId, player, g.getGuess()));
+  }
+
+  @MessageMapping("/{gameId}/restart")
+  @SendToUser(destinations = RESULTS, broadcast = false)
+  public MoveResult restart(@DestinationVariable String gameId,
+      @Header(name = "player", required = false) String player) {
+    return play(gameId, "restart", player(player), null, () -> gs.restartGame(gameId, player));
+  }
+
+  @MessageMapping("/{gameId}/quit")
+  @SendToUser(destinations = RESULTS, broadcast = false)
+  public MoveResult quit(@DestinationVariable String gameId, @Header(name = "player", required = false) String player) {
+    return play(gameId, "quit", player(player), null, () -> gs.quitGame(gameId, player));
+  }
+
+  // The game is sent once the player is paired, possibly on the thread of the
+  // player they are paired with, so it goes to the session directly
+  @MessageMapping("/matchmake")
+  public void matchmake(@Header(name = "player", required = false) String player,
+      SimpMessageHeaderAccessor headers) {
+    var sessionId = headers.getSessionId();
+    var match = matchmaker.matchmake(player(player), sessionId);
+    match.whenComplete((game, e) -> {
+      if (e == null)
+        toSession(sessionId, MATCHES, game);
+      else if (!(e instanceof CancellationException))
+        toSession(sessionId, ERRORS, new Error(HttpStatus.BAD_REQUEST,
+            (e instanceof CompletionException ? e.getCause() : e).getMessage()));
+    });
+    if (match.isDone())
+      return;
+    // A session that stays open would otherwise hold the waiting slot. A
+    // player paired just as the time ran out is sent the game instead.
+    CompletableFuture.delayedExecutor(matchTimeout.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+      if (matchmaker.cancel(match))
+        toSession(sessionId, ERRORS, new Error(HttpStatus.REQUEST_TIMEOUT, "No player to match with. Ask again."));
+    });
+  }
+
+  private void toSession(String sessionId, String destination, Object payload) {
+    var headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+    headers.setSessionId(sessionId);
+    headers.setLeaveMutable(true);
+    mt.convertAndSendToUser(sessionId, destination, payload, headers.getMessageHeaders());
+  }
+}
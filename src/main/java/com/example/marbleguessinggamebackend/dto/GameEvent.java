@@ -0,0 +1,91 @@
+package com.example.marbleguessinggamebackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Data;
+
+// Change broadcast on /topic/gamestate/{gameId} after each move. Only the fields
+// of the event type are sent, and the hidden count is only revealed once the
+// guess is resolved. The version matches the game version, so a client that
+// sees a gap can fetch a snapshot from GET /api/v1/{gameId}.
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GameEvent {
+
+  public enum Type {
+    JOINED,
+    HIDDEN,
+    BET_PLACED,
+    GUESS_RESOLVED,
+    GAME_WON,
+    RESTARTED,
+    QUIT,
+    // The game was evicted and is gone
+    ENDED,
+  }
+
+  private final Type type;
+  private long version;
+  // Player who made the move
+  private String player;
+  // Marbles bet, or marbles hidden once the guess is resolved
+  private Integer bet;
+  private Integer hidden;
+  private String guess;
+  private Boolean correct;
+  // Change in player 1's stake; player 2's stake changes by the opposite
+  private Integer delta;
+  private String winner;
+
+  private GameEvent(Type type, String player) {
+    this.type = type;
+    this.player = player;
+  }
+
+  public static GameEvent joined(String player) {
+    return new GameEvent(Type.JOINED, player);
+  }
+
+  public static GameEvent hidden(String player) {
+    return new GameEvent(Type.HIDDEN, player);
+  }
+
+  public static GameEvent betPlaced(String player, int bet) {
+    var event = new GameEvent(Type.BET_PLACED, player);
+    event.bet = bet;
+    return event;
+  }
+
+  public static GameEvent guessResolved(String player, String guess, boolean correct, int hidden, int delta) {
+    return resolved(Type.GUESS_RESOLVED, player, guess, correct, hidden, delta);
+  }
+
+  public static GameEvent gameWon(String player, String guess, boolean correct, int hidden, int delta,
+      String winner) {
+    var event = resolved(Type.GAME_WON, player, guess, correct, hidden, delta);
+    event.winner = winner;
+    return event;
+  }
+
+  private static GameEvent resolved(Type type, String player, String guess, boolean correct, int hidden,
+      int delta) {
+    var event = new GameEvent(type, player);
+    event.guess = guess;
+    event.correct = correct;
+    event.hidden = hidden;
+    event.delta = delta;
+    return event;
+  }
+
+  public static GameEvent restarted(String player) {
+    return new GameEvent(Type.RESTARTED, player);
+  }
+
+  public static GameEvent quit(String player) {
+    return new GameEvent(Type.QUIT, player);
+  }
+
+  public static GameEvent ended() {
+    return new GameEvent(Type.ENDED, null);
+  }
+}
@@ -0,0 +1,56 @@
+package com.example.marbleguessinggamebackend.dto;
+
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.model.GameStatus;
+import com.example.marbleguessinggamebackend.model.Move;
+import com.example.marbleguessinggamebackend.model.Turn;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Reply to the player who made a move: what the move did, as in its broadcast
+// event, and the state of the game after it. The hider also gets the marbles
+// they hid, which others only see once the guess is resolved.
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MoveResult {
+
+  private String gameId;
+  private long version;
+  private GameEvent.Type type;
+  private String player;
+  private Integer hidden;
+  private Integer bet;
+  private String guess;
+  private Boolean correct;
+  private Integer delta;
+  private String winner;
+  // State after the move
+  private GameStatus status;
+  private int stake1;
+  private int stake2;
+  private Turn turn;
+  private Move move;
+
+  public static MoveResult of(Game game, GameEvent event) {
+    var result = new MoveResult();
+    result.gameId = game.getGameId();
+    result.version = game.getVersion();
+    result.type = event.getType();
+    result.player = event.getPlayer();
+    result.hidden = event.getHidden();
+    result.bet = event.getBet();
+    result.guess = event.getGuess();
+    result.correct = event.getCorrect();
+    result.delta = event.getDelta();
+    result.winner = event.getWinner();
+    result.status = game.getStatus();
+    result.stake1 = game.getStake1();
+    result.stake2 = game.getStake2();
+    result.turn = game.getTurn();
+    result.move = game.getMove();
+    return result;
+  }
+}
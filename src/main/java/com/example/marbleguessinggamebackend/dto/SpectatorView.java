@@ -0,0 +1,70 @@
+package com.example.marbleguessinggamebackend.dto;
+
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.model.GameStatus;
+import com.example.marbleguessinggamebackend.model.Move;
+import com.example.marbleguessinggamebackend.model.Turn;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A game as spectators see it. There is no field for the hidden marbles, so
+// they can't leak whatever state the view is built from.
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SpectatorView {
+
+  private String gameId;
+  private long version;
+  private GameStatus status;
+  private String player1;
+  private String player2;
+  private int stake1;
+  private int stake2;
+  private Turn turn;
+  private Move move;
+  private int bet;
+  private String winner;
+
+  public static SpectatorView of(Game game) {
+    var view = new SpectatorView();
+    view.gameId = game.getGameId();
+    view.version = game.getVersion();
+    view.status = game.getStatus();
+    view.player1 = game.getPlayer1();
+    view.player2 = game.getPlayer2();
+    view.stake1 = game.getStake1();
+    view.stake2 = game.getStake2();
+    view.turn = game.getTurn();
+    view.move = game.getMove();
+    view.bet = game.getBet();
+    view.winner = game.getWinner();
+    return view;
+  }
+
+  // The last view of a game that was evicted, so it is over
+  public SpectatorView ended() {
+    var view = new SpectatorView();
+    view.gameId = gameId;
+    view.version = version + 1;
+    view.status = GameStatus.ENDED;
+    view.player1 = player1;
+    view.player2 = player2;
+    view.stake1 = stake1;
+    view.stake2 = stake2;
+    view.winner = winner;
+    return view;
+  }
+
+  // A game that is over, when no earlier view of it is at hand. Spectators
+  // keep the players and stakes from the views they were sent.
+  public static SpectatorView ended(String gameId, long version) {
+    var view = new SpectatorView();
+    view.gameId = gameId;
+    view.version = version;
+    view.status = GameStatus.ENDED;
+    return view;
+  }
+}
@@ -2,6 +2,8 @@ package com.example.marbleguessinggamebackend.exception;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -19,4 +21,12 @@ public class ExceptionController {
 
     return ResponseEntity.badRequest().body(error);
   }
+
+  // Called whenever GameException is thrown by a STOMP move, the error goes to
+  // the sender only
+  @MessageExceptionHandler(GameException.class)
+  @SendToUser(destinations = "/queue/errors", broadcast = false)
+  public Error messageException(GameException e) {
+    return new Error(HttpStatus.BAD_REQUEST, e.getMessage());
+  }
 }
@@ -4,4 +4,9 @@ public class GameException extends RuntimeException{
   public GameException(String message) {
     super(message);
   }
+
+  // Without a stack trace, for exceptions built once and thrown many times
+  public GameException(String message, boolean stackTrace) {
+    super(message, null, false, stackTrace);
+  }
 }
@@ -0,0 +1,182 @@
+package com.example.marbleguessinggamebackend.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.model.GameStatus;
+import com.example.marbleguessinggamebackend.model.Move;
+import com.example.marbleguessinggamebackend.model.Turn;
+
+// Binary layout of journal records. Each record is framed as
+//
+//   int length | int crc32 of body | body
+//
+// and a zero length marks the end of a file. The body starts with a type byte,
+// the game version and the game id. A STATE body then holds the game packed
+// into single bytes, since stakes never exceed 20 marbles, plus the players.
+final class JournalCodec {
+
+  static final int HEADER = 8;
+
+  static final byte STATE = 1;
+  static final byte REMOVE = 2;
+
+  private static final byte NO_WINNER = 0;
+  private static final byte WINNER_1 = 1;
+  private static final byte WINNER_2 = 2;
+
+  private static final GameStatus[] STATUSES = GameStatus.values();
+  private static final Turn[] TURNS = Turn.values();
+  private static final Move[] MOVES = Move.values();
+
+  // Encode buffers are reused per thread to keep allocation off the move path
+  private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(256));
+  private static final ThreadLocal<CRC32> CRC = ThreadLocal.withInitial(CRC32::new);
+
+  private JournalCodec() {
+  }
+
+  // Record of a game state, flipped and ready to be written. Only valid until
+  // the next encode on the same thread.
+  static ByteBuffer state(Game game) {
+    var gameId = bytes(game.getGameId());
+    var player1 = bytes(game.getPlayer1());
+    var player2 = bytes(game.getPlayer2());
+    var body = buffer(1 + 8 + size(gameId) + 8 + 8 + size(player1) + size(player2));
+
+    body.put(STATE);
+    body.putLong(game.getVersion());
+    put(body, gameId);
+    body.putLong(game.getUpdatedAt());
+    body.put((byte) game.getStatus().ordinal());
+    body.put((byte) game.getTurn().ordinal());
+    body.put((byte) game.getMove().ordinal());
+    body.put(winner(game));
+    body.put((byte) game.getStake1());
+    body.put((byte) game.getStake2());
+    body.put((byte) game.getHidden());
+    body.put((byte) game.getBet());
+    put(body, player1);
+    put(body, player2);
+    return frame(body);
+  }
+
+  // Record of a removed game, flipped and ready to be written
+  static ByteBuffer remove(Game game) {
+    var gameId = bytes(game.getGameId());
+    var body = buffer(1 + 8 + size(gameId));
+
+    body.put(REMOVE);
+    body.putLong(game.getVersion());
+    put(body, gameId);
+    return frame(body);
+  }
+
+  static byte type(ByteBuffer body) {
+    return body.get(body.position());
+  }
+
+  // Decode the body of a record. For REMOVE records only the game id and
+  // version are set.
+  static Game decode(ByteBuffer body) {
+    var type = body.get();
+    var version = body.getLong();
+    var gameId = string(body);
+    if (type == REMOVE) {
+      return Game.builder().gameId(gameId).version(version).build();
+    }
+
+    var updatedAt = body.getLong();
+    var status = STATUSES[body.get()];
+    var turn = TURNS[body.get()];
+    var move = MOVES[body.get()];
+    var winner = body.get();
+    var stake1 = body.get();
+    var stake2 = body.get();
+    var hidden = body.get();
+    var bet = body.get();
+    var player1 = string(body);
+    var player2 = string(body);
+    return Game.builder()
+        .gameId(gameId)
+        .player1(player1)
+        .player2(player2)
+        .version(version)
+        .updatedAt(updatedAt)
+        .status(status)
+        .turn(turn)
+        .move(move)
+        .stake1(stake1)
+        .stake2(stake2)
+        .hidden(hidden)
+        .bet(bet)
+        .winner(winner == WINNER_1 ? player1 : winner == WINNER_2 ? player2 : null)
+        .build();
+  }
+
+  // Check a body against the crc from its header
+  static boolean valid(ByteBuffer body, int crc) {
+    var checksum = CRC.get();
+    checksum.reset();
+    checksum.update(body.duplicate());
+    return (int) checksum.getValue() == crc;
+  }
+
+  private static byte winner(Game game) {
+    if (game.getWinner() == null)
+      return NO_WINNER;
+    return game.getWinner().equals(game.getPlayer1()) ? WINNER_1 : WINNER_2;
+  }
+
+  // Buffer with room for the header and a body of the given size, positioned
+  // at the start of the body
+  private static ByteBuffer buffer(int size) {
+    var buffer = BUFFER.get();
+    if (buffer.capacity() < HEADER + size) {
+      buffer = ByteBuffer.allocate(HEADER + size);
+      BUFFER.set(buffer);
+    }
+    buffer.clear();
+    buffer.position(HEADER);
+    return buffer;
+  }
+
+  private static ByteBuffer frame(ByteBuffer buffer) {
+    var length = buffer.position() - HEADER;
+    var checksum = CRC.get();
+    checksum.reset();
+    checksum.update(buffer.array(), HEADER, length);
+    buffer.putInt(0, length);
+    buffer.putInt(4, (int) checksum.getValue());
+    return buffer.flip();
+  }
+
+  private static byte[] bytes(String value) {
+    return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static int size(byte[] value) {
+    return 2 + (value == null ? 0 : value.length);
+  }
+
+  // Strings are a short length, -1 for null, and UTF-8 bytes
+  private static void put(ByteBuffer buffer, byte[] value) {
+    if (value == null) {
+      buffer.putShort((short) -1);
+    } else {
+      buffer.putShort((short) value.length);
+      buffer.put(value);
+    }
+  }
+
+  private static String string(ByteBuffer buffer) {
+    var length = buffer.getShort();
+    if (length < 0)
+      return null;
+    var value = new byte[length];
+    buffer.get(value);
+    return new String(value, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,95 @@
+package com.example.marbleguessinggamebackend.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Naming and reading of journal files
+@Slf4j
+final class JournalFiles {
+
+  private static final String SEGMENT = "segment-";
+  private static final String SNAPSHOT = "snapshot-";
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final String SNAPSHOT_SUFFIX = ".snap";
+
+  private JournalFiles() {
+  }
+
+  static Path segment(Path dir, long seq) {
+    return dir.resolve(String.format("%s%016d%s", SEGMENT, seq, SEGMENT_SUFFIX));
+  }
+
+  static Path snapshot(Path dir, long seq) {
+    return dir.resolve(String.format("%s%016d%s", SNAPSHOT, seq, SNAPSHOT_SUFFIX));
+  }
+
+  // Sequence numbers of the files with the given prefix and suffix, in order
+  private static List<Long> seqs(Path dir, String prefix, String suffix) throws IOException {
+    if (!Files.isDirectory(dir))
+      return List.of();
+    try (var files = Files.list(dir)) {
+      return files.map(file -> file.getFileName().toString())
+          .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+          .map(name -> Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  static List<Long> segments(Path dir) throws IOException {
+    return seqs(dir, SEGMENT, SEGMENT_SUFFIX);
+  }
+
+  // Seq of the latest snapshot, or -1 if there is none
+  static long lastSnapshot(Path dir) throws IOException {
+    var snapshots = seqs(dir, SNAPSHOT, SNAPSHOT_SUFFIX);
+    return snapshots.isEmpty() ? -1 : snapshots.get(snapshots.size() - 1);
+  }
+
+  // Highest seq used by any segment or snapshot, or 0 if there is none
+  static long lastSeq(Path dir) throws IOException {
+    var segments = segments(dir);
+    var last = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+    return Math.max(last, lastSnapshot(dir));
+  }
+
+  // Delete segments and snapshots replaced by the snapshot with the given seq
+  static void deleteBefore(Path dir, long seq) throws IOException {
+    for (var old : segments(dir))
+      if (old < seq)
+        Files.deleteIfExists(segment(dir, old));
+    for (var old : seqs(dir, SNAPSHOT, SNAPSHOT_SUFFIX))
+      if (old < seq)
+        Files.deleteIfExists(snapshot(dir, old));
+  }
+
+  // Pass the body of each valid record in the file to the consumer. Stops at the
+  // end marker or at the first torn or corrupt record.
+  static void read(Path file, Consumer<ByteBuffer> consumer) throws IOException {
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      while (buffer.remaining() >= JournalCodec.HEADER) {
+        var length = buffer.getInt();
+        var crc = buffer.getInt();
+        if (length <= 0 || length > buffer.remaining())
+          return;
+        var body = buffer.slice(buffer.position(), length);
+        if (!JournalCodec.valid(body, crc)) {
+          log.warn("Corrupt record in journal file: {} at: {}", file, buffer.position() - JournalCodec.HEADER);
+          return;
+        }
+        consumer.accept(body);
+        buffer.position(buffer.position() + length);
+      }
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package com.example.marbleguessinggamebackend.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+
+import com.example.marbleguessinggamebackend.model.Game;
+
+// Rebuilds the games in a journal directory from the latest snapshot and the
+// segments written since. Records of the same game can be out of order when
+// moves are installed concurrently, so the highest version of each game wins
+// and a removal hides every version up to its own.
+public final class JournalReplay {
+
+  private JournalReplay() {
+  }
+
+  public static Collection<Game> replay(Path dir) throws IOException {
+    var games = new HashMap<String, Game>();
+    var removed = new HashMap<String, Long>();
+
+    var snapshot = JournalFiles.lastSnapshot(dir);
+    if (snapshot >= 0)
+      JournalFiles.read(JournalFiles.snapshot(dir, snapshot), body -> apply(body, games, removed));
+    for (var seq : JournalFiles.segments(dir))
+      if (seq >= snapshot)
+        JournalFiles.read(JournalFiles.segment(dir, seq), body -> apply(body, games, removed));
+
+    return games.values();
+  }
+
+  private static void apply(ByteBuffer body, HashMap<String, Game> games, HashMap<String, Long> removed) {
+    var type = JournalCodec.type(body);
+    var game = JournalCodec.decode(body);
+    var gameId = game.getGameId();
+    var version = game.getVersion();
+
+    if (type == JournalCodec.REMOVE) {
+      removed.merge(gameId, version, Math::max);
+      var current = games.get(gameId);
+      if (current != null && current.getVersion() <= version)
+        games.remove(gameId);
+      return;
+    }
+
+    if (removed.getOrDefault(gameId, -1L) >= version)
+      return;
+    var current = games.get(gameId);
+    if (current == null || current.getVersion() < version)
+      games.put(gameId, game);
+  }
+}
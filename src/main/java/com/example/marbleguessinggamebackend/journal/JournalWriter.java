@@ -0,0 +1,193 @@
+package com.example.marbleguessinggamebackend.journal;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import com.example.marbleguessinggamebackend.model.Game;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Appends records to memory-mapped segment files with group commit. Writers
+// copy their record into the mapped segment and return; a flusher thread forces
+// the segment to disk and every writer waiting in sync() since the last force is
+// released by the next one, so the cost of a force is shared by all moves made
+// while the previous one ran.
+//
+// Files in the journal directory:
+//   segment-<seq>.log   records appended since the snapshot with the same or a
+//                       lower seq was started
+//   snapshot-<seq>.snap every game at the time segment <seq> was opened
+@Slf4j
+public class JournalWriter implements Closeable {
+
+  private final Path dir;
+  private final int segmentSize;
+
+  // Guards the current segment and the written position
+  private final Object appendLock = new Object();
+  private MappedByteBuffer segment;
+  private long segmentSeq;
+  // Bytes appended since the writer was opened
+  private long written;
+
+  // Guards flush requests and the durable position
+  private final Object flushLock = new Object();
+  private boolean flushRequested;
+  private volatile long durable;
+  private volatile boolean open = true;
+  private final Thread flusher;
+
+  public JournalWriter(Path dir, int segmentSize) throws IOException {
+    this.dir = dir;
+    this.segmentSize = segmentSize;
+    Files.createDirectories(dir);
+    // Never append to a segment from a previous run, it may end in a torn record
+    segmentSeq = JournalFiles.lastSeq(dir);
+    openSegment(segmentSeq + 1);
+
+    flusher = new Thread(this::flushLoop, "journal-flusher");
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  public void append(Game game) {
+    write(JournalCodec.state(game));
+  }
+
+  public void remove(Game game) {
+    write(JournalCodec.remove(game));
+  }
+
+  private void write(ByteBuffer record) {
+    synchronized (appendLock) {
+      // Keep room for the zero length that ends the segment
+      if (segment.remaining() < record.remaining() + 4)
+        roll();
+      segment.put(record);
+      written += record.limit();
+    }
+  }
+
+  // Wait until everything appended so far has been forced to disk
+  public void sync() {
+    long target;
+    synchronized (appendLock) {
+      target = written;
+    }
+    if (durable >= target)
+      return;
+
+    synchronized (flushLock) {
+      flushRequested = true;
+      flushLock.notifyAll();
+      while (durable < target) {
+        if (!open)
+          throw new IllegalStateException("Journal is closed");
+        try {
+          flushLock.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted waiting for journal", e);
+        }
+      }
+    }
+  }
+
+  private void flushLoop() {
+    while (open) {
+      synchronized (flushLock) {
+        while (!flushRequested && open) {
+          try {
+            flushLock.wait();
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+        flushRequested = false;
+      }
+      flush();
+    }
+  }
+
+  private void flush() {
+    long target;
+    MappedByteBuffer current;
+    synchronized (appendLock) {
+      target = written;
+      current = segment;
+    }
+    // Earlier segments were forced when they were rolled
+    current.force();
+    synchronized (flushLock) {
+      durable = Math.max(durable, target);
+      flushLock.notifyAll();
+    }
+  }
+
+  // Force the current segment and continue in a new one. Called with the
+  // append lock held.
+  private void roll() {
+    segment.force();
+    openSegment(segmentSeq + 1);
+  }
+
+  private void openSegment(long seq) {
+    var file = JournalFiles.segment(dir, seq);
+    try (var channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+      segmentSeq = seq;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Can't open journal segment: " + file, e);
+    }
+  }
+
+  // Write every game to a new snapshot and drop the files it replaces. Records
+  // appended while the snapshot is written go to segments it keeps, and replay
+  // keeps the highest version of each game, so moves do not have to stop.
+  public void snapshot(Iterable<Game> games) throws IOException {
+    long seq;
+    synchronized (appendLock) {
+      roll();
+      seq = segmentSeq;
+    }
+
+    var file = JournalFiles.snapshot(dir, seq);
+    var tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    var count = 0;
+    try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+      for (var game : games) {
+        var record = JournalCodec.state(game);
+        out.write(record.array(), 0, record.limit());
+        count++;
+      }
+      out.writeInt(0);
+    }
+    try (var channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+    Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+    log.info("Wrote journal snapshot {} with {} games", seq, count);
+
+    JournalFiles.deleteBefore(dir, seq);
+  }
+
+  @Override
+  public void close() {
+    flush();
+    open = false;
+    synchronized (flushLock) {
+      flushLock.notifyAll();
+    }
+  }
+}
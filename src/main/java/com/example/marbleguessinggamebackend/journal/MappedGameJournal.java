@@ -0,0 +1,121 @@
+package com.example.marbleguessinggamebackend.journal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.service.GameBroadcaster;
+import com.example.marbleguessinggamebackend.service.GameEngine;
+import com.example.marbleguessinggamebackend.service.GameEvictor;
+import com.example.marbleguessinggamebackend.service.GameJournal;
+import com.example.marbleguessinggamebackend.service.GameRegistry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Journal on memory-mapped files. Games are replayed into the registry before
+// the server takes requests, and a snapshot is written periodically so replay
+// only reads the segments written since. Broadcasts wait for a sync, so
+// players never see a move a crash could lose. Snapshots are written on their
+// own thread, so serializing every game doesn't hold up the scheduled sweeps.
+//
+// Evicted games are not journaled as removed. They come back with their old
+// update time on replay and are evicted again on the first sweep.
+@Slf4j
+@ConditionalOnProperty(name = "game.journal.enabled", havingValue = "true")
+@Component
+public class MappedGameJournal implements GameJournal {
+
+  private final GameRegistry games;
+  private final GameEngine engine;
+  private final GameEvictor evictor;
+  private final GameBroadcaster broadcaster;
+  private final Path dir;
+  private final int segmentSize;
+  private final long snapshotInterval;
+
+  private JournalWriter writer;
+  private ScheduledExecutorService snapshots;
+
+  public MappedGameJournal(GameRegistry games, GameEngine engine, GameEvictor evictor, GameBroadcaster broadcaster,
+      @Value("${game.journal.dir:journal}") Path dir,
+      @Value("${game.journal.segment-size:64MB}") DataSize segmentSize,
+      @Value("${game.journal.snapshot-interval:PT5M}") Duration snapshotInterval) {
+    this.games = games;
+    this.engine = engine;
+    this.evictor = evictor;
+    this.broadcaster = broadcaster;
+    this.dir = dir;
+    this.segmentSize = (int) segmentSize.toBytes();
+    this.snapshotInterval = snapshotInterval.toMillis();
+  }
+
+  @PostConstruct
+  public void recover() throws IOException {
+    var start = System.nanoTime();
+    var recovered = JournalReplay.replay(dir);
+    for (var game : recovered) {
+      engine.open(game.getGameId());
+      games.addGame(game);
+      evictor.track(game);
+    }
+    log.info("Recovered {} games from journal: {} in {} ms", recovered.size(), dir,
+        (System.nanoTime() - start) / 1_000_000);
+
+    writer = new JournalWriter(dir, segmentSize);
+    broadcaster.holdUntil(this::sync);
+
+    snapshots = Executors.newSingleThreadScheduledExecutor(r -> {
+      var thread = new Thread(r, "journal-snapshot");
+      thread.setDaemon(true);
+      return thread;
+    });
+    snapshots.scheduleWithFixedDelay(this::scheduledSnapshot, snapshotInterval, snapshotInterval,
+        TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void append(Game game) {
+    writer.append(game);
+  }
+
+  @Override
+  public void remove(Game game) {
+    writer.remove(game);
+  }
+
+  @Override
+  public void sync() {
+    writer.sync();
+  }
+
+  public void snapshot() throws IOException {
+    writer.snapshot(games.getGames());
+  }
+
+  // A task that throws is never run again, so a failed snapshot is only logged
+  private void scheduledSnapshot() {
+    try {
+      snapshot();
+    } catch (IOException | RuntimeException e) {
+      log.error("Can't write journal snapshot: {}", dir, e);
+    }
+  }
+
+  @PreDestroy
+  public void close() {
+    snapshots.shutdownNow();
+    writer.close();
+  }
+}
@@ -1,27 +1,53 @@
 package com.example.marbleguessinggamebackend.model;
 
-import lombok.Data;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
-@Data
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+import lombok.With;
+import lombok.extern.jackson.Jacksonized;
+
+// A state of a game. States are never modified: a move builds the next state
+// from the current one with next(), and the registry installs it, so a state
+// can be handed to any reader without copying.
+@Value
+@With
+@Builder(toBuilder = true)
+@Jacksonized
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
 public class Game {
-  
-  private String gameId;
-  private GameStatus status;
-  private String player1;
-  private String player2;
-  private int stake1;
-  private int stake2;
-  private Turn turn;
-  private Move move;
-  private int hidden;
-  private int bet;
-  private String winner;
+
+  String gameId;
+  GameStatus status;
+  String player1;
+  String player2;
+  int stake1;
+  int stake2;
+  Turn turn;
+  Move move;
+  int hidden;
+  int bet;
+  String winner;
+  // Incremented each time a new state of the game is installed
+  long version;
+  // Time of the last installed state, used to evict idle games
+  @JsonIgnore
+  long updatedAt;
 
   public Game(String gameId, String player1) {
-    this.gameId = gameId;
-    this.player1 = player1;
-    status = GameStatus.NEW;
-    move = Move.HIDE;
-    turn = Turn.PLAYER_1;
+    this(gameId, GameStatus.NEW, player1, null, 0, 0, Turn.PLAYER_1, Move.HIDE, 0, 0, null, 0,
+        System.currentTimeMillis());
+  }
+
+  // Builder of the state that follows this one, one version on and updated now
+  public GameBuilder next() {
+    return toBuilder().version(version + 1).updatedAt(System.currentTimeMillis());
+  }
+
+  // The game as everyone may see it, without the marbles hidden this round
+  public Game withoutSecrets() {
+    return withHidden(0);
   }
 }
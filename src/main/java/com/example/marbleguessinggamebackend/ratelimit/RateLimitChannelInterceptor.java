@@ -0,0 +1,49 @@
+package com.example.marbleguessinggamebackend.ratelimit;
+
+import com.example.marbleguessinggamebackend.exception.Error;
+import com.example.marbleguessinggamebackend.ratelimit.RateLimiter.Endpoint;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+// Drops STOMP messages over their limit before they reach a handler, and tells
+// the sender on /user/queue/errors. The session stays connected.
+@RequiredArgsConstructor
+@Component
+public class RateLimitChannelInterceptor implements ChannelInterceptor {
+
+  private final RateLimiter limiter;
+  // The template is built from the channels this interceptor is registered on
+  private final ObjectProvider<SimpMessagingTemplate> mt;
+
+  @Override
+  public Message<?> preSend(Message<?> message, MessageChannel channel) {
+    var headers = SimpMessageHeaderAccessor.wrap(message);
+    if (headers.getMessageType() != SimpMessageType.MESSAGE || headers.getDestination() == null)
+      return message;
+
+    var attributes = headers.getSessionAttributes();
+    var address = attributes == null ? null : (String) attributes.get(RemoteAddressInterceptor.ADDRESS);
+    var wait = limiter.acquire(Endpoint.of(false, headers.getDestination()), headers.getFirstNativeHeader("player"),
+        address);
+    if (wait == 0)
+      return message;
+
+    var reply = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+    reply.setSessionId(headers.getSessionId());
+    reply.setLeaveMutable(true);
+    mt.getObject().convertAndSendToUser(headers.getSessionId(), "/queue/errors",
+        new Error(HttpStatus.TOO_MANY_REQUESTS, "Too many requests, retry in " + RateLimiter.retryAfter(wait) + "s."),
+        reply.getMessageHeaders());
+    return null;
+  }
+}
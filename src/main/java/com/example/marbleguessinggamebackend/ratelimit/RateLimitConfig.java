@@ -0,0 +1,39 @@
+package com.example.marbleguessinggamebackend.ratelimit;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+import lombok.RequiredArgsConstructor;
+
+// Rate limits ahead of everything else, so a request over its limit is not
+// even redirected to the owner of its game
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "game.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+@Configuration
+public class RateLimitConfig implements WebMvcConfigurer {
+
+  private final RateLimitInterceptor requests;
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(requests).addPathPatterns("/api/v1/**").order(Ordered.HIGHEST_PRECEDENCE);
+  }
+
+  // Both configurers have a configureMessageConverters, so STOMP is set up apart
+  @RequiredArgsConstructor
+  @Configuration
+  static class Messages implements WebSocketMessageBrokerConfigurer {
+
+    private final RateLimitChannelInterceptor messages;
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+      registration.interceptors(messages);
+    }
+  }
+}
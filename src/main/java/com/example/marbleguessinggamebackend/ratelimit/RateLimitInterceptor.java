@@ -0,0 +1,38 @@
+package com.example.marbleguessinggamebackend.ratelimit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.example.marbleguessinggamebackend.ratelimit.RateLimiter.Endpoint;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import lombok.RequiredArgsConstructor;
+
+// Answers REST requests over their limit with a 429 and a Retry-After header,
+// before they reach the controller
+@RequiredArgsConstructor
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+  private final RateLimiter limiter;
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    var pattern = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    var endpoint = Endpoint.of(HttpMethod.GET.matches(request.getMethod()),
+        pattern != null ? pattern : request.getRequestURI());
+    var wait = limiter.acquire(endpoint, request.getHeader("player"), request.getRemoteAddr());
+    if (wait == 0)
+      return true;
+
+    response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+    response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(RateLimiter.retryAfter(wait)));
+    return false;
+  }
+}
@@ -0,0 +1,140 @@
+package com.example.marbleguessinggamebackend.ratelimit;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Token bucket limits on REST requests and STOMP messages, per endpoint, for
+// each player and for each remote address. A request must get a token from
+// both buckets. Each endpoint allows game.rate-limit.<endpoint>.rate requests
+// a second with bursts of game.rate-limit.<endpoint>.burst; addresses get
+// address-factor times that, as players behind one NAT share an address.
+// A rate of 0 turns the limit of an endpoint off. Requests from addresses in
+// exempt-addresses, e.g. the other nodes of a cluster forwarding moves, are
+// only limited by player.
+@Component
+public class RateLimiter {
+
+  public enum Endpoint {
+    CREATE(1, 5), JOIN(2, 10), MATCHMAKE(2, 10), MOVE(20, 40), READ(20, 50);
+
+    private final double rate;
+    private final int burst;
+
+    Endpoint(double rate, int burst) {
+      this.rate = rate;
+      this.burst = burst;
+    }
+
+    // Endpoint of a REST path or STOMP destination, e.g. /api/v1/join/{gameId}
+    // or /app/{gameId}/hide
+    public static Endpoint of(boolean read, String path) {
+      if (read)
+        return READ;
+      if (path.endsWith("/create"))
+        return CREATE;
+      if (path.endsWith("/matchmake"))
+        return MATCHMAKE;
+      if (path.contains("/join/"))
+        return JOIN;
+      return MOVE;
+    }
+  }
+
+  public enum Key {
+    PLAYER, ADDRESS
+  }
+
+  private static final Endpoint[] ENDPOINTS = Endpoint.values();
+  private static final Key[] KEYS = Key.values();
+
+  // By endpoint and key, null where there is no limit
+  private final TokenBuckets[] limits = new TokenBuckets[ENDPOINTS.length * KEYS.length];
+  private final Counter[] rejected = new Counter[ENDPOINTS.length * KEYS.length];
+  private final Set<String> exempt;
+
+  public RateLimiter(MeterRegistry meters, Environment env,
+      @Value("${game.rate-limit.address-factor:20}") int addressFactor,
+      @Value("${game.rate-limit.max-keys:100000}") int maxKeys,
+      @Value("${game.rate-limit.exempt-addresses:}") Set<String> exempt) {
+    this.exempt = Set.copyOf(exempt);
+    for (var endpoint : ENDPOINTS) {
+      var prefix = "game.rate-limit." + endpoint.name().toLowerCase();
+      var rate = env.getProperty(prefix + ".rate", Double.class, endpoint.rate);
+      var burst = env.getProperty(prefix + ".burst", Integer.class, endpoint.burst);
+      for (var key : KEYS) {
+        var i = index(endpoint, key);
+        var factor = key == Key.ADDRESS ? addressFactor : 1;
+        if (rate > 0)
+          limits[i] = new TokenBuckets(rate * factor, burst * factor, maxKeys, System.nanoTime());
+        rejected[i] = Counter.builder("ratelimit.rejected")
+            .description("Requests and messages refused by a rate limit")
+            .tag("endpoint", endpoint.name().toLowerCase())
+            .tag("key", key.name().toLowerCase())
+            .register(meters);
+      }
+    }
+    for (var key : KEYS)
+      Gauge.builder("ratelimit.buckets", () -> buckets(key))
+          .description("Rate limit buckets held")
+          .tag("key", key.name().toLowerCase())
+          .register(meters);
+  }
+
+  private static int index(Endpoint endpoint, Key key) {
+    return endpoint.ordinal() * KEYS.length + key.ordinal();
+  }
+
+  // 0 if the request may go ahead, else nanos until it may. The player's
+  // bucket is tried first, so a player over their limit doesn't use up tokens
+  // of everyone at their address.
+  public long acquire(Endpoint endpoint, String player, String address) {
+    var now = System.nanoTime();
+    var wait = acquire(endpoint, Key.PLAYER, player, now);
+    if (wait != 0 || address == null || exempt.contains(address))
+      return wait;
+    return acquire(endpoint, Key.ADDRESS, address, now);
+  }
+
+  private long acquire(Endpoint endpoint, Key key, String value, long now) {
+    var i = index(endpoint, key);
+    if (limits[i] == null || value == null || value.isBlank())
+      return 0;
+    var wait = limits[i].acquire(value, now);
+    if (wait != 0)
+      rejected[i].increment();
+    return wait;
+  }
+
+  // Whole seconds to wait, for a Retry-After header
+  public static long retryAfter(long wait) {
+    return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+  }
+
+  private int buckets(Key key) {
+    var size = 0;
+    for (var endpoint : ENDPOINTS) {
+      var limit = limits[index(endpoint, key)];
+      if (limit != null)
+        size += limit.size();
+    }
+    return size;
+  }
+
+  // Drop buckets that refilled, which hold nothing a new bucket wouldn't
+  @Scheduled(fixedDelayString = "${game.rate-limit.sweep:PT10S}")
+  public void sweep() {
+    var now = System.nanoTime();
+    for (var limit : limits)
+      if (limit != null)
+        limit.sweep(now);
+  }
+}
@@ -0,0 +1,30 @@
+package com.example.marbleguessinggamebackend.ratelimit;
+
+import java.util.Map;
+
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+// Keeps the address a WebSocket connected from in its session attributes, as
+// STOMP messages don't carry it
+public class RemoteAddressInterceptor implements HandshakeInterceptor {
+
+  public static final String ADDRESS = "remoteAddress";
+
+  @Override
+  public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler,
+      Map<String, Object> attributes) {
+    var address = request.getRemoteAddress();
+    if (address != null && address.getAddress() != null)
+      attributes.put(ADDRESS, address.getAddress().getHostAddress());
+    return true;
+  }
+
+  @Override
+  public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler,
+      Exception exception) {
+    // Nothing to do once connected
+  }
+}
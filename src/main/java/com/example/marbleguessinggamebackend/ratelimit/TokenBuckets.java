@@ -0,0 +1,57 @@
+package com.example.marbleguessinggamebackend.ratelimit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token buckets of one limit, by key. A bucket is held as the time it will be
+// full again: taking a token moves that time one interval on, and is refused if
+// it would then be more than a burst of intervals ahead of now. So a token is
+// taken with one CAS, and refill is lazy, worked out from the clock.
+//
+// A bucket whose time has passed is full, the same as a missing one, so the
+// sweep drops those. Past maxKeys, new keys share one overflow bucket until a
+// sweep makes room.
+final class TokenBuckets {
+
+  // Nanos per token, and nanos of a full burst
+  private final long interval;
+  private final long capacity;
+  private final int maxKeys;
+
+  private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+  private final AtomicLong overflow;
+
+  TokenBuckets(double rate, int burst, int maxKeys, long now) {
+    interval = (long) (1_000_000_000L / rate);
+    capacity = interval * Math.max(burst, 1);
+    this.maxKeys = maxKeys;
+    overflow = new AtomicLong(now);
+  }
+
+  // 0 if a token was taken, else nanos until one is available
+  long acquire(String key, long now) {
+    var bucket = buckets.get(key);
+    if (bucket == null)
+      // Checked before adding, so concurrent new keys may overshoot a little
+      bucket = buckets.size() < maxKeys ? buckets.computeIfAbsent(key, k -> new AtomicLong(now)) : overflow;
+    while (true) {
+      var full = bucket.get();
+      var next = (full - now < 0 ? now : full) + interval;
+      var wait = next - now - capacity;
+      if (wait > 0)
+        return wait;
+      if (bucket.compareAndSet(full, next))
+        return 0;
+    }
+  }
+
+  // Drop full buckets. A request holding a bucket as it is dropped takes its
+  // token from that bucket, so the key may get one more token than its limit.
+  void sweep(long now) {
+    buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+  }
+
+  int size() {
+    return buckets.size();
+  }
+}
@@ -0,0 +1,30 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.example.marbleguessinggamebackend.model.Game;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+// Lock-free engine. Moves run on the calling thread and are installed with a
+// compare-and-swap on the registry, retrying on conflict. Listeners may be
+// notified out of order; clients can use the game version to drop stale states.
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "game.engine", havingValue = "cas")
+@Component
+public class CasGameEngine implements GameEngine {
+
+  private final GameRegistry games;
+
+  @Override
+  public Transition apply(String gameId, Function<Game, Transition> move, Consumer<Transition> onInstalled) {
+    var transition = games.update(gameId, move);
+    if (!transition.rejected())
+      onInstalled.accept(transition);
+    return transition;
+  }
+}
@@ -0,0 +1,257 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjLongConsumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.example.marbleguessinggamebackend.config.WireFormat;
+import com.example.marbleguessinggamebackend.config.WireFormats;
+import com.example.marbleguessinggamebackend.dto.GameEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+// Sends game events to /topic/gamestate/{gameId} off the move path. Moves add
+// their event to the pending batch of the game and return; a dispatcher thread
+// sends each pending batch as one message, serialized once for every
+// subscriber of each format. Events for a game that arrive while its batch waits are sent
+// with it, so a busy game costs one message per window instead of one per move.
+//
+// The queue of games waiting to be sent is bounded. When it is full the game
+// that has waited longest is dropped with its events; clients see the version
+// gap and fetch a snapshot.
+//
+// Every batch is encoded in each format of game.broadcast.formats, whether or
+// not anyone subscribed to it, so binary formats are opt in.
+//
+// Batches wait on a barrier before they are sent, so the journal can hold back
+// events until the states they report are durable. Listeners can follow the
+// games sent, e.g. to send spectators the state each batch led to.
+@Slf4j
+@Component
+public class GameBroadcaster {
+
+  private static final int BATCH = 256;
+
+  private final SimpMessagingTemplate mt;
+  private final WireFormats formats;
+  // Formats each batch is broadcast in
+  private final Set<WireFormat> broadcast;
+  private final long window;
+
+  // Events per game not yet sent
+  private final ConcurrentHashMap<String, Pending> pending = new ConcurrentHashMap<>();
+  // Games with pending events, oldest first
+  private final BlockingQueue<String> ready;
+
+  private final Counter dropped;
+  private final Counter coalesced;
+  private final Timer latency;
+  private final EnumMap<WireFormat, DistributionSummary> payloads = new EnumMap<>(WireFormat.class);
+
+  // Run before each round of batches is sent, on the dispatcher thread
+  private volatile Runnable barrier = () -> {
+  };
+  // Told of each game and its last version sent once its batch is sent, on
+  // the dispatcher thread
+  private final List<ObjLongConsumer<String>> sent = new CopyOnWriteArrayList<>();
+
+  private volatile boolean running;
+  private Thread dispatcher;
+
+  public GameBroadcaster(SimpMessagingTemplate mt, WireFormats formats, MeterRegistry meters,
+      @Value("${game.broadcast.capacity:10000}") int capacity,
+      @Value("${game.broadcast.window:PT0.002S}") Duration window,
+      @Value("${game.broadcast.formats:json}") Set<WireFormat> broadcast) {
+    this.mt = mt;
+    this.formats = formats;
+    this.broadcast = broadcast;
+    this.window = window.toMillis();
+    ready = new ArrayBlockingQueue<>(capacity);
+
+    Gauge.builder("broadcast.queue.depth", ready, BlockingQueue::size)
+        .description("Games with events waiting to be broadcast")
+        .register(meters);
+    dropped = Counter.builder("broadcast.dropped")
+        .description("Events dropped because the broadcast queue was full or the journal failed")
+        .register(meters);
+    coalesced = Counter.builder("broadcast.coalesced")
+        .description("Events sent in the same message as an earlier event of their game")
+        .register(meters);
+    latency = Timer.builder("broadcast.latency")
+        .description("Time from the first event of a batch being queued to the batch being sent")
+        .register(meters);
+    for (var format : broadcast)
+      payloads.put(format, DistributionSummary.builder("broadcast.payload")
+          .baseUnit("bytes")
+          .description("Size of each broadcast message")
+          .tag("format", format.name().toLowerCase())
+          .register(meters));
+  }
+
+  @PostConstruct
+  public void start() {
+    running = true;
+    dispatcher = new Thread(this::dispatchLoop, "game-broadcaster");
+    dispatcher.setDaemon(true);
+    dispatcher.start();
+  }
+
+  @PreDestroy
+  public void stop() {
+    running = false;
+    dispatcher.interrupt();
+  }
+
+  public void onSent(ObjLongConsumer<String> listener) {
+    sent.add(listener);
+  }
+
+  // Wait on the barrier before sending the events published before it ran
+  public void holdUntil(Runnable barrier) {
+    this.barrier = barrier;
+  }
+
+  // Queue an event for broadcast. Never blocks.
+  public void publish(String gameId, GameEvent event) {
+    var batch = pending.compute(gameId, (id, current) -> {
+      if (current == null)
+        return new Pending(id, event);
+      current.events.add(event);
+      return current;
+    });
+    // Only the event that started the batch queues the game. Decided inside
+    // compute, since other moves may add to the batch once it returns.
+    if (batch.first != event)
+      return;
+    while (!ready.offer(gameId)) {
+      var oldest = ready.poll();
+      if (oldest == null)
+        continue;
+      var lost = pending.remove(oldest);
+      if (lost != null) {
+        dropped.increment(lost.events.size());
+        log.warn("Broadcast queue is full, dropped {} events of game: {}", lost.events.size(), oldest);
+      }
+    }
+  }
+
+  private void dispatchLoop() {
+    var gameIds = new ArrayList<String>(BATCH);
+    while (running) {
+      try {
+        gameIds.add(ready.take());
+        // Let moves on busy games join the batch before it is sent
+        if (window > 0)
+          Thread.sleep(window);
+      } catch (InterruptedException e) {
+        return;
+      }
+      ready.drainTo(gameIds, BATCH - 1);
+      send(gameIds);
+      gameIds.clear();
+      flush();
+    }
+  }
+
+  // Send every batch queued so far
+  void flush() {
+    var gameIds = new ArrayList<String>(BATCH);
+    while (ready.drainTo(gameIds, BATCH) > 0) {
+      send(gameIds);
+      gameIds.clear();
+    }
+  }
+
+  // Take the batches of the games, then wait on the barrier once for all of
+  // them, so each event it lets through was published before it ran
+  private void send(List<String> gameIds) {
+    var batches = new ArrayList<Pending>(gameIds.size());
+    for (var gameId : gameIds) {
+      var batch = pending.remove(gameId);
+      // Dropped while it was queued
+      if (batch != null)
+        batches.add(batch);
+    }
+    if (batches.isEmpty())
+      return;
+    try {
+      barrier.run();
+    } catch (RuntimeException e) {
+      for (var batch : batches)
+        dropped.increment(batch.events.size());
+      log.error("Can't hold broadcasts until their moves are durable, dropped {} games", batches.size(), e);
+      return;
+    }
+    for (var batch : batches)
+      send(batch);
+  }
+
+  private void send(Pending batch) {
+    var gameId = batch.gameId;
+    var events = batch.events;
+    // Moves on the CAS engine may publish out of order
+    events.sort(Comparator.comparingLong(GameEvent::getVersion));
+    coalesced.increment(events.size() - 1);
+
+    for (var format : broadcast)
+      send(gameId, events, format);
+    latency.record(System.nanoTime() - batch.queuedAt, TimeUnit.NANOSECONDS);
+    var version = events.get(events.size() - 1).getVersion();
+    for (var listener : sent)
+      listener.accept(gameId, version);
+  }
+
+  private void send(String gameId, List<GameEvent> events, WireFormat format) {
+    try {
+      var accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+      accessor.setContentType(format.stompContentType());
+      accessor.setLeaveMutable(true);
+      var payload = formats.mapper(format).writeValueAsBytes(events);
+      mt.send("/topic/gamestate/" + gameId + format.topicSuffix(),
+          MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+      payloads.get(format).record(payload.length);
+    } catch (JsonProcessingException | RuntimeException e) {
+      log.error("Can't broadcast events of game: {}", gameId, e);
+    }
+  }
+
+  // Events of a game not yet sent, in publish order
+  private static final class Pending {
+
+    final String gameId;
+    final GameEvent first;
+    final long queuedAt = System.nanoTime();
+    final List<GameEvent> events = new ArrayList<>(4);
+
+    Pending(String gameId, GameEvent first) {
+      this.gameId = gameId;
+      this.first = first;
+      events.add(first);
+    }
+  }
+}
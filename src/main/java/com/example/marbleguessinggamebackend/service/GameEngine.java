@@ -0,0 +1,24 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.example.marbleguessinggamebackend.model.Game;
+
+// Decides how concurrent moves on the same game are ordered. Selected with the
+// game.engine property.
+public interface GameEngine {
+
+  // Called when a game is created, before it is added to the registry
+  default void open(String gameId) {
+  }
+
+  // Called after a game is removed from the registry
+  default void close(String gameId) {
+  }
+
+  // Apply a move to the current state of the game, install the result in the
+  // registry and pass the transition to the listener. Rejected moves are
+  // returned without being installed or passed on.
+  Transition apply(String gameId, Function<Game, Transition> move, Consumer<Transition> onInstalled);
+}
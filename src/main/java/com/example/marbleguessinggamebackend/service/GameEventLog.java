@@ -0,0 +1,212 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.example.marbleguessinggamebackend.dto.GameEvent;
+import com.example.marbleguessinggamebackend.service.GameMetrics.Operation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+// Structured log of what happens to games, kept apart from diagnostic logging.
+// Moves drop an entry into a ring buffer and return; a writer thread turns the
+// entries into JSON lines on the game.events logger. Moves never wait: when
+// the buffer is full the entry is dropped and counted.
+//
+// Each entry type (started, rejected and the GameEvent types) is sampled at
+// game.event-log.rates.<type>, falling back to game.event-log.default-rate.
+@Slf4j
+@Component
+public class GameEventLog {
+
+  private static final Logger events = LoggerFactory.getLogger("game.events");
+
+  private static final GameEvent.Type[] TYPES = GameEvent.Type.values();
+  private static final int STARTED = TYPES.length;
+  private static final int REJECTED = TYPES.length + 1;
+
+  private final ObjectMapper mapper;
+  private final boolean enabled;
+  // Sampling rate by GameEvent type ordinal, then started and rejected
+  private final double[] rates = new double[TYPES.length + 2];
+
+  private final Slot[] slots;
+  private final int mask;
+  // Next slot to claim, and next slot the writer reads
+  private final AtomicLong head = new AtomicLong();
+  private volatile long tail;
+
+  private final Counter dropped;
+
+  private volatile boolean running;
+  private Thread writer;
+
+  public GameEventLog(ObjectMapper mapper, MeterRegistry meters, Environment env,
+      @Value("${game.event-log.enabled:true}") boolean enabled,
+      @Value("${game.event-log.capacity:8192}") int capacity,
+      @Value("${game.event-log.default-rate:1.0}") double defaultRate) {
+    this.mapper = mapper;
+    this.enabled = enabled;
+    for (var type : TYPES)
+      rates[type.ordinal()] = rate(env, type.name(), defaultRate);
+    rates[STARTED] = rate(env, "started", defaultRate);
+    rates[REJECTED] = rate(env, "rejected", defaultRate);
+
+    // Round up to a power of two so a sequence maps to its slot with a mask
+    var size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+    slots = new Slot[size];
+    for (int i = 0; i < size; i++)
+      slots[i] = new Slot(i - size);
+    mask = size - 1;
+
+    dropped = Counter.builder("game.event-log.dropped")
+        .description("Game log entries dropped because the buffer was full")
+        .register(meters);
+  }
+
+  private static double rate(Environment env, String type, double defaultRate) {
+    return env.getProperty("game.event-log.rates." + type.toLowerCase(), Double.class, defaultRate);
+  }
+
+  @PostConstruct
+  public void start() {
+    if (!enabled)
+      return;
+    running = true;
+    writer = new Thread(this::writeLoop, "game-event-log");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  @PreDestroy
+  public void stop() {
+    running = false;
+    if (writer != null)
+      writer.interrupt();
+  }
+
+  public void started(String gameId, String player) {
+    if (sampled(STARTED))
+      offer(gameId, null, player, null, null);
+  }
+
+  public void installed(String gameId, GameEvent event) {
+    if (sampled(event.getType().ordinal()))
+      offer(gameId, event, null, null, null);
+  }
+
+  public void rejected(String gameId, Operation operation, MoveError error) {
+    if (sampled(REJECTED))
+      offer(gameId, null, null, operation, error);
+  }
+
+  private boolean sampled(int type) {
+    var rate = rates[type];
+    return enabled && (rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate));
+  }
+
+  private void offer(String gameId, GameEvent event, String player, Operation operation, MoveError error) {
+    long sequence;
+    do {
+      sequence = head.get();
+      if (sequence - tail >= slots.length) {
+        dropped.increment();
+        return;
+      }
+    } while (!head.compareAndSet(sequence, sequence + 1));
+
+    var slot = slots[(int) sequence & mask];
+    slot.at = System.currentTimeMillis();
+    slot.gameId = gameId;
+    slot.event = event;
+    slot.player = player;
+    slot.operation = operation;
+    slot.error = error;
+    // Publish the entry to the writer
+    slot.sequence = sequence;
+  }
+
+  private void writeLoop() {
+    while (running) {
+      if (!drain())
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+    drain();
+  }
+
+  // Write every published entry. Returns false if there was none.
+  boolean drain() {
+    var wrote = false;
+    while (true) {
+      var next = tail;
+      var slot = slots[(int) next & mask];
+      if (slot.sequence != next)
+        return wrote;
+      var line = format(slot);
+      slot.event = null;
+      slot.gameId = null;
+      slot.player = null;
+      // Free the slot for producers
+      tail = next + 1;
+      if (line != null)
+        events.info(line);
+      wrote = true;
+    }
+  }
+
+  private String format(Slot slot) {
+    try {
+      ObjectNode node;
+      if (slot.event != null) {
+        node = mapper.valueToTree(slot.event);
+      } else {
+        node = mapper.createObjectNode();
+        node.put("type", slot.error != null ? "REJECTED" : "STARTED");
+        if (slot.player != null)
+          node.put("player", slot.player);
+        if (slot.error != null) {
+          node.put("operation", slot.operation.name());
+          node.put("reason", slot.error.name());
+        }
+      }
+      node.put("gameId", slot.gameId);
+      node.put("at", slot.at);
+      return mapper.writeValueAsString(node);
+    } catch (JsonProcessingException | RuntimeException e) {
+      log.error("Can't log entry of game: {}", slot.gameId, e);
+      return null;
+    }
+  }
+
+  private static final class Slot {
+
+    // Sequence of the entry in the slot, written last when it is published
+    volatile long sequence;
+    long at;
+    String gameId;
+    GameEvent event;
+    String player;
+    Operation operation;
+    MoveError error;
+
+    Slot(long sequence) {
+      this.sequence = sequence;
+    }
+  }
+}
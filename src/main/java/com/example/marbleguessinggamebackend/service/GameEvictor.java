@@ -0,0 +1,152 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.example.marbleguessinggamebackend.dto.GameEvent;
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.model.GameStatus;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+// Evicts ended games after a TTL and other games after an idle timeout, and
+// caps the number of resident games.
+//
+// Games are tracked on a timing wheel: each game has one entry in the slot of
+// the tick it may expire on. A tick only visits the entries in its slot and
+// checks them against the installed game, so moves never touch the wheel and a
+// game that moved since it was scheduled is just put back further along.
+@Slf4j
+@Component
+public class GameEvictor {
+
+  private static final int SLOTS = 512;
+
+  private final GameRegistry games;
+  private final GameEngine engine;
+  private final GameBroadcaster broadcaster;
+
+  private final long tick;
+  private final long endedTtl;
+  private final long idleTimeout;
+  private final int maxGames;
+
+  private final List<ConcurrentLinkedQueue<String>> wheel = new ArrayList<>(SLOTS);
+  // Last tick swept, only advanced by the sweeper
+  private volatile long swept;
+
+  private final Counter evictedEnded;
+  private final Counter evictedIdle;
+
+  public GameEvictor(GameRegistry games, GameEngine engine, GameBroadcaster broadcaster, MeterRegistry meters,
+      @Value("${game.eviction.tick:PT1S}") Duration tick,
+      @Value("${game.eviction.ended-ttl:PT5M}") Duration endedTtl,
+      @Value("${game.eviction.idle-timeout:PT30M}") Duration idleTimeout,
+      @Value("${game.max-games:100000}") int maxGames) {
+    this.games = games;
+    this.engine = engine;
+    this.broadcaster = broadcaster;
+    this.tick = tick.toMillis();
+    this.endedTtl = endedTtl.toMillis();
+    this.idleTimeout = idleTimeout.toMillis();
+    this.maxGames = maxGames;
+    for (int i = 0; i < SLOTS; i++)
+      wheel.add(new ConcurrentLinkedQueue<>());
+    swept = System.currentTimeMillis() / this.tick;
+
+    Gauge.builder("games.resident", games, GameRegistry::size)
+        .description("Games held in the registry")
+        .register(meters);
+    evictedEnded = Counter.builder("games.evicted").tag("reason", "ended")
+        .description("Games evicted from the registry")
+        .register(meters);
+    evictedIdle = Counter.builder("games.evicted").tag("reason", "idle")
+        .description("Games evicted from the registry")
+        .register(meters);
+  }
+
+  // Check there is room for a new game and start tracking it
+  public void admit(Game game) {
+    if (games.size() >= maxGames) {
+      log.warn("Can't start game: {} as there are {} games", game.getGameId(), maxGames);
+      throw MoveError.TOO_MANY_GAMES.exception();
+    }
+    track(game);
+  }
+
+  // Start tracking a game without checking the cap, e.g. when it is recovered
+  public void track(Game game) {
+    schedule(game.getGameId(), expiry(game));
+  }
+
+  private long expiry(Game game) {
+    return game.getUpdatedAt() + (game.getStatus() == GameStatus.ENDED ? endedTtl : idleTimeout);
+  }
+
+  // Put a game in the slot of the tick it expires on, or the next tick if that
+  // has already been swept
+  private void schedule(String gameId, long expiry) {
+    var at = Math.max(expiry / tick, swept + 1);
+    wheel.get((int) (at % SLOTS)).add(gameId);
+  }
+
+  // Sweep every tick up to now
+  @Scheduled(fixedDelayString = "${game.eviction.tick:PT1S}")
+  public synchronized void sweep() {
+    var now = System.currentTimeMillis();
+    var nowTick = now / tick;
+    var later = new ArrayList<Game>();
+
+    while (swept < nowTick) {
+      var slot = wheel.get((int) ((swept + 1) % SLOTS));
+      String gameId;
+      while ((gameId = slot.poll()) != null) {
+        var game = games.getGame(gameId);
+        // Already removed by a quit
+        if (game == null)
+          continue;
+        if (expiry(game) > now)
+          later.add(game);
+        else if (!evict(game)) {
+          // A move installed a newer state, check it again later
+          var latest = games.getGame(gameId);
+          later.add(latest != null ? latest : game);
+        }
+      }
+      swept++;
+    }
+
+    // Reschedule after the sweep so entries are not seen twice in one pass
+    for (var game : later)
+      schedule(game.getGameId(), expiry(game));
+  }
+
+  private boolean evict(Game game) {
+    if (!games.removeGame(game))
+      return false;
+    engine.close(game.getGameId());
+
+    if (game.getStatus() == GameStatus.ENDED) {
+      evictedEnded.increment();
+      log.info("Evicted ended game: {}", game.getGameId());
+    } else {
+      evictedIdle.increment();
+      log.info("Evicted idle game: {}", game.getGameId());
+    }
+
+    // Notify listeners that the game is over
+    var event = GameEvent.ended();
+    event.setVersion(game.getVersion() + 1);
+    broadcaster.publish(game.getGameId(), event);
+    return true;
+  }
+}
@@ -0,0 +1,122 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Runs the moves of each game one at a time, in arrival order, on a shared pool.
+// Every game owns a mailbox; a mailbox is scheduled on the pool only while it has
+// pending moves, so there is no global lock and games never wait on each other.
+@Slf4j
+@Component
+public class GameExecutor {
+
+  // Max moves a mailbox runs before yielding its pool thread to other games
+  private static final int BATCH = 16;
+
+  private final ConcurrentHashMap<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+  private final ForkJoinPool pool;
+
+  public GameExecutor(@Value("${game.executor.threads:0}") int threads) {
+    // Default to one thread per core
+    var parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    // Async mode keeps the pool FIFO, which suits event-style tasks that never fork
+    pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+  }
+
+  // Open a mailbox for a newly created game
+  public void register(String gameId) {
+    mailboxes.putIfAbsent(gameId, new Mailbox(pool));
+  }
+
+  // Drop the mailbox of a removed game. Moves already queued still run and see
+  // the game as missing.
+  public void unregister(String gameId) {
+    mailboxes.remove(gameId);
+  }
+
+  // Run a move on the game's mailbox and wait for its result
+  public <T> T execute(String gameId, Supplier<T> move) {
+    var mailbox = mailboxes.get(gameId);
+    if (mailbox == null) {
+      log.debug("Game: {} does not exist", gameId);
+      throw MoveError.GAME_NOT_FOUND.exception();
+    }
+
+    var result = new CompletableFuture<T>();
+    mailbox.enqueue(() -> {
+      try {
+        result.complete(move.get());
+      } catch (Throwable t) {
+        result.completeExceptionally(t);
+      }
+    });
+
+    try {
+      return result.join();
+    } catch (CompletionException e) {
+      // Rethrow what the move threw so callers see the original exception
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      if (e.getCause() instanceof Error)
+        throw (Error) e.getCause();
+      throw e;
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    pool.shutdown();
+  }
+
+  // Queue of pending moves for a single game
+  private static class Mailbox implements Runnable {
+
+    private final Queue<Runnable> moves = new ConcurrentLinkedQueue<>();
+    // Set while the mailbox is queued or running on the pool
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Executor executor;
+
+    Mailbox(Executor executor) {
+      this.executor = executor;
+    }
+
+    void enqueue(Runnable move) {
+      moves.add(move);
+      schedule();
+    }
+
+    // Only the caller that flips the flag submits the mailbox, so at most one
+    // thread drains it at any time
+    private void schedule() {
+      if (!moves.isEmpty() && scheduled.compareAndSet(false, true))
+        executor.execute(this);
+    }
+
+    @Override
+    public void run() {
+      try {
+        Runnable move;
+        for (int i = 0; i < BATCH && (move = moves.poll()) != null; i++)
+          move.run();
+      } finally {
+        scheduled.set(false);
+        // Pick up moves that arrived after the last poll
+        schedule();
+      }
+    }
+  }
+}
@@ -0,0 +1,7 @@
+package com.example.marbleguessinggamebackend.service;
+
+// Makes ids for new games. Selected with the game.ids property.
+public interface GameIdGenerator {
+
+  String next();
+}
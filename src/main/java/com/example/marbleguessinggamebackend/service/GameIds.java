@@ -0,0 +1,70 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.util.Arrays;
+
+// Game ids as the API sees them and as stores key them. Generated ids are a
+// non-negative long written as 11 base62 digits, so a store can key games on
+// the long instead of hashing and comparing the string on every lookup. The
+// digits sort in the same order as the longs, so time-ordered ids list in
+// creation order.
+public final class GameIds {
+
+  public static final int LENGTH = 11;
+
+  private static final char[] DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+  private static final byte[] VALUES = new byte[128];
+
+  static {
+    Arrays.fill(VALUES, (byte) -1);
+    for (int i = 0; i < DIGITS.length; i++)
+      VALUES[DIGITS[i]] = (byte) i;
+  }
+
+  private GameIds() {
+  }
+
+  // Id of a non-negative long
+  public static String encode(long id) {
+    var chars = new char[LENGTH];
+    for (int i = LENGTH - 1; i >= 0; i--) {
+      chars[i] = DIGITS[(int) (id % 62)];
+      id /= 62;
+    }
+    return new String(chars);
+  }
+
+  // Key of a game id. Generated ids decode to their long. Any other id, such as
+  // the UUIDs of games started before ids were generated here, is hashed to a
+  // negative key so it can't collide with a generated one.
+  public static long key(String gameId) {
+    if (gameId.length() == LENGTH) {
+      var id = 0L;
+      var last = -1;
+      for (int i = 0; i < LENGTH; i++) {
+        var c = gameId.charAt(i);
+        last = c < 128 ? VALUES[c] : -1;
+        if (last < 0)
+          break;
+        if (i < LENGTH - 1)
+          id = id * 62 + last;
+      }
+      // Ten digits always fit in a long, the eleventh may not
+      if (last >= 0 && id <= (Long.MAX_VALUE - last) / 62)
+        return id * 62 + last;
+    }
+    return hash(gameId) | Long.MIN_VALUE;
+  }
+
+  // FNV-1a, then spread
+  private static long hash(String gameId) {
+    var h = 0xcbf29ce484222325L;
+    for (int i = 0; i < gameId.length(); i++) {
+      h ^= gameId.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    return h;
+  }
+}
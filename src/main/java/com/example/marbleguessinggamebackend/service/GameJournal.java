@@ -0,0 +1,20 @@
+package com.example.marbleguessinggamebackend.service;
+
+import com.example.marbleguessinggamebackend.model.Game;
+
+// Durable record of game states, replayed into the registry on startup.
+// Enabled with the game.journal.enabled property.
+public interface GameJournal {
+
+  // Record a new state of a game
+  default void append(Game game) {
+  }
+
+  // Record that a game was removed
+  default void remove(Game game) {
+  }
+
+  // Wait until everything appended so far is durable
+  default void sync() {
+  }
+}
@@ -0,0 +1,79 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.util.concurrent.TimeUnit;
+
+import com.example.marbleguessinggamebackend.model.GameStatus;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// Timers of each GameService operation by outcome, and gauges of the games per
+// status. Every timer is registered up front and picked by index, so recording
+// a call allocates no tags.
+//
+//   game.operations{operation, outcome=accepted|rejected|failed, reason}
+//
+// reason is the MoveError of a rejection, and none otherwise.
+@Component
+public class GameMetrics {
+
+  public enum Operation {
+    START, MATCH, JOIN, HIDE, BET, GUESS, RESTART, QUIT
+  }
+
+  private static final MoveError[] ERRORS = MoveError.values();
+  // Per operation: accepted, then one per MoveError, then failed
+  private static final int OUTCOMES = ERRORS.length + 2;
+  private static final int FAILED = OUTCOMES - 1;
+
+  private final Timer[] timers = new Timer[Operation.values().length * OUTCOMES];
+
+  public GameMetrics(GameRegistry games, MeterRegistry meters) {
+    for (var operation : Operation.values()) {
+      var name = operation.name().toLowerCase();
+      var base = operation.ordinal() * OUTCOMES;
+      timers[base] = timer(meters, name, "accepted", "none");
+      for (var error : ERRORS)
+        timers[base + 1 + error.ordinal()] = timer(meters, name, "rejected", error.name().toLowerCase());
+      timers[base + FAILED] = timer(meters, name, "failed", "none");
+    }
+    for (var status : GameStatus.values())
+      Gauge.builder("games.status", games, registry -> registry.count(status))
+          .tag("status", status.name().toLowerCase())
+          .description("Games held in the registry by status")
+          .register(meters);
+  }
+
+  private static Timer timer(MeterRegistry meters, String operation, String outcome, String reason) {
+    return Timer.builder("game.operations")
+        .tag("operation", operation)
+        .tag("outcome", outcome)
+        .tag("reason", reason)
+        .description("Game operations by outcome")
+        .register(meters);
+  }
+
+  public void accepted(Operation operation, long startNanos) {
+    record(operation.ordinal() * OUTCOMES, startNanos);
+  }
+
+  public void rejected(Operation operation, MoveError error, long startNanos) {
+    record(operation.ordinal() * OUTCOMES + 1 + error.ordinal(), startNanos);
+  }
+
+  // An operation that threw, counted as the rejection it stands for if any
+  public void failed(Operation operation, RuntimeException e, long startNanos) {
+    var error = MoveError.of(e);
+    if (error != null)
+      rejected(operation, error, startNanos);
+    else
+      record(operation.ordinal() * OUTCOMES + FAILED, startNanos);
+  }
+
+  private void record(int timer, long startNanos) {
+    timers[timer].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+}
@@ -1,31 +1,179 @@
 package com.example.marbleguessinggamebackend.service;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
 
 import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.model.GameStatus;
+import com.example.marbleguessinggamebackend.store.HeapGameStore;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
 @Component
 public class GameRegistry {
   
-  private static ConcurrentHashMap<String, Game> games;
+  private final GameStore games;
+
+  // Sorted game ids for cursor pagination of the lobby, overall and by status.
+  // Indexes are updated after the map, so readers check the installed game.
+  private final ConcurrentSkipListSet<String> ids = new ConcurrentSkipListSet<>();
+  private final Map<GameStatus, ConcurrentSkipListSet<String>> byStatus = new EnumMap<>(GameStatus.class);
+  // Ids of the games each player is in
+  private final ConcurrentHashMap<String, Set<String>> byPlayer = new ConcurrentHashMap<>();
+  // Games per status, by ordinal, kept so metrics don't walk the indexes
+  private final AtomicLongArray statusCounts = new AtomicLongArray(GameStatus.values().length);
+
+  @Autowired
+  public GameRegistry(GameStore games) {
+    this.games = games;
+    for (var status : GameStatus.values())
+      byStatus.put(status, new ConcurrentSkipListSet<>());
+  }
+
+  GameRegistry() {
+    this(new HeapGameStore());
+  }
 
-  private GameRegistry() {
-    GameRegistry.games = new ConcurrentHashMap<>();
+  public Game getGame(String gameId) {
+    return games.get(gameId);
   }
 
-  public Map<String, Game> getGames() {
-    return GameRegistry.games;
-  } 
+  // Every game, read as the walk reaches it
+  public Iterable<Game> getGames() {
+    return games;
+  }
+
+  public int size() {
+    return games.size();
+  }
+
+  public long count(GameStatus status) {
+    return statusCounts.get(status.ordinal());
+  }
 
   public void addGame(Game game) {
-    games.put(game.getGameId(), game);
+    games.put(game);
+    ids.add(game.getGameId());
+    byStatus.get(game.getStatus()).add(game.getGameId());
+    statusCounts.incrementAndGet(game.getStatus().ordinal());
+    addPlayer(game.getPlayer1(), game.getGameId());
+    addPlayer(game.getPlayer2(), game.getGameId());
   }
 
-  public void removeGame(Game game) {
-    games.values().remove(game);
+  // Remove a game by key if it is still in the given state. Returns false if the
+  // game is gone or a newer state has been installed.
+  public boolean removeGame(Game game) {
+    var gameId = game.getGameId();
+    if (games.remove(game)) {
+      ids.remove(gameId);
+      for (var index : byStatus.values())
+        index.remove(gameId);
+      statusCounts.decrementAndGet(game.getStatus().ordinal());
+      removePlayer(game.getPlayer1(), gameId);
+      removePlayer(game.getPlayer2(), gameId);
+      return true;
+    }
+    return false;
   }
-}
 
+  private void addPlayer(String player, String gameId) {
+    if (player == null)
+      return;
+    byPlayer.compute(player, (p, gameIds) -> {
+      if (gameIds == null)
+        gameIds = ConcurrentHashMap.newKeySet();
+      gameIds.add(gameId);
+      return gameIds;
+    });
+  }
+
+  private void removePlayer(String player, String gameId) {
+    if (player == null)
+      return;
+    // Drop the player's entry with their last game
+    byPlayer.computeIfPresent(player, (p, gameIds) -> {
+      gameIds.remove(gameId);
+      return gameIds.isEmpty() ? null : gameIds;
+    });
+  }
+
+  // Games the player is in
+  public List<Game> gamesOf(String player) {
+    var gameIds = byPlayer.get(player);
+    if (gameIds == null)
+      return List.of();
+    var playing = new ArrayList<Game>(gameIds.size());
+    for (var id : gameIds) {
+      var game = games.get(id);
+      if (game != null && (player.equals(game.getPlayer1()) || player.equals(game.getPlayer2())))
+        playing.add(game);
+    }
+    return playing;
+  }
+
+  // Up to limit games with ids after the cursor, in id order, optionally only
+  // games with the given status. Walks the index instead of the whole map.
+  public List<Game> page(GameStatus status, String after, int limit) {
+    var index = status == null ? ids : byStatus.get(status);
+    var tail = after == null ? index : index.tailSet(after, false);
+    var page = new ArrayList<Game>(Math.min(limit, 64));
+    for (var id : tail) {
+      var game = games.get(id);
+      // Skip games removed or moved to another status since the index was read
+      if (game == null || (status != null && game.getStatus() != status))
+        continue;
+      page.add(game);
+      if (page.size() == limit)
+        break;
+    }
+    return page;
+  }
+
+  // Install the next state of a game. The move builds the next state from the
+  // current one with Game.next(), so readers see either the whole move or none
+  // of it. If
+  // another thread installed a state first, the move is retried on that state.
+  // Rejected moves are returned as they are and install nothing.
+  public Transition update(String gameId, Function<Game, Transition> move) {
+    while (true) {
+      var current = games.get(gameId);
+      if (current == null) {
+        log.debug("Game: {} does not exist", gameId);
+        return MoveError.GAME_NOT_FOUND.rejection();
+      }
+
+      var transition = move.apply(current);
+      if (transition.rejected())
+        return transition;
+      var next = transition.game();
+      if (next.getVersion() != current.getVersion() + 1)
+        throw new IllegalStateException("Move must build the next state of game: " + gameId);
+
+      if (games.replace(current, next)) {
+        if (next.getStatus() != current.getStatus()) {
+          byStatus.get(next.getStatus()).add(gameId);
+          byStatus.get(current.getStatus()).remove(gameId);
+          statusCounts.incrementAndGet(next.getStatus().ordinal());
+          statusCounts.decrementAndGet(current.getStatus().ordinal());
+        }
+        if (!Objects.equals(next.getPlayer2(), current.getPlayer2())) {
+          addPlayer(next.getPlayer2(), gameId);
+          removePlayer(current.getPlayer2(), gameId);
+        }
+        return transition;
+      }
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package com.example.marbleguessinggamebackend.service;
+
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.model.GameStatus;
+import com.example.marbleguessinggamebackend.model.Move;
+import com.example.marbleguessinggamebackend.model.Turn;
+
+// Rules of a round as a table keyed on (status, move, turn). Each entry says
+// which move the state allows, who plays it and what comes after it, so a move
+// is checked with one lookup. Moves build the next state from a checked game
+// without touching anything else, so the service, a replay or a bot can all
+// play by the same rules.
+public final class GameRules {
+
+  // Marbles each player starts with; the winner ends up with both stakes
+  public static final int STAKE = 10;
+  public static final int TOTAL = 2 * STAKE;
+
+  // What a state allows: the move that may be played, the player who plays it,
+  // the turn and move that follow, and the error for playing anything else.
+  // States that allow no move have a null move.
+  public record Step(Move move, Turn player, Turn nextTurn, Move nextMove, MoveError rejection) {
+  }
+
+  private static final GameStatus[] STATUSES = GameStatus.values();
+  private static final Move[] MOVES = Move.values();
+  private static final Turn[] TURNS = Turn.values();
+  // Correct guess by parity of the hidden marbles
+  private static final String[] PARITY = { "EVEN", "ODD" };
+
+  private static final Step[] TABLE = new Step[STATUSES.length * MOVES.length * TURNS.length];
+
+  static {
+    for (var status : STATUSES)
+      for (var move : MOVES)
+        for (var turn : TURNS)
+          TABLE[index(status, move, turn)] = status != GameStatus.IN_PROGRESS
+              ? new Step(null, null, null, null, MoveError.NOT_IN_PROGRESS)
+              // The hider hands over to the other player, who bets, guesses and hides next
+              : new Step(move, turn, move == Move.HIDE ? TURNS[1 - turn.ordinal()] : turn,
+                  MOVES[(move.ordinal() + 1) % MOVES.length], MoveError.currentMove(move));
+  }
+
+  private GameRules() {
+  }
+
+  private static int index(GameStatus status, Move move, Turn turn) {
+    return (status.ordinal() * MOVES.length + move.ordinal()) * TURNS.length + turn.ordinal();
+  }
+
+  public static Step step(Game game) {
+    return TABLE[index(game.getStatus(), game.getMove(), game.getTurn())];
+  }
+
+  // Why a player may not play a move on the game, or null if they may
+  public static MoveError check(Game game, Move move, String player) {
+    var step = step(game);
+    if (move != step.move())
+      return step.rejection();
+    var expected = step.player() == Turn.PLAYER_1 ? game.getPlayer1() : game.getPlayer2();
+    return expected.equals(player) ? null : MoveError.waitingFor(step.player());
+  }
+
+  // Why a count of marbles may not be hidden or bet on a checked game, or null
+  // if it may. Counts must be >0 and at most the stake of the player on turn.
+  public static MoveError checkCount(Game game, Move move, int count) {
+    if (isValidCount(count, stake(game, game.getTurn())))
+      return null;
+    return move == Move.HIDE ? MoveError.INVALID_HIDE : MoveError.INVALID_BET;
+  }
+
+  public static int stake(Game game, Turn turn) {
+    return turn == Turn.PLAYER_1 ? game.getStake1() : game.getStake2();
+  }
+
+  public static boolean isCorrect(Game game, String guess) {
+    return PARITY[game.getHidden() & 1].equals(guess);
+  }
+
+  // The same rules on plain counts, for callers that keep games as numbers,
+  // e.g. the simulator
+
+  public static boolean isValidCount(int count, int stake) {
+    return Integer.compareUnsigned(count - 1, stake) < 0;
+  }
+
+  public static boolean isCorrect(int hidden, boolean odd) {
+    return ((hidden & 1) == 1) == odd;
+  }
+
+  // Marbles the guesser takes from the hider: the bet for a correct guess, or
+  // minus the hidden marbles for a wrong one
+  public static int toGuesser(int hidden, int bet, boolean correct) {
+    return correct ? bet : -hidden;
+  }
+
+  public static boolean isOver(int stake1, int stake2) {
+    return stake1 <= 0 || stake2 <= 0;
+  }
+
+  // Next state after a checked hide
+  public static Game hide(Game current, int count) {
+    return advance(current).hidden(count).build();
+  }
+
+  // Next state after a checked bet
+  public static Game bet(Game current, int count) {
+    return advance(current).bet(count).build();
+  }
+
+  // Next state after a checked guess. A correct guess wins the bet from the
+  // hider, a wrong one loses the hidden marbles to them; the game ends when a
+  // stake runs out and otherwise a new round starts.
+  public static Game guess(Game current, String guess) {
+    var guesser = step(current).player();
+    var toGuesser = toGuesser(current.getHidden(), current.getBet(), isCorrect(current, guess));
+    // +1 if the guesser is player 1, -1 if player 2
+    var toPlayer1 = toGuesser * (1 - 2 * guesser.ordinal());
+    var stake1 = current.getStake1() + toPlayer1;
+    var stake2 = current.getStake2() - toPlayer1;
+
+    if (!isOver(stake1, stake2))
+      return advance(current).stake1(stake1).stake2(stake2).hidden(0).bet(0).build();
+
+    // The game ends as it stands, with the winner holding every marble
+    var player1Won = stake1 > 0;
+    return current.next()
+        .status(GameStatus.ENDED)
+        .winner(player1Won ? current.getPlayer1() : current.getPlayer2())
+        .stake1(player1Won ? TOTAL : 0)
+        .stake2(player1Won ? 0 : TOTAL)
+        .build();
+  }
+
+  private static Game.GameBuilder advance(Game current) {
+    var step = step(current);
+    return current.next().turn(step.nextTurn()).move(step.nextMove());
+  }
+}
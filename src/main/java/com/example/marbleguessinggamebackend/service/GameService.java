@@ -1,360 +1,265 @@
 package com.example.marbleguessinggamebackend.service;
 
-import java.util.UUID;
+import java.util.List;
+import java.util.function.Function;
 
-import com.example.marbleguessinggamebackend.exception.GameException;
+import com.example.marbleguessinggamebackend.cluster.GameRouter;
+import com.example.marbleguessinggamebackend.dto.GameEvent;
+import com.example.marbleguessinggamebackend.dto.MoveResult;
 import com.example.marbleguessinggamebackend.model.Game;
 import com.example.marbleguessinggamebackend.model.GameStatus;
 import com.example.marbleguessinggamebackend.model.Move;
 import com.example.marbleguessinggamebackend.model.Turn;
+import com.example.marbleguessinggamebackend.service.GameMetrics.Operation;
 
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
 
-@Slf4j
 @RequiredArgsConstructor
 @Service
 public class GameService {
 
+  // Each move is a function from the current game to a transition holding the
+  // next state, built with Game.next(). The GameEngine decides how moves on the
+  // same game are ordered and the registry installs the state. Games are
+  // immutable, so a published state never changes. Rounds are played by
+  // GameRules.
+
   private final GameRegistry games;
-  private final SimpMessagingTemplate mt;
-
-  // Check if guess is correct
-  private Boolean isCorrectGuess(Game game, String guess) {
-    if (game.getHidden() % 2 == 0) {
-      // Even is correct
-      if (guess.equals("EVEN"))
-        return true;
-      else
-        return false;
-    } else {
-      // Odd is correct
-      if (guess.equals("ODD"))
-        return true;
-      else
-        return false;
-    }
+  private final GameEngine engine;
+  private final GameEvictor evictor;
+  private final GameJournal journal;
+  private final GameBroadcaster broadcaster;
+  private final GameRouter router;
+  private final GameMetrics metrics;
+  private final GameEventLog eventLog;
+
+  // Notify listeners
+  private void broadcast(Transition transition) {
+    var game = transition.game();
+    var event = transition.event();
+    event.setVersion(game.getVersion());
+    broadcaster.publish(game.getGameId(), event);
+  }
+
+  // Record an installed state and notify listeners. Called in the order moves
+  // on the game were installed; the broadcaster holds the event until the
+  // journal has synced the state.
+  private void installed(Transition transition) {
+    journal.append(transition.game());
+    broadcast(transition);
   }
 
-  // Check if someone won
-  private Turn didWin(Game game) {
-    if (game.getStake1() <= 0)
-      return Turn.PLAYER_2;
-    if (game.getStake2() <= 0)
-      return Turn.PLAYER_1;
-    else
-      return null;
+  // Run a move through the engine and reply once its state is durable. A
+  // rejected move is only turned into an exception here, on the caller's
+  // thread. Its message names the game as it is now, which is the state the
+  // move was checked against unless another move got in since. The move is
+  // only logged once it is durable.
+  private Transition play(Operation operation, String gameId, String player, Function<Game, Transition> move) {
+    var start = System.nanoTime();
+    Transition transition;
+    try {
+      transition = engine.apply(gameId, move, this::installed);
+    } catch (RuntimeException e) {
+      metrics.failed(operation, e, start);
+      var error = MoveError.of(e);
+      throw error == null ? e : error.exception(operation, gameId, player, null);
+    }
+    if (transition.rejected()) {
+      var error = transition.error();
+      metrics.rejected(operation, error, start);
+      eventLog.rejected(gameId, operation, error);
+      throw error.exception(operation, gameId, player, games.getGame(gameId));
+    }
+    journal.sync();
+    metrics.accepted(operation, start);
+    eventLog.installed(gameId, transition.event());
+    return transition;
   }
 
   // Create a new game
   public String startGame(String player1) {
-    // Generate a random game id
+    // Generate a random game id owned by this node
     // Create a new game with player name and game id
-    var game = new Game(UUID.randomUUID().toString(), player1);
-    log.info("{} started a new game: {}", player1, game.getGameId());
-    games.addGame(game);
+    var game = start(Operation.START, new Game(router.newGameId(), player1));
 
     return player1 + " started a new game: " + game.getGameId();
   }
 
-  // Join an existing game
-  public Game joinGame(String gameId, String player2) {
-    // If the game with provided id does not exist the throw exception with message
-    if (!games.getGames().containsKey(gameId)) {
-      log.error("Game: {} does not exist", gameId);
-      throw new GameException("Game: " + gameId + " does not exist");
-    }
-    // Get game from games registry
-    var game = games.getGames().get(gameId);
-    // Update game state
-    if (game.getStatus().equals(GameStatus.NEW)) {
-      game.setPlayer2(player2);
-      game.setStatus(GameStatus.IN_PROGRESS);
-      game.setStake1(10);
-      game.setStake2(10);
-      // Update game registry
-      games.addGame(game);
-      log.info("Player: {} joined game: {}", player2, gameId);
-
-      // Notify listeners
-      mt.convertAndSend("/topic/gamestate/" + gameId, game);
-      return game;
-    } else {
-      log.error("Game: {} is already in progress", gameId);
-      throw new GameException("Game: " + gameId + " is already in progress");
-    }
+  // Create a game between two players paired by the Matchmaker, already in
+  // progress with player 1 to hide
+  public Game startMatch(String player1, String player2) {
+    var game = new Game(router.newGameId(), player1).toBuilder()
+        .player2(player2)
+        .status(GameStatus.IN_PROGRESS)
+        .stake1(GameRules.STAKE)
+        .stake2(GameRules.STAKE)
+        .build();
+    return start(Operation.MATCH, game);
   }
 
-  // Hide marbles
-  public String hide(int hide, String gameId, String player) {
-    if (!games.getGames().containsKey(gameId)) {
-      log.error("Game: {} does not exist", gameId);
-      throw new GameException("Game: " + gameId + " does not exist");
-    }
-    var game = games.getGames().get(gameId);
-
-    // If game is not in progress throw error with message
-    if (!game.getStatus().equals(GameStatus.IN_PROGRESS)) {
-
-      log.error("Game: {} is not in progress", game.getGameId());
-      throw new GameException("Game: " + gameId + " is not in progress");
-    }
-
-    // If current move is not hide throw error
-    var move = game.getMove();
-    if (!move.equals(Move.HIDE)) {
-      log.error("Invalid move. Current move is: {}", move);
-      throw new GameException("Invalid move. Current move is: " + move);
+  private Game start(Operation operation, Game game) {
+    var start = System.nanoTime();
+    try {
+      evictor.admit(game);
+    } catch (RuntimeException e) {
+      metrics.failed(operation, e, start);
+      throw e;
     }
+    engine.open(game.getGameId());
+    games.addGame(game);
+    journal.append(game);
+    journal.sync();
+    metrics.accepted(operation, start);
+    eventLog.started(game.getGameId(), game.getPlayer1());
+    return game;
+  }
 
-    // Check turn and hide
-    var turn = game.getTurn();
-    // Player name for current turn
-    var expectedPlayer = turn == Turn.PLAYER_1 ? game.getPlayer1() : game.getPlayer2();
-    // Check if correct player is playing the move else throw error
-    if ((turn.equals(Turn.PLAYER_1) && !game.getPlayer1().equals(player))
-        || (turn.equals(Turn.PLAYER_2) && !game.getPlayer2().equals(player))) {
-      // Invalid turn
-      log.error("Invalid turn. Waiting for player: {} to play", expectedPlayer);
-      throw new GameException("Invalid turn. Waiting for " + expectedPlayer + " to play");
-    } else {
-      // If correct turn then hide
-      // Get the stake for current player
-      var stake = turn.equals(Turn.PLAYER_1) ? game.getStake1() : game.getStake2();
-      if (hide > stake || hide <= 0) {
-        log.error("Can only hide marbles >0 and <= {}", stake);
-        throw new GameException("Invalid count. Can only hide marbles >0 and <=" + stake);
+  // Join an existing game
+  public Game joinGame(String gameId, String player2) {
+    return play(Operation.JOIN, gameId, player2, current -> {
+      // A player can't join their own game
+      if (player2.equals(current.getPlayer1()))
+        return MoveError.ALREADY_PLAYING.rejection();
+      // Update game state
+      if (current.getStatus().equals(GameStatus.NEW)) {
+        var game = current.next()
+            .player2(player2)
+            .status(GameStatus.IN_PROGRESS)
+            .stake1(GameRules.STAKE)
+            .stake2(GameRules.STAKE)
+            .build();
+
+        return new Transition(game, GameEvent.joined(player2));
       } else {
-        // Update state
-        game.setHidden(hide);
-        game.setTurn(turn.equals(Turn.PLAYER_1) ? Turn.PLAYER_2 : Turn.PLAYER_1);
-        game.setMove(Move.BET);
-        // Update game registry
-        games.addGame(game);
-        log.info("Player: {} hid {} marbles", player, hide);
-
-        // Notify listeners
-        mt.convertAndSend("/topic/gamestate/" + gameId, game);
-        return player + " hid: " + hide + " marbles";
+        return MoveError.ALREADY_IN_PROGRESS.rejection();
       }
-    }
+    }).game();
   }
 
-  // Bet marbles
-  public String bet(int bet, String gameId, String player) {
-    if (!games.getGames().containsKey(gameId)) {
-      log.error("Game: {} does not exist", gameId);
-      throw new GameException("Game: " + gameId + " does not exist");
-    }
-    var game = games.getGames().get(gameId);
-
-    if (!game.getStatus().equals(GameStatus.IN_PROGRESS)) {
-
-      log.error("Game: {} is not in progress", game.getGameId());
-      throw new GameException("Game " + gameId + " is not in progress");
-    }
-
-    var move = game.getMove();
-    if (!move.equals(Move.BET)) {
-      log.error("Invalid move. Current move is: {}", move);
-      throw new GameException("Invalid move. Current move is: " + move);
-    }
+  // Hide marbles
+  public MoveResult hide(int hide, String gameId, String player) {
+    var result = play(Operation.HIDE, gameId, player, current -> {
+      // Reject the move unless it is this player's turn to hide that many marbles
+      var error = GameRules.check(current, Move.HIDE, player);
+      if (error == null)
+        error = GameRules.checkCount(current, Move.HIDE, hide);
+      if (error != null)
+        return error.rejection();
+
+      var game = GameRules.hide(current, hide);
+
+      return new Transition(game, GameEvent.hidden(player));
+    }).result();
+    // Only the hider is told how many marbles they hid
+    result.setHidden(hide);
+    return result;
+  }
 
-    // Check turn and bet
-    var turn = game.getTurn();
-    var expectedPlayer = turn == Turn.PLAYER_1 ? game.getPlayer1() : game.getPlayer2();
-    if ((turn.equals(Turn.PLAYER_1) && !game.getPlayer1().equals(player))
-        || (turn.equals(Turn.PLAYER_2) && !game.getPlayer2().equals(player))) {
-      // Invalid turn
-      log.error("Invalid turn. Waiting for player: {} to play", expectedPlayer);
-      throw new GameException("Invalid turn. Waiting for " + expectedPlayer + " to play");
-    } else {
-      // Get stake for current player and bet
-      var stake = turn.equals(Turn.PLAYER_1) ? game.getStake1() : game.getStake2();
-      if (bet > stake || bet <= 0) {
-        log.error("Can only bet marbles >0 and <= {}", stake);
-        throw new GameException("Invalid count. Can only bet marbles >0 and <=" + stake);
-      } else {
-        // Update game state
-        game.setBet(bet);
-        game.setMove(Move.GUESS);
-        // Update game registry
-        games.addGame(game);
-        log.info("Player: {} bet {} marbles", player, bet);
-
-        // Notify listeners
-        mt.convertAndSend("/topic/gamestate/" + gameId, game);
-        return player + " bet: " + bet + " marbles";
-      }
-    }
+  // Bet marbles
+  public MoveResult bet(int bet, String gameId, String player) {
+    return play(Operation.BET, gameId, player, current -> {
+      var error = GameRules.check(current, Move.BET, player);
+      if (error == null)
+        error = GameRules.checkCount(current, Move.BET, bet);
+      if (error != null)
+        return error.rejection();
+
+      var game = GameRules.bet(current, bet);
+
+      return new Transition(game, GameEvent.betPlaced(player, bet));
+    }).result();
   }
 
   // Guess marbles
-  public String guess(String gameId, String player, String guess) {
-    if (!games.getGames().containsKey(gameId)) {
-      log.error("Game: {} does not exist", gameId);
-      throw new GameException("Game: " + gameId + " does not exist");
-    }
-    var game = games.getGames().get(gameId);
-
-    if (!game.getStatus().equals(GameStatus.IN_PROGRESS)) {
-
-      log.error("Game: {} is not in progress", game.getGameId());
-      throw new GameException("Game: " + gameId + " is not in progress");
-    }
-
-    var move = game.getMove();
-    if (!move.equals(Move.GUESS)) {
-      log.error("Invalid move. Current move is: {}", move);
-      throw new GameException("Invalid move. Current move is: " + move);
-    }
-
-    // Check turn and guess
-    var turn = game.getTurn();
-    var expectedPlayer = turn == Turn.PLAYER_1 ? game.getPlayer1() : game.getPlayer2();
-    if ((turn.equals(Turn.PLAYER_1) && !game.getPlayer1().equals(player))
-        || (turn.equals(Turn.PLAYER_2) && !game.getPlayer2().equals(player))) {
-      // Invalid turn
-      log.error("Invalid turn. Waiting for player: {} to play", expectedPlayer);
-      throw new GameException("Invalid turn. Waiting for " + expectedPlayer + " to play");
-    } else {
-      // Check guess
-      var isCorrect = isCorrectGuess(game, guess);
-      if (isCorrect) {
-        // Correct guess
-        if (turn.equals(Turn.PLAYER_1)) {
-          // Player 1 guessed correctly
-          game.setStake1(game.getStake1() + game.getBet());
-          game.setStake2(game.getStake2() - game.getBet());
-          log.info("Player: {} guessed correctly", player);
-        } else {
-          // Player 2 guessed correctly
-          game.setStake2(game.getStake2() + game.getBet());
-          game.setStake1(game.getStake1() - game.getBet());
-          log.info("Player: {} guessed correctly", player);
-        }
-      } else {
-        // Wrong guess
-        if (turn.equals(Turn.PLAYER_1)) {
-          // Player 1 guessed incorrectly
-          game.setStake1(game.getStake1() - game.getHidden());
-          game.setStake2(game.getStake2() + game.getHidden());
-          log.info("Player: {} guessed incorrectly", player);
-        } else {
-          // Player 2 guessed incorrectly
-          game.setStake2(game.getStake2() - game.getHidden());
-          game.setStake1(game.getStake1() + game.getHidden());
-          log.info("Player: {} guessed incorrectly", player);
-        }
+  public MoveResult guess(String gameId, String player, String guess) {
+    return play(Operation.GUESS, gameId, player, current -> {
+      var error = GameRules.check(current, Move.GUESS, player);
+      if (error != null)
+        return error.rejection();
+
+      var isCorrect = GameRules.isCorrect(current, guess);
+      var game = GameRules.guess(current, guess);
+      var delta = game.getStake1() - current.getStake1();
+
+      if (game.getStatus() == GameStatus.ENDED) {
+        var event = GameEvent.gameWon(player, guess, isCorrect, current.getHidden(), delta, game.getWinner());
+        return new Transition(game, event);
       }
-
-      // Check if somebody won
-      var winner = didWin(game);
-      if (winner != null) {
-        // Someone won
-        // End game
-        // Set winner
-        game.setStatus(GameStatus.ENDED);
-        if (winner.equals(Turn.PLAYER_1)) {
-          // Player 1 won the game
-          game.setWinner(game.getPlayer1());
-          game.setStake1(20);
-          game.setStake2(0);
-          // Update game registry
-          games.addGame(game);
-          log.info("Player: {} won the game", game.getPlayer1());
-
-          // Notify listeners
-          mt.convertAndSend("/topic/gamestate/" + gameId, game);
-          return winner + " won the game";
-        } else {
-          // Player 2 won the game
-          game.setWinner(game.getPlayer2());
-          game.setStake2(20);
-          game.setStake1(0);
-          // Update game registry
-          games.addGame(game);
-          log.info("Player: {} won the game", game.getPlayer2());
-
-          // Notify listeners
-          mt.convertAndSend("/topic/gamestate/" + gameId, game);
-          return winner + " won the game";
-        }
-      } else {
-        // No one won so proceed to next round
-        game.setHidden(0);
-        game.setBet(0);
-        game.setMove(Move.HIDE);
-        // Update game registry
-        games.addGame(game);
-
-        // Notify listeners
-        mt.convertAndSend("/topic/gamestate/" + gameId, game);
-        var result = isCorrect ? "correctly" : "incorrectly";
-        return player + " guessed " + result;
-      }
-    }
+      // No one won so proceed to next round
+      var event = GameEvent.guessResolved(player, guess, isCorrect, current.getHidden(), delta);
+      return new Transition(game, event);
+    }).result();
   }
 
   // Restart game
-  public String restartGame(String gameId, String player) {
-    if (!games.getGames().containsKey(gameId)) {
-      log.error("Game: {} does not exist", gameId);
-      throw new GameException("Game: " + gameId + " does not exist");
-    }
-    var game = games.getGames().get(gameId);
-    // Check if restart request is from player playing the game
-    if (!player.equals(game.getPlayer1()) && !player.equals(game.getPlayer2())) {
-      log.error("Can't restart game: {} as player: {} is not playing", gameId, player);
+  public MoveResult restartGame(String gameId, String player) {
+    return play(Operation.RESTART, gameId, player, current -> {
+      // Check if restart request is from player playing the game
+      if (!player.equals(current.getPlayer1()) && !player.equals(current.getPlayer2()))
+        return MoveError.NOT_PLAYING.rejection();
+      // Update game state
+      var game = current.next()
+          .status(GameStatus.IN_PROGRESS)
+          .stake1(GameRules.STAKE)
+          .stake2(GameRules.STAKE)
+          .turn(Turn.PLAYER_1)
+          .move(Move.HIDE)
+          .hidden(0)
+          .bet(0)
+          .winner(null)
+          .build();
+
+      return new Transition(game, GameEvent.restarted(player));
+    }).result();
+  }
 
-      throw new GameException("Can't restart as " + player + " is not playing the game: " + gameId);
+  // Quit game
+  public MoveResult quitGame(String gameId, String player) {
+    var transition = play(Operation.QUIT, gameId, player, current -> {
+      // Check if player is playing the game
+      if (player.equals(current.getPlayer1()) || player.equals(current.getPlayer2())) {
+        // Set winner null if someone has already won
+        // This is to differentiate between quit game state and game state when
+        // somebody won
+        var game = current.next()
+            .status(GameStatus.ENDED)
+            .winner(null)
+            .build();
+
+        return new Transition(game, GameEvent.quit(player));
+      } else {
+        // Reject the move if player is not part of the game
+        return MoveError.NOT_PLAYING.rejection();
+      }
+    });
+    // Update game registry. Moves that arrive after the quit find the game ended
+    // or gone. If a later move replaced the quit state the game stays, and so
+    // does its mailbox.
+    if (games.removeGame(transition.game())) {
+      journal.remove(transition.game());
+      journal.sync();
+      engine.close(gameId);
     }
-    // Update game state
-    game.setStatus(GameStatus.IN_PROGRESS);
-    game.setStake1(10);
-    game.setStake2(10);
-    game.setTurn(Turn.PLAYER_1);
-    game.setMove(Move.HIDE);
-    game.setHidden(0);
-    game.setBet(0);
-    game.setWinner(null);
-    // Update game registry
-    games.addGame(game);
-    log.info("Restarting game: {}", gameId);
 
-    // Notify listeners
-    mt.convertAndSend("/topic/gamestate/" + gameId, game);
-    return player + " restarted game: " + gameId;
+    return transition.result();
   }
 
-  // Quit game
-  public String quitGame(String gameId, String player) {
-    if (!games.getGames().containsKey(gameId)) {
-      log.error("Game: {} does not exist", gameId);
-      throw new GameException("Game: " + gameId + " does not exist");
-    }
-    var game = games.getGames().get(gameId);
-    // Check if player is playing the game
-    if (player.equals(game.getPlayer1()) || player.equals(game.getPlayer2())) {
-      log.info("Player: {} quit the game", player);
-      game.setStatus(GameStatus.ENDED);
-      // Set winner null if someone has already won
-      // This is to differentiate between quit game state and game state when somebody
-      // won
-      game.setWinner(null);
-      // Update game registry
-      games.removeGame(game);
-
-      // Notify listeners
-      mt.convertAndSend("/topic/gamestate/" + gameId, game);
-      return player + " quit game: " + gameId;
-    } else {
-      // Return error is player is not part of the game
-      log.error("Player: {} is not playing game: {}", player, gameId);
-      throw new GameException(player + " is not playing the game: " + gameId);
-    }
+  // Games a player is in, without secrets
+  public List<Game> playerGames(String player) {
+    var playing = games.gamesOf(player);
+    playing.replaceAll(Game::withoutSecrets);
+    return playing;
+  }
+
+  // Current state of a game. Only the player who hid the marbles sees how many
+  // until the guess is resolved.
+  public Game snapshot(String gameId, String player) {
+    var game = games.getGame(gameId);
+    if (game == null)
+      throw MoveError.GAME_NOT_FOUND.exception(gameId);
+    var hider = game.getTurn() == Turn.PLAYER_1 ? game.getPlayer2() : game.getPlayer1();
+    return game.getMove() != Move.HIDE && hider.equals(player) ? game : game.withoutSecrets();
   }
 }
@@ -0,0 +1,49 @@
+package com.example.marbleguessinggamebackend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Splits games into game.shards shards by jump consistent hashing of the game
+// id, so changing the shard count only moves the games the new shards take.
+// The sharded engine and store use the same split, so a shard's games are only
+// written by the thread of that shard.
+@Component
+public class GameShards {
+
+  private final int count;
+
+  public GameShards(@Value("${game.shards:0}") int shards) {
+    // Default to one shard per core
+    count = shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+  }
+
+  public int count() {
+    return count;
+  }
+
+  public int shard(String gameId) {
+    return jump(mix(gameId.hashCode()), count);
+  }
+
+  // Spread the bits of String.hashCode, which is weak in the high bits
+  private static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  // Lamping and Veach, "A Fast, Minimal Memory, Consistent Hash Algorithm"
+  private static int jump(long key, int buckets) {
+    long bucket = -1;
+    long next = 0;
+    while (next < buckets) {
+      bucket = next;
+      key = key * 2862933555777941757L + 1;
+      next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+    }
+    return (int) bucket;
+  }
+}
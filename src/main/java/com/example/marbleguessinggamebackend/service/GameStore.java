@@ -0,0 +1,21 @@
+package com.example.marbleguessinggamebackend.service;
+
+import com.example.marbleguessinggamebackend.model.Game;
+
+// Storage of the current state of each game, keyed by game id. Selected with
+// the game.store property. Stores may hand out copies, so a state is matched by
+// its version rather than by identity.
+public interface GameStore extends Iterable<Game> {
+
+  Game get(String gameId);
+
+  void put(Game game);
+
+  // Replace the state of a game if it still has the expected version
+  boolean replace(Game expected, Game next);
+
+  // Remove a game if it still has the expected version
+  boolean remove(Game expected);
+
+  int size();
+}
@@ -0,0 +1,43 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.example.marbleguessinggamebackend.model.Game;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+// Default engine. Moves on a game run one at a time on its mailbox, so the
+// registry never sees a conflicting update and listeners are notified in the
+// order the moves were applied.
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "game.engine", havingValue = "mailbox", matchIfMissing = true)
+@Component
+public class MailboxGameEngine implements GameEngine {
+
+  private final GameRegistry games;
+  private final GameExecutor executor;
+
+  @Override
+  public void open(String gameId) {
+    executor.register(gameId);
+  }
+
+  @Override
+  public void close(String gameId) {
+    executor.unregister(gameId);
+  }
+
+  @Override
+  public Transition apply(String gameId, Function<Game, Transition> move, Consumer<Transition> onInstalled) {
+    return executor.execute(gameId, () -> {
+      var transition = games.update(gameId, move);
+      if (!transition.rejected())
+        onInstalled.accept(transition);
+      return transition;
+    });
+  }
+}
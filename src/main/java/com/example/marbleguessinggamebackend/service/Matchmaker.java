@@ -0,0 +1,132 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.example.marbleguessinggamebackend.model.Game;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// Pairs players who ask for a quick match. At most one player waits, in a
+// single slot: the next player to arrive takes them out of it with a CAS and
+// the two are paired, so no lock is held and a backlog of waiting players never
+// forms. Each arrival either pairs with the waiting player or becomes it. A
+// player who asks again while waiting gets the same pending match.
+//
+// The waiting player plays first. Their game is created in progress and the
+// match of both players completes with it.
+@Component
+public class Matchmaker {
+
+  private final GameService gs;
+  private final AtomicReference<Waiter> waiting = new AtomicReference<>();
+
+  private final Counter requests;
+  private final Counter matches;
+  private final Counter cancelled;
+  private final Timer wait;
+
+  private static final class Waiter {
+
+    final String player;
+    // STOMP session that asked, null for REST
+    final String sessionId;
+    final long queuedAt = System.nanoTime();
+    final CompletableFuture<Game> match = new CompletableFuture<>();
+
+    Waiter(String player, String sessionId) {
+      this.player = player;
+      this.sessionId = sessionId;
+    }
+  }
+
+  public Matchmaker(GameService gs, MeterRegistry meters) {
+    this.gs = gs;
+    requests = Counter.builder("matchmaking.requests")
+        .description("Players who asked for a match")
+        .register(meters);
+    matches = Counter.builder("matchmaking.matches")
+        .description("Games started between paired players")
+        .register(meters);
+    cancelled = Counter.builder("matchmaking.cancelled")
+        .description("Players who stopped waiting for a match")
+        .register(meters);
+    wait = Timer.builder("matchmaking.wait")
+        .description("Time the first player of a match waited for the second")
+        .register(meters);
+    Gauge.builder("matchmaking.waiting", waiting, slot -> slot.get() == null ? 0 : 1)
+        .description("Players waiting for a match")
+        .register(meters);
+  }
+
+  // Game of the player once they are paired. Fails with the error if the game
+  // can't be started, and is cancelled if the player stops waiting.
+  public CompletableFuture<Game> matchmake(String player, String sessionId) {
+    requests.increment();
+    Waiter self = null;
+    while (true) {
+      var waiter = waiting.get();
+      if (waiter == null) {
+        if (self == null)
+          self = new Waiter(player, sessionId);
+        if (waiting.compareAndSet(null, self))
+          return self.match;
+      } else if (waiter.player.equals(player)) {
+        return waiter.match;
+      } else if (waiting.compareAndSet(waiter, null)) {
+        wait.record(System.nanoTime() - waiter.queuedAt, TimeUnit.NANOSECONDS);
+        return pair(waiter, player);
+      }
+    }
+  }
+
+  private CompletableFuture<Game> pair(Waiter waiter, String player) {
+    try {
+      var game = gs.startMatch(waiter.player, player);
+      matches.increment();
+      waiter.match.complete(game);
+      return CompletableFuture.completedFuture(game);
+    } catch (RuntimeException e) {
+      waiter.match.completeExceptionally(e);
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  // Stop waiting for a match. Returns false if the player was not waiting,
+  // e.g. because they were just paired.
+  public boolean cancel(String player) {
+    var waiter = waiting.get();
+    return waiter != null && waiter.player.equals(player) && cancel(waiter);
+  }
+
+  // Stop waiting for the match, if it is still the one waiting. Unlike
+  // cancel(player), a late call can't cancel a later request of the player.
+  public boolean cancel(CompletableFuture<Game> match) {
+    var waiter = waiting.get();
+    return waiter != null && waiter.match == match && cancel(waiter);
+  }
+
+  private boolean cancel(Waiter waiter) {
+    if (!waiting.compareAndSet(waiter, null))
+      return false;
+    cancelled.increment();
+    waiter.match.cancel(false);
+    return true;
+  }
+
+  // A player whose connection closed can't be told about a match
+  @EventListener
+  public void disconnected(SessionDisconnectEvent event) {
+    var waiter = waiting.get();
+    if (waiter != null && event.getSessionId().equals(waiter.sessionId))
+      cancel(waiter);
+  }
+}
@@ -0,0 +1,142 @@
+package com.example.marbleguessinggamebackend.service;
+
+import com.example.marbleguessinggamebackend.exception.GameException;
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.model.Move;
+import com.example.marbleguessinggamebackend.model.Turn;
+import com.example.marbleguessinggamebackend.service.GameMetrics.Operation;
+
+// Reasons a move is rejected. Rejections are part of normal play, so each one
+// is built once: moves return its transition instead of throwing, and the
+// service throws an exception, which has no stack trace to fill in, only at
+// the edge where the caller needs an error. The exception keeps what the
+// message names, the game and player, and only builds the message when it is
+// read, e.g. to serialize the error.
+public enum MoveError {
+
+  GAME_NOT_FOUND("Game does not exist",
+      (operation, gameId, player, game) -> "Game: " + gameId + " does not exist"),
+  ALREADY_PLAYING("Player is already playing the game",
+      (operation, gameId, player, game) -> player + " is already playing the game: " + gameId),
+  ALREADY_IN_PROGRESS("Game is already in progress",
+      (operation, gameId, player, game) -> "Game: " + gameId + " is already in progress"),
+  NOT_IN_PROGRESS("Game is not in progress",
+      (operation, gameId, player, game) -> "Game: " + gameId + " is not in progress"),
+  CURRENT_MOVE_HIDE("Invalid move. Current move is: HIDE", null),
+  CURRENT_MOVE_BET("Invalid move. Current move is: BET", null),
+  CURRENT_MOVE_GUESS("Invalid move. Current move is: GUESS", null),
+  WAITING_FOR_PLAYER_1("Invalid turn. Waiting for player 1 to play",
+      (operation, gameId, player, game) -> "Invalid turn. Waiting for " + game.getPlayer1() + " to play"),
+  WAITING_FOR_PLAYER_2("Invalid turn. Waiting for player 2 to play",
+      (operation, gameId, player, game) -> "Invalid turn. Waiting for " + game.getPlayer2() + " to play"),
+  INVALID_HIDE("Invalid count. Can only hide marbles >0 and <= your stake",
+      (operation, gameId, player, game) -> "Invalid count. Can only hide marbles >0 and <="
+          + GameRules.stake(game, game.getTurn())),
+  INVALID_BET("Invalid count. Can only bet marbles >0 and <= your stake",
+      (operation, gameId, player, game) -> "Invalid count. Can only bet marbles >0 and <="
+          + GameRules.stake(game, game.getTurn())),
+  NOT_PLAYING("Player is not playing the game",
+      (operation, gameId, player, game) -> operation == Operation.RESTART
+          ? "Can't restart as " + player + " is not playing the game: " + gameId
+          : player + " is not playing the game: " + gameId),
+  TOO_MANY_GAMES("Too many games in progress. Try again later", null);
+
+  private static final MoveError[] VALUES = values();
+
+  private final String message;
+  // The message naming the game and player, or null if it names neither
+  private final Detail detail;
+  private final GameException exception;
+  private final Transition rejection;
+
+  MoveError(String message, Detail detail) {
+    this.message = message;
+    this.detail = detail;
+    exception = new GameException(message, false);
+    rejection = new Transition(null, null, this);
+  }
+
+  @FunctionalInterface
+  private interface Detail {
+    String message(Operation operation, String gameId, String player, Game game);
+  }
+
+  public String message() {
+    return message;
+  }
+
+  // The message without details, shared by every rejection for this reason
+  public GameException exception() {
+    return exception;
+  }
+
+  // The exception for a rejected operation by the player on the game. The game
+  // is the state the move was checked against, or null if there is none.
+  public GameException exception(Operation operation, String gameId, String player, Game game) {
+    if (detail == null || (game == null && needsGame()))
+      return exception;
+    return new Rejected(this, operation, gameId, player, game);
+  }
+
+  // The exception for an error that only names the game
+  public GameException exception(String gameId) {
+    return exception(null, gameId, null, null);
+  }
+
+  private boolean needsGame() {
+    return this == WAITING_FOR_PLAYER_1 || this == WAITING_FOR_PLAYER_2 || this == INVALID_HIDE
+        || this == INVALID_BET;
+  }
+
+  public Transition rejection() {
+    return rejection;
+  }
+
+  // The error an exception stands for, or null if it isn't one of these
+  public static MoveError of(RuntimeException e) {
+    if (e instanceof Rejected rejected)
+      return rejected.error;
+    for (var error : VALUES)
+      if (error.exception == e)
+        return error;
+    return null;
+  }
+
+  static MoveError currentMove(Move move) {
+    switch (move) {
+    case HIDE:
+      return CURRENT_MOVE_HIDE;
+    case BET:
+      return CURRENT_MOVE_BET;
+    default:
+      return CURRENT_MOVE_GUESS;
+    }
+  }
+
+  static MoveError waitingFor(Turn turn) {
+    return turn == Turn.PLAYER_1 ? WAITING_FOR_PLAYER_1 : WAITING_FOR_PLAYER_2;
+  }
+
+  private static final class Rejected extends GameException {
+
+    final MoveError error;
+    private final Operation operation;
+    private final String gameId;
+    private final String player;
+    private final Game game;
+
+    Rejected(MoveError error, Operation operation, String gameId, String player, Game game) {
+      super(error.message, false);
+      this.error = error;
+      this.operation = operation;
+      this.gameId = gameId;
+      this.player = player;
+      this.game = game;
+    }
+
+    @Override
+    public String getMessage() {
+      return error.detail.message(operation, gameId, player, game);
+    }
+  }
+}
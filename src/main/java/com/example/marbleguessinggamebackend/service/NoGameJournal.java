@@ -0,0 +1,10 @@
+package com.example.marbleguessinggamebackend.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Default journal. Games only live in memory.
+@ConditionalOnProperty(name = "game.journal.enabled", havingValue = "false", matchIfMissing = true)
+@Component
+public class NoGameJournal implements GameJournal {
+}
@@ -0,0 +1,19 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// 63 random bits from the calling thread's generator, so creators share no
+// state. Ids can't be guessed from each other but don't sort by creation
+// time, and two games get the same id with odds of about n^2 / 2^64.
+@ConditionalOnProperty(name = "game.ids", havingValue = "random")
+@Component
+public class RandomIdGenerator implements GameIdGenerator {
+
+  @Override
+  public String next() {
+    return GameIds.encode(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE);
+  }
+}
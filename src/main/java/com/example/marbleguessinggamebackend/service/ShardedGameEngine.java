@@ -0,0 +1,100 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.annotation.PreDestroy;
+
+import com.example.marbleguessinggamebackend.model.Game;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// Engine with one writer thread per shard. Every move on a game runs on the
+// thread of its shard, so moves on a game are applied in arrival order, moves
+// on different shards never contend and the games of a shard stay in the cache
+// of the core running its thread. Pair with game.store=sharded so each shard
+// also has its own map.
+@ConditionalOnProperty(name = "game.engine", havingValue = "sharded")
+@Component
+public class ShardedGameEngine implements GameEngine {
+
+  private final GameRegistry games;
+  private final GameShards shards;
+  private final Shard[] writers;
+
+  public ShardedGameEngine(GameRegistry games, GameShards shards, MeterRegistry meters) {
+    this.games = games;
+    this.shards = shards;
+    writers = new Shard[shards.count()];
+    for (int i = 0; i < writers.length; i++)
+      writers[i] = new Shard(i, meters);
+  }
+
+  @Override
+  public Transition apply(String gameId, Function<Game, Transition> move, Consumer<Transition> onInstalled) {
+    var shard = writers[shards.shard(gameId)];
+    var queued = System.nanoTime();
+    var result = CompletableFuture.supplyAsync(() -> {
+      try {
+        var transition = games.update(gameId, move);
+        if (!transition.rejected())
+          onInstalled.accept(transition);
+        return transition;
+      } finally {
+        shard.latency.record(System.nanoTime() - queued, TimeUnit.NANOSECONDS);
+      }
+    }, shard.executor);
+
+    try {
+      return result.join();
+    } catch (CompletionException e) {
+      // Rethrow what the move threw so callers see the original exception
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      if (e.getCause() instanceof Error)
+        throw (Error) e.getCause();
+      throw e;
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    for (var shard : writers)
+      shard.executor.shutdown();
+  }
+
+  private static class Shard {
+
+    final ThreadPoolExecutor executor;
+    // Time from a move being queued to it being installed
+    final Timer latency;
+
+    Shard(int index, MeterRegistry meters) {
+      executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+        var thread = new Thread(r, "game-shard-" + index);
+        thread.setDaemon(true);
+        return thread;
+      });
+      var shard = String.valueOf(index);
+      Gauge.builder("game.shard.queue", executor.getQueue(), BlockingQueue::size)
+          .tag("shard", shard)
+          .description("Moves waiting for the shard's writer")
+          .register(meters);
+      latency = Timer.builder("game.shard.latency")
+          .tag("shard", shard)
+          .description("Time from a move being queued to it being installed")
+          .register(meters);
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Default generator. Ids are 63 bits:
+//
+//   milliseconds since 2022 (41) | node (4) | stripe (6) | sequence (12)
+//
+// Threads are spread over 64 stripes, each with its own clock and sequence, so
+// creators rarely update the same counter. A stripe that runs out of sequence
+// numbers in a millisecond borrows the next one, so ids stay unique and ordered
+// within a stripe, and roughly ordered by creation time overall.
+@ConditionalOnProperty(name = "game.ids", havingValue = "time", matchIfMissing = true)
+@Component
+public class TimeOrderedIdGenerator implements GameIdGenerator {
+
+  private static final long EPOCH = 1640995200000L;
+
+  private static final int SEQUENCE_BITS = 12;
+  private static final int STRIPE_BITS = 6;
+  private static final int NODE_BITS = 4;
+  private static final int STRIPES = 1 << STRIPE_BITS;
+  // Longs between stripes, so each stripe has its own cache line
+  private static final int PAD = 8;
+
+  private final long node;
+  // Per stripe: milliseconds << SEQUENCE_BITS | sequence of its last id
+  private final AtomicLongArray stripes = new AtomicLongArray(STRIPES * PAD);
+
+  public TimeOrderedIdGenerator(@Value("${game.cluster.node:0}") int node) {
+    if (node < 0 || node >= 1 << NODE_BITS)
+      throw new IllegalArgumentException("Time-ordered ids support up to " + (1 << NODE_BITS) + " nodes");
+    this.node = node;
+  }
+
+  @Override
+  public String next() {
+    return GameIds.encode(nextLong());
+  }
+
+  long nextLong() {
+    var stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+    var index = stripe * PAD;
+    var now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+    long last;
+    long next;
+    do {
+      last = stripes.get(index);
+      next = Math.max(now, last + 1);
+    } while (!stripes.compareAndSet(index, last, next));
+
+    var millis = next >>> SEQUENCE_BITS;
+    var sequence = next & ((1 << SEQUENCE_BITS) - 1);
+    return millis << (NODE_BITS + STRIPE_BITS + SEQUENCE_BITS)
+        | node << (STRIPE_BITS + SEQUENCE_BITS)
+        | (long) stripe << SEQUENCE_BITS
+        | sequence;
+  }
+}
@@ -0,0 +1,23 @@
+package com.example.marbleguessinggamebackend.service;
+
+import com.example.marbleguessinggamebackend.dto.GameEvent;
+import com.example.marbleguessinggamebackend.dto.MoveResult;
+import com.example.marbleguessinggamebackend.model.Game;
+
+// Result of a move: the next state of the game and the event for listeners, or
+// the error if the move was rejected
+public record Transition(Game game, GameEvent event, MoveError error) {
+
+  public Transition(Game game, GameEvent event) {
+    this(game, event, null);
+  }
+
+  public boolean rejected() {
+    return error != null;
+  }
+
+  // Reply to the player who made the move
+  public MoveResult result() {
+    return MoveResult.of(game, event);
+  }
+}
@@ -0,0 +1,18 @@
+package com.example.marbleguessinggamebackend.service;
+
+import java.util.UUID;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Random UUIDs, as game ids were before. Every id goes through the shared
+// SecureRandom and stores key it by hash.
+@ConditionalOnProperty(name = "game.ids", havingValue = "uuid")
+@Component
+public class UuidIdGenerator implements GameIdGenerator {
+
+  @Override
+  public String next() {
+    return UUID.randomUUID().toString();
+  }
+}
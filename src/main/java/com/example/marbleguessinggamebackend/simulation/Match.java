@@ -0,0 +1,91 @@
+package com.example.marbleguessinggamebackend.simulation;
+
+import java.util.SplittableRandom;
+
+import com.example.marbleguessinggamebackend.service.GameRules;
+
+// A game between two bots, kept as a few counts and played by GameRules. One
+// match is reset and replayed for every game a worker plays, so a game
+// allocates nothing. Seat 0 is player 1 and hides first; after each round the
+// guesser hides next, as in a real game.
+//
+// Each seat also sees what its opponent did, which is all a bot knows beyond
+// the stakes: how many of their hides were odd and how many of their guesses.
+public final class Match {
+
+  private final int[] stakes = new int[2];
+  private final int[] hides = new int[2];
+  private final int[] oddHides = new int[2];
+  private final int[] guesses = new int[2];
+  private final int[] oddGuesses = new int[2];
+  private int rounds;
+
+  public void reset(int stake) {
+    for (int seat = 0; seat < 2; seat++) {
+      stakes[seat] = stake;
+      hides[seat] = 0;
+      oddHides[seat] = 0;
+      guesses[seat] = 0;
+      oddGuesses[seat] = 0;
+    }
+    rounds = 0;
+  }
+
+  public int stake(int seat) {
+    return stakes[seat];
+  }
+
+  public int rounds() {
+    return rounds;
+  }
+
+  // Hides and odd hides of the opponent of a seat
+  public int opponentHides(int seat) {
+    return hides[seat];
+  }
+
+  public int opponentOddHides(int seat) {
+    return oddHides[seat];
+  }
+
+  // Guesses and odd guesses of the opponent of a seat
+  public int opponentGuesses(int seat) {
+    return guesses[seat];
+  }
+
+  public int opponentOddGuesses(int seat) {
+    return oddGuesses[seat];
+  }
+
+  // Plays rounds until a stake runs out. Returns the seat that won, or -1 if
+  // the game was still going after maxRounds.
+  public int play(Strategy first, Strategy second, SplittableRandom random, int maxRounds) {
+    var hider = 0;
+    while (rounds < maxRounds) {
+      var guesser = 1 - hider;
+      var hidden = (hider == 0 ? first : second).hide(this, hider, random);
+      if (!GameRules.isValidCount(hidden, stakes[hider]))
+        throw new IllegalStateException("Can't hide " + hidden + " of " + stakes[hider]);
+      var bot = guesser == 0 ? first : second;
+      var bet = bot.bet(this, guesser, random);
+      if (!GameRules.isValidCount(bet, stakes[guesser]))
+        throw new IllegalStateException("Can't bet " + bet + " of " + stakes[guesser]);
+      var odd = bot.guessOdd(this, guesser, random);
+
+      var toGuesser = GameRules.toGuesser(hidden, bet, GameRules.isCorrect(hidden, odd));
+      stakes[guesser] += toGuesser;
+      stakes[hider] -= toGuesser;
+      hides[guesser]++;
+      oddHides[guesser] += hidden & 1;
+      guesses[hider]++;
+      if (odd)
+        oddGuesses[hider]++;
+      rounds++;
+
+      if (GameRules.isOver(stakes[0], stakes[1]))
+        return stakes[0] > 0 ? 0 : 1;
+      hider = guesser;
+    }
+    return -1;
+  }
+}
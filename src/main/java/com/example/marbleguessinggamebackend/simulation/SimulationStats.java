@@ -0,0 +1,91 @@
+package com.example.marbleguessinggamebackend.simulation;
+
+// Outcomes of simulated games between two strategies, a and b. Strategies swap
+// seats every game, so wins by strategy are free of the edge of hiding first,
+// which is counted on its own. Each batch of games keeps its own stats, merged
+// once the batches are done.
+public final class SimulationStats {
+
+  // Games of up to this many rounds are counted by length; longer ones share
+  // the last count
+  private static final int LENGTHS = 512;
+
+  private long games;
+  private long winsA;
+  private long winsB;
+  private long firstHiderWins;
+  private long unfinished;
+  private long rounds;
+  private int maxRounds;
+  private final long[] lengths = new long[LENGTHS + 1];
+
+  void add(int winner, boolean aFirst, int gameRounds) {
+    games++;
+    if (winner < 0)
+      unfinished++;
+    else {
+      if ((winner == 0) == aFirst)
+        winsA++;
+      else
+        winsB++;
+      if (winner == 0)
+        firstHiderWins++;
+    }
+    rounds += gameRounds;
+    maxRounds = Math.max(maxRounds, gameRounds);
+    lengths[Math.min(gameRounds, LENGTHS)]++;
+  }
+
+  SimulationStats merge(SimulationStats other) {
+    games += other.games;
+    winsA += other.winsA;
+    winsB += other.winsB;
+    firstHiderWins += other.firstHiderWins;
+    unfinished += other.unfinished;
+    rounds += other.rounds;
+    maxRounds = Math.max(maxRounds, other.maxRounds);
+    for (int i = 0; i < lengths.length; i++)
+      lengths[i] += other.lengths[i];
+    return this;
+  }
+
+  public long games() {
+    return games;
+  }
+
+  public long unfinished() {
+    return unfinished;
+  }
+
+  public double winRateA() {
+    return games == 0 ? 0 : (double) winsA / games;
+  }
+
+  public double winRateB() {
+    return games == 0 ? 0 : (double) winsB / games;
+  }
+
+  public double firstHiderWinRate() {
+    return games == 0 ? 0 : (double) firstHiderWins / games;
+  }
+
+  public double averageRounds() {
+    return games == 0 ? 0 : (double) rounds / games;
+  }
+
+  public int maxRounds() {
+    return maxRounds;
+  }
+
+  // Rounds that this fraction of games took at most, e.g. 0.99
+  public int roundsPercentile(double fraction) {
+    var target = (long) Math.ceil(fraction * games);
+    var seen = 0L;
+    for (int i = 0; i < lengths.length; i++) {
+      seen += lengths[i];
+      if (seen >= target)
+        return i == LENGTHS ? maxRounds : i;
+    }
+    return maxRounds;
+  }
+}
@@ -0,0 +1,78 @@
+package com.example.marbleguessinggamebackend.simulation;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Plays many games between two strategies in process, on a fork-join pool and
+// without Spring, to compare strategies and rule variants such as the stake.
+// The games are split in halves down to batches; each batch plays its games
+// on one Match with a random seeded from the seed and its first game, so the
+// stats of a seed are the same however many threads play them.
+public final class Simulator {
+
+  private static final int BATCH = 1024;
+  // A game still going after this many rounds is counted as unfinished
+  public static final int MAX_ROUNDS = 10_000;
+
+  private final ForkJoinPool pool;
+
+  public Simulator(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  public Simulator() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  public SimulationStats run(Strategy a, Strategy b, int stake, long games, long seed) {
+    if (stake < 1)
+      throw new IllegalArgumentException("stake must be at least 1");
+    return pool.invoke(new Games(a, b, stake, seed, 0, games));
+  }
+
+  // Plays games [from, to) on one match. Strategy a takes the first seat in
+  // even games and b in odd ones.
+  static SimulationStats play(Strategy a, Strategy b, int stake, long seed, long from, long to) {
+    var stats = new SimulationStats();
+    var match = new Match();
+    var random = new SplittableRandom(seed + from * 0x9e3779b97f4a7c15L);
+    for (var game = from; game < to; game++) {
+      var aFirst = (game & 1) == 0;
+      match.reset(stake);
+      var winner = aFirst ? match.play(a, b, random, MAX_ROUNDS) : match.play(b, a, random, MAX_ROUNDS);
+      stats.add(winner, aFirst, match.rounds());
+    }
+    return stats;
+  }
+
+  private static final class Games extends RecursiveTask<SimulationStats> {
+
+    private final Strategy a;
+    private final Strategy b;
+    private final int stake;
+    private final long seed;
+    private final long from;
+    private final long to;
+
+    Games(Strategy a, Strategy b, int stake, long seed, long from, long to) {
+      this.a = a;
+      this.b = b;
+      this.stake = stake;
+      this.seed = seed;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected SimulationStats compute() {
+      if (to - from <= BATCH)
+        return play(a, b, stake, seed, from, to);
+      var mid = (from + to) >>> 1;
+      var first = new Games(a, b, stake, seed, from, mid);
+      first.fork();
+      var second = new Games(a, b, stake, seed, mid, to).compute();
+      return first.join().merge(second);
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package com.example.marbleguessinggamebackend.simulation;
+
+import java.util.SplittableRandom;
+
+// How a bot plays. Each move sees the match from the bot's seat: its stake and
+// what its opponent did so far. Counts must be between 1 and the bot's stake.
+public enum Strategy {
+
+  // Any count and either parity, with equal odds
+  RANDOM {
+    @Override
+    int hide(Match match, int seat, SplittableRandom random) {
+      return 1 + random.nextInt(match.stake(seat));
+    }
+
+    @Override
+    int bet(Match match, int seat, SplittableRandom random) {
+      return 1 + random.nextInt(match.stake(seat));
+    }
+
+    @Override
+    boolean guessOdd(Match match, int seat, SplittableRandom random) {
+      return random.nextBoolean();
+    }
+  },
+
+  // Everything on every round: a wrong guess against it costs the guesser the
+  // whole stake, and a right guess of its own wins as much as it can
+  GREEDY {
+    @Override
+    int hide(Match match, int seat, SplittableRandom random) {
+      return match.stake(seat);
+    }
+
+    @Override
+    int bet(Match match, int seat, SplittableRandom random) {
+      return match.stake(seat);
+    }
+
+    @Override
+    boolean guessOdd(Match match, int seat, SplittableRandom random) {
+      return random.nextBoolean();
+    }
+  },
+
+  // Reads the opponent: guesses the parity they hide more often and hides the
+  // parity they guess less often. A right guess wins the bet and a wrong one
+  // loses what was hidden, so it hides as much as that parity allows and bets
+  // half its stake, up to all of it the more lopsided the opponent is.
+  ADAPTIVE {
+    @Override
+    int hide(Match match, int seat, SplittableRandom random) {
+      var stake = match.stake(seat);
+      var odd = 2 * match.opponentOddGuesses(seat) - match.opponentGuesses(seat);
+      var wantOdd = odd == 0 ? random.nextBoolean() : odd < 0;
+      // The stake, or one less if that has the wrong parity and leaves any
+      return ((stake & 1) == 1) == wantOdd || stake == 1 ? stake : stake - 1;
+    }
+
+    @Override
+    int bet(Match match, int seat, SplittableRandom random) {
+      var stake = match.stake(seat);
+      var seen = match.opponentHides(seat);
+      var skew = Math.abs(2 * match.opponentOddHides(seat) - seen) / (seen + 2.0);
+      return Math.max(1, stake / 2 + (int) ((stake - stake / 2) * skew));
+    }
+
+    @Override
+    boolean guessOdd(Match match, int seat, SplittableRandom random) {
+      var odd = 2 * match.opponentOddHides(seat) - match.opponentHides(seat);
+      return odd == 0 ? random.nextBoolean() : odd > 0;
+    }
+  };
+
+  abstract int hide(Match match, int seat, SplittableRandom random);
+
+  abstract int bet(Match match, int seat, SplittableRandom random);
+
+  abstract boolean guessOdd(Match match, int seat, SplittableRandom random);
+}
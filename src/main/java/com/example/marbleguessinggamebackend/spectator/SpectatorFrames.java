@@ -0,0 +1,308 @@
+package com.example.marbleguessinggamebackend.spectator;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.PreDestroy;
+
+import com.example.marbleguessinggamebackend.cluster.GameForwarder;
+import com.example.marbleguessinggamebackend.cluster.GameRouter;
+import com.example.marbleguessinggamebackend.config.WireFormat;
+import com.example.marbleguessinggamebackend.config.WireFormats;
+import com.example.marbleguessinggamebackend.dto.SpectatorView;
+import com.example.marbleguessinggamebackend.model.GameStatus;
+import com.example.marbleguessinggamebackend.service.GameBroadcaster;
+import com.example.marbleguessinggamebackend.service.GameRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+// Spectators subscribe to /topic/spectate/{gameId}, with a format suffix for a
+// binary format, and are sent a SpectatorView of the game after each batch of
+// its moves. Each view is a frame kept per game and serialized once per
+// format, however many spectators it goes to; a spectator who subscribes
+// late is sent the latest frame straight away.
+//
+// Frames are only kept for games someone on this node watches and dropped when
+// the last of them leaves. Behind a broker relay spectators on other nodes
+// can't be seen, so the owner frames every game in each format of
+// game.broadcast.formats after each batch, and only keeps the frames of games
+// watched here. A spectator of a game this node doesn't own is sent its first
+// frame from the owner, and the rest through the relay. The frame is fetched
+// off the inbound channel and shared by the spectators of the game joining
+// while it runs or within game.spectator.fetch-ttl of it.
+@Slf4j
+@Component
+public class SpectatorFrames {
+
+  public static final String TOPIC = "/topic/spectate/";
+  private static final WireFormat[] FORMATS = WireFormat.values();
+
+  private final GameRegistry games;
+  private final GameRouter router;
+  private final GameForwarder forwarder;
+  private final WireFormats formats;
+  private final SimpMessagingTemplate mt;
+  private final MessageChannel clientOutbound;
+  private final boolean relay;
+  private final Set<WireFormat> broadcast;
+  private final long fetchTtl;
+
+  // Latest frame of each watched game
+  private final ConcurrentHashMap<String, Frame> frames = new ConcurrentHashMap<>();
+  // Latest fetch of each watched game owned by another node
+  private final ConcurrentHashMap<String, Fetch> fetches = new ConcurrentHashMap<>();
+  private final ExecutorService fetcher;
+  // Spectators of each game by format, and the game each spectator
+  // subscription watches by session and subscription id
+  private final ConcurrentHashMap<String, AtomicIntegerArray> watchers = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, ConcurrentHashMap<String, Watch>> sessions = new ConcurrentHashMap<>();
+  private final AtomicLong spectators = new AtomicLong();
+
+  private final Counter[] serialized = new Counter[FORMATS.length];
+
+  public SpectatorFrames(GameRegistry games, GameRouter router, GameForwarder forwarder, WireFormats formats,
+      SimpMessagingTemplate mt, @Qualifier("clientOutboundChannel") MessageChannel clientOutbound,
+      GameBroadcaster broadcaster, MeterRegistry meters,
+      @Value("${game.broker.relay.enabled:false}") boolean relay,
+      @Value("${game.broadcast.formats:json}") Set<WireFormat> broadcast,
+      @Value("${game.spectator.fetch-ttl:PT1S}") Duration fetchTtl) {
+    this.games = games;
+    this.router = router;
+    this.forwarder = forwarder;
+    this.formats = formats;
+    this.mt = mt;
+    this.clientOutbound = clientOutbound;
+    this.relay = relay;
+    this.broadcast = broadcast;
+    this.fetchTtl = fetchTtl.toNanos();
+    broadcaster.onSent(this::sent);
+    fetcher = Executors.newFixedThreadPool(4, r -> {
+      var thread = new Thread(r, "spectator-fetch");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    Gauge.builder("spectators", spectators, AtomicLong::get)
+        .description("Spectator subscriptions")
+        .register(meters);
+    for (var format : FORMATS)
+      serialized[format.ordinal()] = Counter.builder("spectator.frames")
+          .description("Spectator views serialized, each sent to every spectator of its game")
+          .tag("format", format.name().toLowerCase())
+          .register(meters);
+  }
+
+  // Game and format a spectator destination is for, or null if it isn't one
+  private record Watch(String gameId, WireFormat format) {
+
+    static Watch of(String destination) {
+      if (destination == null || !destination.startsWith(TOPIC))
+        return null;
+      var rest = destination.substring(TOPIC.length());
+      var slash = rest.indexOf('/');
+      var gameId = slash < 0 ? rest : rest.substring(0, slash);
+      if (gameId.isEmpty())
+        return null;
+      for (var format : FORMATS)
+        if (format.topicSuffix().equals(slash < 0 ? "" : rest.substring(slash)))
+          return new Watch(gameId, format);
+      return null;
+    }
+
+    String destination() {
+      return TOPIC + gameId + format.topicSuffix();
+    }
+  }
+
+  // A view of a game and its payload in each format, serialized when first
+  // asked for
+  private final class Frame {
+
+    final SpectatorView view;
+    private final byte[][] payloads = new byte[FORMATS.length][];
+
+    Frame(SpectatorView view) {
+      this.view = view;
+    }
+
+    synchronized byte[] payload(WireFormat format) throws JsonProcessingException {
+      var payload = payloads[format.ordinal()];
+      if (payload == null) {
+        payload = formats.mapper(format).writeValueAsBytes(view);
+        payloads[format.ordinal()] = payload;
+        serialized[format.ordinal()].increment();
+      }
+      return payload;
+    }
+  }
+
+  // A frame being fetched from the owner of a game, and when it was asked for
+  private record Fetch(CompletableFuture<Frame> frame, long at) {
+  }
+
+  @PreDestroy
+  public void close() {
+    fetcher.shutdownNow();
+  }
+
+  // Frame of the game as installed now, reusing the cached one if it is as
+  // new. Only cached while the game is watched here; the frame is added under
+  // the watchers' lock so the last spectator leaving can't miss it. Null if
+  // the game is gone.
+  private Frame latest(String gameId) {
+    var game = games.getGame(gameId);
+    if (game == null)
+      return null;
+    var cached = frames.get(gameId);
+    if (cached != null && cached.view.getVersion() >= game.getVersion())
+      return cached;
+    var frame = new Frame(SpectatorView.of(game));
+    watchers.computeIfPresent(gameId, (id, counts) -> {
+      frames.merge(id, frame, (old, next) -> old.view.getVersion() >= next.view.getVersion() ? old : next);
+      return counts;
+    });
+    return frame;
+  }
+
+  // Frame of a game owned by another node, as the owner has it. Fetched again
+  // once the last fetch is done and older than the ttl; only kept while the
+  // game is watched here. Completes with null if the owner doesn't have it.
+  private CompletableFuture<Frame> fetched(String gameId) {
+    var now = System.nanoTime();
+    var frame = new AtomicReference<CompletableFuture<Frame>>(CompletableFuture.completedFuture(null));
+    watchers.computeIfPresent(gameId, (id, counts) -> {
+      frame.set(fetches.compute(id, (key, fetch) -> {
+        if (fetch != null && (!fetch.frame().isDone() || now - fetch.at() < fetchTtl))
+          return fetch;
+        return new Fetch(CompletableFuture.supplyAsync(() -> {
+          var view = forwarder.spectate(key);
+          return view == null ? null : new Frame(view);
+        }, fetcher), now);
+      }).frame());
+      return counts;
+    });
+    return frame.get();
+  }
+
+  // A batch of the game was sent to its players, up to the version
+  void sent(String gameId, long version) {
+    var watching = watchers.get(gameId);
+    if (watching == null && !relay)
+      return;
+    var frame = latest(gameId);
+    if (frame == null) {
+      // Quit or evicted: spectators are sent the last view, ended. Without
+      // one, e.g. a game only watched on other nodes, they are told it ended.
+      var last = frames.remove(gameId);
+      if (last != null && last.view.getStatus() == GameStatus.ENDED)
+        return;
+      frame = new Frame(last != null ? last.view.ended() : SpectatorView.ended(gameId, version));
+    }
+    for (var format : FORMATS)
+      if (relay && broadcast.contains(format) || watching != null && watching.get(format.ordinal()) > 0)
+        send(new Watch(gameId, format), frame, null, null);
+  }
+
+  // To every spectator of the destination, or to one subscription
+  private void send(Watch watch, Frame frame, String sessionId, String subscriptionId) {
+    try {
+      var accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+      accessor.setContentType(watch.format().stompContentType());
+      accessor.setLeaveMutable(true);
+      if (sessionId == null) {
+        mt.send(watch.destination(), MessageBuilder.createMessage(frame.payload(watch.format()),
+            accessor.getMessageHeaders()));
+        return;
+      }
+      accessor.setSessionId(sessionId);
+      accessor.setSubscriptionId(subscriptionId);
+      accessor.setDestination(watch.destination());
+      clientOutbound.send(MessageBuilder.createMessage(frame.payload(watch.format()), accessor.getMessageHeaders()));
+    } catch (JsonProcessingException | RuntimeException e) {
+      log.error("Can't send spectators the view of game: {}", watch.gameId(), e);
+    }
+  }
+
+  private void watch(Watch watch, int delta) {
+    watchers.compute(watch.gameId(), (id, counts) -> {
+      if (counts == null)
+        counts = new AtomicIntegerArray(FORMATS.length);
+      counts.addAndGet(watch.format().ordinal(), delta);
+      for (int i = 0; i < FORMATS.length; i++)
+        if (counts.get(i) > 0)
+          return counts;
+      frames.remove(id);
+      fetches.remove(id);
+      return null;
+    });
+    spectators.addAndGet(delta);
+  }
+
+  @EventListener
+  public void subscribed(SessionSubscribeEvent event) {
+    var headers = SimpMessageHeaderAccessor.wrap(event.getMessage());
+    var watch = Watch.of(headers.getDestination());
+    if (watch == null)
+      return;
+    var sessionId = headers.getSessionId();
+    var subscriptionId = headers.getSubscriptionId();
+    if (sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>()).putIfAbsent(subscriptionId,
+        watch) != null)
+      return;
+    watch(watch, 1);
+
+    // The broker may not have the subscription yet, so the latest frame goes
+    // to the subscription directly. Only the owner gets the game's batches, so
+    // other nodes fetch the frame from it.
+    if (!router.owns(watch.gameId())) {
+      fetched(watch.gameId()).thenAccept(frame -> {
+        if (frame != null)
+          send(watch, frame, sessionId, subscriptionId);
+      });
+      return;
+    }
+    var frame = latest(watch.gameId());
+    if (frame != null)
+      send(watch, frame, sessionId, subscriptionId);
+  }
+
+  @EventListener
+  public void unsubscribed(SessionUnsubscribeEvent event) {
+    var headers = SimpMessageHeaderAccessor.wrap(event.getMessage());
+    var subscriptions = sessions.get(headers.getSessionId());
+    var watch = subscriptions == null ? null : subscriptions.remove(headers.getSubscriptionId());
+    if (watch != null)
+      watch(watch, -1);
+  }
+
+  @EventListener
+  public void disconnected(SessionDisconnectEvent event) {
+    var subscriptions = sessions.remove(event.getSessionId());
+    if (subscriptions != null)
+      subscriptions.values().forEach(watch -> watch(watch, -1));
+  }
+}
@@ -0,0 +1,56 @@
+package com.example.marbleguessinggamebackend.store;
+
+import java.util.Iterator;
+
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.service.GameIds;
+import com.example.marbleguessinggamebackend.service.GameStore;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Default store. Keeps each game as an object in a map keyed on the long the
+// game id stands for.
+@ConditionalOnProperty(name = "game.store", havingValue = "heap", matchIfMissing = true)
+@Component
+public class HeapGameStore implements GameStore {
+
+  private final LongGameMap games = new LongGameMap();
+
+  @Override
+  public Game get(String gameId) {
+    var key = GameIds.key(gameId);
+    var game = games.get(key);
+    // Ids that aren't generated are keyed on a hash another id may share
+    if (key < 0 && game != null && !gameId.equals(game.getGameId()))
+      return null;
+    return game;
+  }
+
+  @Override
+  public void put(Game game) {
+    games.put(GameIds.key(game.getGameId()), game);
+  }
+
+  // Installed states are never modified, so the expected state is either the
+  // installed object or one equal to it
+  @Override
+  public boolean replace(Game expected, Game next) {
+    return games.replace(GameIds.key(expected.getGameId()), expected, next);
+  }
+
+  @Override
+  public boolean remove(Game expected) {
+    return games.remove(GameIds.key(expected.getGameId()), expected);
+  }
+
+  @Override
+  public int size() {
+    return games.size();
+  }
+
+  @Override
+  public Iterator<Game> iterator() {
+    return games.iterator();
+  }
+}
@@ -0,0 +1,237 @@
+package com.example.marbleguessinggamebackend.store;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+import com.example.marbleguessinggamebackend.model.Game;
+
+// Map from game key to game on primitive long keys, so lookups neither box the
+// key nor hash and compare id strings. Laid out like SlotIndex: segments of
+// open-addressing tables with linear probing, read with an optimistic stamp and
+// written under the segment's write lock. A null game marks an empty position.
+final class LongGameMap {
+
+  private static final int SEGMENT_BITS = 6;
+
+  private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+  LongGameMap() {
+    for (int i = 0; i < segments.length; i++)
+      segments[i] = new Segment();
+  }
+
+  private static int hash(long key) {
+    key *= 0x9E3779B97F4A7C15L;
+    return (int) (key ^ (key >>> 32));
+  }
+
+  private Segment segment(int hash) {
+    return segments[hash >>> (32 - SEGMENT_BITS)];
+  }
+
+  Game get(long key) {
+    var hash = hash(key);
+    var segment = segment(hash);
+    var stamp = segment.lock.tryOptimisticRead();
+    var game = segment.find(key, hash);
+    if (segment.lock.validate(stamp))
+      return game;
+
+    stamp = segment.lock.readLock();
+    try {
+      return segment.find(key, hash);
+    } finally {
+      segment.lock.unlockRead(stamp);
+    }
+  }
+
+  void put(long key, Game game) {
+    var hash = hash(key);
+    var segment = segment(hash);
+    var stamp = segment.lock.writeLock();
+    try {
+      segment.put(key, hash, game);
+    } finally {
+      segment.lock.unlockWrite(stamp);
+    }
+  }
+
+  // Replace the game of a key if it is still the expected one
+  boolean replace(long key, Game expected, Game next) {
+    var hash = hash(key);
+    var segment = segment(hash);
+    var stamp = segment.lock.writeLock();
+    try {
+      var i = segment.position(key, hash);
+      if (i < 0 || !segment.games[i].equals(expected))
+        return false;
+      segment.games[i] = next;
+      return true;
+    } finally {
+      segment.lock.unlockWrite(stamp);
+    }
+  }
+
+  // Remove a key if it still maps to the expected game
+  boolean remove(long key, Game expected) {
+    var hash = hash(key);
+    var segment = segment(hash);
+    var stamp = segment.lock.writeLock();
+    try {
+      var i = segment.position(key, hash);
+      if (i < 0 || !segment.games[i].equals(expected))
+        return false;
+      segment.delete(i);
+      segment.size--;
+      return true;
+    } finally {
+      segment.lock.unlockWrite(stamp);
+    }
+  }
+
+  int size() {
+    var size = 0;
+    for (var segment : segments) {
+      var stamp = segment.lock.readLock();
+      try {
+        size += segment.size;
+      } finally {
+        segment.lock.unlockRead(stamp);
+      }
+    }
+    return size;
+  }
+
+  // Walks the segments, copying each one's games under its read lock. Games
+  // added or removed during the walk may or may not be seen.
+  Iterator<Game> iterator() {
+    return new Iterator<>() {
+
+      private int segment;
+      private Iterator<Game> current = List.<Game>of().iterator();
+
+      @Override
+      public boolean hasNext() {
+        while (!current.hasNext() && segment < segments.length)
+          current = segments[segment++].games().iterator();
+        return current.hasNext();
+      }
+
+      @Override
+      public Game next() {
+        hasNext();
+        return current.next();
+      }
+    };
+  }
+
+  private static final class Segment {
+
+    final StampedLock lock = new StampedLock();
+    // Kept at most half full so probes stay short
+    long[] keys = new long[16];
+    Game[] games = new Game[16];
+    int size;
+
+    // May run without the lock, so it only relies on the arrays it read and
+    // bounds its probe; a torn result is discarded by the caller.
+    Game find(long key, int hash) {
+      var keys = this.keys;
+      var games = this.games;
+      if (keys.length != games.length)
+        return null;
+      var mask = keys.length - 1;
+      var i = hash & mask;
+      for (int probes = 0; probes < keys.length; probes++) {
+        var game = games[i];
+        if (game == null)
+          return null;
+        if (keys[i] == key)
+          return game;
+        i = (i + 1) & mask;
+      }
+      return null;
+    }
+
+    int position(long key, int hash) {
+      var mask = keys.length - 1;
+      var i = hash & mask;
+      while (games[i] != null) {
+        if (keys[i] == key)
+          return i;
+        i = (i + 1) & mask;
+      }
+      return -1;
+    }
+
+    void put(long key, int hash, Game game) {
+      if ((size + 1) * 2 > keys.length)
+        resize();
+      var mask = keys.length - 1;
+      var i = hash & mask;
+      while (games[i] != null) {
+        if (keys[i] == key) {
+          games[i] = game;
+          return;
+        }
+        i = (i + 1) & mask;
+      }
+      keys[i] = key;
+      games[i] = game;
+      size++;
+    }
+
+    // Empty a position and shift back later entries of the same probe run so
+    // lookups never stop early at the gap
+    void delete(int hole) {
+      var mask = keys.length - 1;
+      games[hole] = null;
+      var i = (hole + 1) & mask;
+      while (games[i] != null) {
+        var home = hash(keys[i]) & mask;
+        // Move the entry if its home is not between the hole and its position
+        if (((i - home) & mask) >= ((i - hole) & mask)) {
+          keys[hole] = keys[i];
+          games[hole] = games[i];
+          games[i] = null;
+          hole = i;
+        }
+        i = (i + 1) & mask;
+      }
+    }
+
+    List<Game> games() {
+      var stamp = lock.readLock();
+      try {
+        var copy = new ArrayList<Game>(size);
+        for (var game : games)
+          if (game != null)
+            copy.add(game);
+        return copy;
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+
+    private void resize() {
+      var oldKeys = keys;
+      var oldGames = games;
+      var newKeys = new long[oldKeys.length * 2];
+      var newGames = new Game[oldKeys.length * 2];
+      var mask = newKeys.length - 1;
+      for (int j = 0; j < oldKeys.length; j++) {
+        if (oldGames[j] == null)
+          continue;
+        var i = hash(oldKeys[j]) & mask;
+        while (newGames[i] != null)
+          i = (i + 1) & mask;
+        newKeys[i] = oldKeys[j];
+        newGames[i] = oldGames[j];
+      }
+      keys = newKeys;
+      games = newGames;
+    }
+  }
+}
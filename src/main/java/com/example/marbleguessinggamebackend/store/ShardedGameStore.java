@@ -0,0 +1,82 @@
+package com.example.marbleguessinggamebackend.store;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.service.GameShards;
+import com.example.marbleguessinggamebackend.service.GameStore;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Store with a separate map per shard, split the same way as the sharded
+// engine, so a shard's writer only ever touches its own map
+@ConditionalOnProperty(name = "game.store", havingValue = "sharded")
+@Component
+public class ShardedGameStore implements GameStore {
+
+  private final GameShards shards;
+  private final HeapGameStore[] stores;
+
+  public ShardedGameStore(GameShards shards) {
+    this.shards = shards;
+    stores = new HeapGameStore[shards.count()];
+    for (int i = 0; i < stores.length; i++)
+      stores[i] = new HeapGameStore();
+  }
+
+  private HeapGameStore store(String gameId) {
+    return stores[shards.shard(gameId)];
+  }
+
+  @Override
+  public Game get(String gameId) {
+    return store(gameId).get(gameId);
+  }
+
+  @Override
+  public void put(Game game) {
+    store(game.getGameId()).put(game);
+  }
+
+  @Override
+  public boolean replace(Game expected, Game next) {
+    return store(expected.getGameId()).replace(expected, next);
+  }
+
+  @Override
+  public boolean remove(Game expected) {
+    return store(expected.getGameId()).remove(expected);
+  }
+
+  @Override
+  public int size() {
+    return Arrays.stream(stores).mapToInt(HeapGameStore::size).sum();
+  }
+
+  // Walks the shards one after another
+  @Override
+  public Iterator<Game> iterator() {
+    return new Iterator<>() {
+
+      private int shard;
+      private Iterator<Game> current = stores[0].iterator();
+
+      @Override
+      public boolean hasNext() {
+        while (!current.hasNext() && shard + 1 < stores.length)
+          current = stores[++shard].iterator();
+        return current.hasNext();
+      }
+
+      @Override
+      public Game next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+        return current.next();
+      }
+    };
+  }
+}
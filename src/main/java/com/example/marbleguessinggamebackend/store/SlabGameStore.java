@@ -0,0 +1,264 @@
+package com.example.marbleguessinggamebackend.store;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.model.GameStatus;
+import com.example.marbleguessinggamebackend.model.Move;
+import com.example.marbleguessinggamebackend.model.Turn;
+import com.example.marbleguessinggamebackend.service.GameStore;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Store that packs games into primitive-array slabs instead of holding a Game
+// object per game. Each game gets a slot, found through the game id in a
+// SlotIndex, holding three longs and its id and player names:
+//
+//   version | updatedAt | status, turn, move, winner, stake1, stake2, hidden, bet
+//
+// with the last long packed one byte per field, since stakes never exceed 20
+// marbles. Games are only turned back into objects when they are read, so idle
+// games cost the GC a few large arrays instead of millions of small objects.
+@ConditionalOnProperty(name = "game.store", havingValue = "slab")
+@Component
+public class SlabGameStore implements GameStore {
+
+  private static final int CHUNK_BITS = 14;
+  private static final int CHUNK = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK - 1;
+
+  private static final int LONGS = 3;
+  private static final int VERSION = 0;
+  private static final int UPDATED_AT = 1;
+  private static final int PACKED = 2;
+
+  private static final int NAMES = 3;
+  private static final int GAME_ID = 0;
+  private static final int PLAYER_1 = 1;
+  private static final int PLAYER_2 = 2;
+
+  private static final GameStatus[] STATUSES = GameStatus.values();
+  private static final Turn[] TURNS = Turn.values();
+  private static final Move[] MOVES = Move.values();
+
+  private static final int STRIPES = 256;
+
+  private final SlotIndex index = new SlotIndex();
+  // Slots are read and written under the lock of their stripe
+  private final Object[] stripes = new Object[STRIPES];
+
+  // Chunks of slots, grown under the allocation lock and published whole
+  private volatile long[][] numbers = new long[0][];
+  private volatile String[][] names = new String[0][];
+
+  private final Object allocLock = new Object();
+  private int[] free = new int[64];
+  private int freeCount;
+  // Slots handed out so far, free or not
+  private volatile int used;
+
+  public SlabGameStore() {
+    for (int i = 0; i < STRIPES; i++)
+      stripes[i] = new Object();
+  }
+
+  private Object lock(int slot) {
+    return stripes[slot & (STRIPES - 1)];
+  }
+
+  @Override
+  public Game get(String gameId) {
+    var slot = index.get(gameId);
+    if (slot == SlotIndex.MISSING)
+      return null;
+    synchronized (lock(slot)) {
+      // The slot may have been freed and reused since the index was read
+      if (!gameId.equals(name(slot, GAME_ID)))
+        return null;
+      return read(slot);
+    }
+  }
+
+  // Ids are unique per game, so a new game never races another put of its id
+  @Override
+  public void put(Game game) {
+    var slot = index.get(game.getGameId());
+    if (slot == SlotIndex.MISSING)
+      slot = allocate();
+    synchronized (lock(slot)) {
+      write(slot, game);
+    }
+    index.put(game.getGameId(), slot);
+  }
+
+  @Override
+  public boolean replace(Game expected, Game next) {
+    var slot = index.get(expected.getGameId());
+    if (slot == SlotIndex.MISSING)
+      return false;
+    synchronized (lock(slot)) {
+      if (!holds(slot, expected))
+        return false;
+      write(slot, next);
+      return true;
+    }
+  }
+
+  @Override
+  public boolean remove(Game expected) {
+    var gameId = expected.getGameId();
+    var slot = index.get(gameId);
+    if (slot == SlotIndex.MISSING)
+      return false;
+    synchronized (lock(slot)) {
+      if (!holds(slot, expected))
+        return false;
+      clear(slot);
+    }
+    index.remove(gameId, slot);
+    release(slot);
+    return true;
+  }
+
+  @Override
+  public int size() {
+    return index.size();
+  }
+
+  private boolean holds(int slot, Game expected) {
+    return expected.getGameId().equals(name(slot, GAME_ID))
+        && numbers[slot >>> CHUNK_BITS][(slot & CHUNK_MASK) * LONGS + VERSION] == expected.getVersion();
+  }
+
+  private String name(int slot, int field) {
+    return names[slot >>> CHUNK_BITS][(slot & CHUNK_MASK) * NAMES + field];
+  }
+
+  private Game read(int slot) {
+    var chunk = numbers[slot >>> CHUNK_BITS];
+    var base = (slot & CHUNK_MASK) * LONGS;
+    var packed = chunk[base + PACKED];
+
+    var player1 = name(slot, PLAYER_1);
+    var player2 = name(slot, PLAYER_2);
+    var winner = field(packed, 3);
+    return Game.builder()
+        .gameId(name(slot, GAME_ID))
+        .player1(player1)
+        .player2(player2)
+        .version(chunk[base + VERSION])
+        .updatedAt(chunk[base + UPDATED_AT])
+        .status(STATUSES[field(packed, 0)])
+        .turn(TURNS[field(packed, 1)])
+        .move(MOVES[field(packed, 2)])
+        .winner(winner == 1 ? player1 : winner == 2 ? player2 : null)
+        .stake1(field(packed, 4))
+        .stake2(field(packed, 5))
+        .hidden(field(packed, 6))
+        .bet(field(packed, 7))
+        .build();
+  }
+
+  private void write(int slot, Game game) {
+    var chunk = numbers[slot >>> CHUNK_BITS];
+    var base = (slot & CHUNK_MASK) * LONGS;
+    chunk[base + VERSION] = game.getVersion();
+    chunk[base + UPDATED_AT] = game.getUpdatedAt();
+    chunk[base + PACKED] = pack(game);
+
+    var nameChunk = names[slot >>> CHUNK_BITS];
+    var nameBase = (slot & CHUNK_MASK) * NAMES;
+    nameChunk[nameBase + GAME_ID] = game.getGameId();
+    nameChunk[nameBase + PLAYER_1] = game.getPlayer1();
+    nameChunk[nameBase + PLAYER_2] = game.getPlayer2();
+  }
+
+  private void clear(int slot) {
+    var chunk = numbers[slot >>> CHUNK_BITS];
+    Arrays.fill(chunk, (slot & CHUNK_MASK) * LONGS, (slot & CHUNK_MASK) * LONGS + LONGS, 0);
+    var nameChunk = names[slot >>> CHUNK_BITS];
+    Arrays.fill(nameChunk, (slot & CHUNK_MASK) * NAMES, (slot & CHUNK_MASK) * NAMES + NAMES, null);
+  }
+
+  private static long pack(Game game) {
+    var winner = game.getWinner() == null ? 0 : game.getWinner().equals(game.getPlayer1()) ? 1 : 2;
+    return (long) game.getStatus().ordinal()
+        | (long) game.getTurn().ordinal() << 8
+        | (long) game.getMove().ordinal() << 16
+        | (long) winner << 24
+        | (long) (game.getStake1() & 0xFF) << 32
+        | (long) (game.getStake2() & 0xFF) << 40
+        | (long) (game.getHidden() & 0xFF) << 48
+        | (long) (game.getBet() & 0xFF) << 56;
+  }
+
+  private static int field(long packed, int field) {
+    return (int) (packed >>> (field * 8)) & 0xFF;
+  }
+
+  private int allocate() {
+    synchronized (allocLock) {
+      if (freeCount > 0)
+        return free[--freeCount];
+      var slot = used;
+      if ((slot >>> CHUNK_BITS) == numbers.length) {
+        // Publish the new chunk before any slot in it is handed out
+        var grownNumbers = Arrays.copyOf(numbers, numbers.length + 1);
+        grownNumbers[numbers.length] = new long[CHUNK * LONGS];
+        var grownNames = Arrays.copyOf(names, names.length + 1);
+        grownNames[names.length] = new String[CHUNK * NAMES];
+        names = grownNames;
+        numbers = grownNumbers;
+      }
+      used = slot + 1;
+      return slot;
+    }
+  }
+
+  private void release(int slot) {
+    synchronized (allocLock) {
+      if (freeCount == free.length)
+        free = Arrays.copyOf(free, free.length * 2);
+      free[freeCount++] = slot;
+    }
+  }
+
+  // Walks the slots, skipping free ones. Games added or removed during the walk
+  // may or may not be seen.
+  @Override
+  public Iterator<Game> iterator() {
+    return new Iterator<>() {
+
+      private int slot;
+      private Game next = advance();
+
+      private Game advance() {
+        while (slot < used) {
+          var current = slot++;
+          synchronized (lock(current)) {
+            if (name(current, GAME_ID) != null)
+              return read(current);
+          }
+        }
+        return null;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public Game next() {
+        if (next == null)
+          throw new NoSuchElementException();
+        var game = next;
+        next = advance();
+        return game;
+      }
+    };
+  }
+}
@@ -0,0 +1,180 @@
+package com.example.marbleguessinggamebackend.store;
+
+import java.util.concurrent.locks.StampedLock;
+
+// Map from game id to slab slot without a node or boxed Integer per entry.
+// Split into segments of open-addressing tables with linear probing. Lookups
+// use an optimistic read and only lock if a writer got in the way.
+final class SlotIndex {
+
+  static final int MISSING = -1;
+
+  private static final int SEGMENT_BITS = 6;
+
+  private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+  SlotIndex() {
+    for (int i = 0; i < segments.length; i++)
+      segments[i] = new Segment();
+  }
+
+  private static int hash(String key) {
+    return key.hashCode() * 0x9E3779B9;
+  }
+
+  private Segment segment(int hash) {
+    return segments[hash >>> (32 - SEGMENT_BITS)];
+  }
+
+  int get(String key) {
+    var hash = hash(key);
+    var segment = segment(hash);
+    var stamp = segment.lock.tryOptimisticRead();
+    var slot = segment.find(key, hash);
+    if (segment.lock.validate(stamp))
+      return slot;
+
+    stamp = segment.lock.readLock();
+    try {
+      return segment.find(key, hash);
+    } finally {
+      segment.lock.unlockRead(stamp);
+    }
+  }
+
+  void put(String key, int slot) {
+    var hash = hash(key);
+    var segment = segment(hash);
+    var stamp = segment.lock.writeLock();
+    try {
+      segment.put(key, hash, slot);
+    } finally {
+      segment.lock.unlockWrite(stamp);
+    }
+  }
+
+  // Remove a key if it still maps to the given slot
+  boolean remove(String key, int slot) {
+    var hash = hash(key);
+    var segment = segment(hash);
+    var stamp = segment.lock.writeLock();
+    try {
+      return segment.remove(key, hash, slot);
+    } finally {
+      segment.lock.unlockWrite(stamp);
+    }
+  }
+
+  int size() {
+    var size = 0;
+    for (var segment : segments) {
+      var stamp = segment.lock.readLock();
+      try {
+        size += segment.size;
+      } finally {
+        segment.lock.unlockRead(stamp);
+      }
+    }
+    return size;
+  }
+
+  private static final class Segment {
+
+    final StampedLock lock = new StampedLock();
+    // Kept at most half full so probes stay short
+    String[] keys = new String[16];
+    int[] slots = new int[16];
+    int size;
+
+    // May run without the lock, so it only relies on the arrays it read and
+    // bounds its probe; a torn result is discarded by the caller.
+    int find(String key, int hash) {
+      var keys = this.keys;
+      var slots = this.slots;
+      if (keys.length != slots.length)
+        return MISSING;
+      var mask = keys.length - 1;
+      var i = hash & mask;
+      for (int probes = 0; probes < keys.length; probes++) {
+        var k = keys[i];
+        if (k == null)
+          return MISSING;
+        if (k.equals(key))
+          return slots[i];
+        i = (i + 1) & mask;
+      }
+      return MISSING;
+    }
+
+    void put(String key, int hash, int slot) {
+      if ((size + 1) * 2 > keys.length)
+        resize();
+      var mask = keys.length - 1;
+      var i = hash & mask;
+      while (keys[i] != null) {
+        if (keys[i].equals(key)) {
+          slots[i] = slot;
+          return;
+        }
+        i = (i + 1) & mask;
+      }
+      keys[i] = key;
+      slots[i] = slot;
+      size++;
+    }
+
+    boolean remove(String key, int hash, int slot) {
+      var mask = keys.length - 1;
+      var i = hash & mask;
+      while (keys[i] != null) {
+        if (keys[i].equals(key)) {
+          if (slots[i] != slot)
+            return false;
+          delete(i);
+          size--;
+          return true;
+        }
+        i = (i + 1) & mask;
+      }
+      return false;
+    }
+
+    // Empty a position and shift back later entries of the same probe run so
+    // lookups never stop early at the gap
+    private void delete(int hole) {
+      var mask = keys.length - 1;
+      keys[hole] = null;
+      var i = (hole + 1) & mask;
+      while (keys[i] != null) {
+        var home = hash(keys[i]) & mask;
+        // Move the entry if its home is not between the hole and its position
+        if (((i - home) & mask) >= ((i - hole) & mask)) {
+          keys[hole] = keys[i];
+          slots[hole] = slots[i];
+          keys[i] = null;
+          hole = i;
+        }
+        i = (i + 1) & mask;
+      }
+    }
+
+    private void resize() {
+      var oldKeys = keys;
+      var oldSlots = slots;
+      var newKeys = new String[oldKeys.length * 2];
+      var newSlots = new int[oldKeys.length * 2];
+      var mask = newKeys.length - 1;
+      for (int j = 0; j < oldKeys.length; j++) {
+        if (oldKeys[j] == null)
+          continue;
+        var i = hash(oldKeys[j]) & mask;
+        while (newKeys[i] != null)
+          i = (i + 1) & mask;
+        newKeys[i] = oldKeys[j];
+        newSlots[i] = oldSlots[j];
+      }
+      keys = newKeys;
+      slots = newSlots;
+    }
+  }
+}
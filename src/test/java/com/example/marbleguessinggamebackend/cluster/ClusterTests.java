@@ -0,0 +1,179 @@
+package com.example.marbleguessinggamebackend.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.example.marbleguessinggamebackend.MarbleGuessingGameBackendApplication;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Two nodes relaying through an embedded broker. Moves made through either node
+// are played on the owner of the game and reach subscribers on both.
+class ClusterTests {
+
+  private static EmbeddedBroker broker;
+  private static final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+  private static final List<String> urls = new ArrayList<>();
+
+  private static final HttpClient http = HttpClient.newBuilder()
+      .followRedirects(HttpClient.Redirect.NORMAL)
+      .build();
+
+  private static int freePort() throws IOException {
+    try (var socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+
+  @BeforeAll
+  static void start() throws Exception {
+    var brokerPort = freePort();
+    broker = new EmbeddedBroker(brokerPort);
+    var ports = List.of(freePort(), freePort());
+    for (var port : ports)
+      urls.add("http://localhost:" + port);
+    for (int i = 0; i < ports.size(); i++) {
+      nodes.add(new SpringApplicationBuilder(MarbleGuessingGameBackendApplication.class).run(
+          "--server.port=" + ports.get(i),
+          "--game.cluster.nodes=" + String.join(",", urls),
+          "--game.cluster.node=" + i,
+          "--game.broker.relay.enabled=true",
+          "--game.broker.relay.port=" + brokerPort));
+    }
+  }
+
+  @AfterAll
+  static void stop() throws Exception {
+    for (var node : nodes)
+      node.close();
+    broker.close();
+  }
+
+  private static HttpResponse<String> post(String url, String player, String body) throws Exception {
+    var request = HttpRequest.newBuilder(URI.create(url))
+        .header("player", player)
+        .header("Content-Type", "application/json")
+        .POST(body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+        .build();
+    return http.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+
+  private static StompFrameHandler into(BlockingQueue<Object> queue, Class<?> type) {
+    return new StompFrameHandler() {
+      @Override
+      public Type getPayloadType(StompHeaders headers) {
+        return type;
+      }
+
+      @Override
+      public void handleFrame(StompHeaders headers, Object payload) {
+        queue.add(payload);
+      }
+    };
+  }
+
+  // Subscribe and wait for the broker to confirm
+  private static void subscribe(StompSession session, String destination, BlockingQueue<Object> queue,
+      Class<?> type) throws InterruptedException {
+    var subscribed = new CountDownLatch(1);
+    session.subscribe(destination, into(queue, type)).addReceiptTask(subscribed::countDown);
+    assertTrue(subscribed.await(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void movesThroughAnyNodeReachSubscribersOnEveryNode() throws Exception {
+    var router = nodes.get(0).getBean(GameRouter.class);
+
+    // Create the game on node 0, it only hands out ids it owns
+    var created = post(urls.get(0) + "/api/v1/create", "alice", null).body();
+    var gameId = created.substring(created.lastIndexOf(' ') + 1);
+    assertEquals(0, router.owner(gameId));
+
+    // Watch the game from node 1
+    var client = new WebSocketStompClient(
+        new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+    client.setMessageConverter(
+        new CompositeMessageConverter(List.of(new StringMessageConverter(), new MappingJackson2MessageConverter())));
+    var scheduler = new ThreadPoolTaskScheduler();
+    scheduler.initialize();
+    client.setTaskScheduler(scheduler);
+    var session = client.connect(urls.get(1) + "/game", new StompSessionHandlerAdapter() {
+    }).get(10, TimeUnit.SECONDS);
+    session.setAutoReceipt(true);
+    var events = new LinkedBlockingQueue<Object>();
+    var results = new LinkedBlockingQueue<Object>();
+    subscribe(session, "/topic/gamestate/" + gameId, events, List.class);
+    subscribe(session, "/user/queue/results", results, Map.class);
+
+    // REST on node 1 is redirected to the owner
+    var joined = post(urls.get(1) + "/api/v1/join/" + gameId, "bob", null);
+    assertEquals(200, joined.statusCode());
+    assertEquals("JOINED", ((Map<?, ?>) ((List<?>) events.poll(10, TimeUnit.SECONDS)).get(0)).get("type"));
+
+    // A spectator on node 1 is sent the first frame from the owner
+    var views = new LinkedBlockingQueue<Object>();
+    subscribe(session, "/topic/spectate/" + gameId, views, Map.class);
+    var view = (Map<?, ?>) views.poll(10, TimeUnit.SECONDS);
+    assertEquals("IN_PROGRESS", view.get("status"));
+    assertEquals(1, view.get("version"));
+    // Spectators joining soon after share that fetch
+    var more = new LinkedBlockingQueue<Object>();
+    subscribe(session, "/topic/spectate/" + gameId, more, Map.class);
+    assertEquals(view, more.poll(10, TimeUnit.SECONDS));
+    var reads = nodes.get(0).getBean(MeterRegistry.class).get("http.server.requests")
+        .tag("uri", "/api/v1/{gameId}").timer();
+    assertEquals(1, reads.count());
+
+    // STOMP on node 1 is forwarded to the owner
+    var headers = new StompHeaders();
+    headers.setDestination("/app/" + gameId + "/hide");
+    headers.add("player", "alice");
+    session.send(headers, Map.of("count", 2));
+    var hidden = (Map<?, ?>) results.poll(10, TimeUnit.SECONDS);
+    assertEquals("HIDDEN", hidden.get("type"));
+    assertEquals(2, hidden.get("hidden"));
+    assertEquals("HIDDEN", ((Map<?, ?>) ((List<?>) events.poll(10, TimeUnit.SECONDS)).get(0)).get("type"));
+    view = (Map<?, ?>) views.poll(10, TimeUnit.SECONDS);
+    assertEquals(2, view.get("version"));
+    assertEquals("BET", view.get("move"));
+    assertFalse(view.containsKey("hidden"));
+
+    session.disconnect();
+    client.stop();
+    scheduler.shutdown();
+  }
+}
@@ -0,0 +1,24 @@
+package com.example.marbleguessinggamebackend.cluster;
+
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+
+// In-JVM STOMP broker standing in for the external broker nodes relay through
+class EmbeddedBroker implements AutoCloseable {
+
+  private final EmbeddedActiveMQ server = new EmbeddedActiveMQ();
+
+  EmbeddedBroker(int port) throws Exception {
+    var config = new ConfigurationImpl()
+        .setPersistenceEnabled(false)
+        .setSecurityEnabled(false)
+        .addAcceptorConfiguration("stomp", "tcp://localhost:" + port + "?protocols=STOMP");
+    server.setConfiguration(config);
+    server.start();
+  }
+
+  @Override
+  public void close() throws Exception {
+    server.stop();
+  }
+}
@@ -0,0 +1,238 @@
+package com.example.marbleguessinggamebackend.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.example.marbleguessinggamebackend.config.WireFormat;
+import com.example.marbleguessinggamebackend.config.WireFormats;
+import com.example.marbleguessinggamebackend.dto.MoveResult;
+import com.example.marbleguessinggamebackend.model.GameStatus;
+import com.example.marbleguessinggamebackend.model.Move;
+import com.example.marbleguessinggamebackend.service.GameService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "game.matchmaking.timeout=PT2S")
+class GameMessagesTests {
+
+  @LocalServerPort
+  private int port;
+
+  @Autowired
+  private GameService gs;
+
+  @Autowired
+  private WireFormats formats;
+
+  @Autowired
+  private MeterRegistry meters;
+
+  private WebSocketStompClient client;
+  private StompSession session;
+  private final BlockingQueue<Object> results = new LinkedBlockingQueue<>();
+  private final BlockingQueue<Object> errors = new LinkedBlockingQueue<>();
+  private final BlockingQueue<Object> matches = new LinkedBlockingQueue<>();
+
+  private static StompFrameHandler into(BlockingQueue<Object> queue, Class<?> type) {
+    return new StompFrameHandler() {
+      @Override
+      public Type getPayloadType(StompHeaders headers) {
+        return type;
+      }
+
+      @Override
+      public void handleFrame(StompHeaders headers, Object payload) {
+        queue.add(payload);
+      }
+    };
+  }
+
+  @BeforeEach
+  void connect() throws Exception {
+    client = new WebSocketStompClient(
+        new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+    client.setMessageConverter(
+        new CompositeMessageConverter(List.of(new StringMessageConverter(), new MappingJackson2MessageConverter())));
+    session = client.connect("http://localhost:" + port + "/game", new StompSessionHandlerAdapter() {
+    }).get(5, TimeUnit.SECONDS);
+    session.subscribe("/user/queue/matches", into(matches, Map.class));
+    session.subscribe("/user/queue/results", into(results, Map.class));
+    session.subscribe("/user/queue/errors", into(errors, Map.class));
+    // Subscriptions are handled concurrently with sends, so wait until a move on
+    // a game that doesn't exist is answered
+    while (errors.poll(100, TimeUnit.MILLISECONDS) == null)
+      send("probe", "quit", "probe", Map.of());
+    errors.clear();
+  }
+
+  @AfterEach
+  void disconnect() {
+    session.disconnect();
+    client.stop();
+  }
+
+  private void send(String gameId, String move, String player, Object body) {
+    send("/app/" + gameId + "/" + move, player, body);
+  }
+
+  private void send(String destination, String player, Object body) {
+    var headers = new StompHeaders();
+    headers.setDestination(destination);
+    headers.add("player", player);
+    session.send(headers, body);
+  }
+
+  @Test
+  void movesAreRepliedToTheSender() throws Exception {
+    var created = gs.startGame("alice");
+    var gameId = created.substring(created.lastIndexOf(' ') + 1);
+    gs.joinGame(gameId, "bob");
+
+    send(gameId, "hide", "alice", Map.of("count", 3));
+    var hidden = (Map<?, ?>) results.poll(5, TimeUnit.SECONDS);
+    assertEquals("HIDDEN", hidden.get("type"));
+    assertEquals("alice", hidden.get("player"));
+    assertEquals(3, hidden.get("hidden"));
+    assertEquals("BET", hidden.get("move"));
+
+    send(gameId, "bet", "alice", Map.of("count", 2));
+    var error = (Map<?, ?>) errors.poll(5, TimeUnit.SECONDS);
+    assertEquals("BAD_REQUEST", error.get("status"));
+
+    send(gameId, "bet", "bob", Map.of("count", 2));
+    assertEquals(2, ((Map<?, ?>) results.poll(5, TimeUnit.SECONDS)).get("bet"));
+    send(gameId, "guess", "bob", Map.of("guess", "ODD"));
+    var guessed = (Map<?, ?>) results.poll(5, TimeUnit.SECONDS);
+    assertEquals("GUESS_RESOLVED", guessed.get("type"));
+    assertEquals(true, guessed.get("correct"));
+    assertEquals(3, guessed.get("hidden"));
+    assertEquals(8, guessed.get("stake1"));
+    assertEquals(12, guessed.get("stake2"));
+  }
+
+  @Test
+  void sessionsAreRepliedInTheFormatTheyAskedFor() throws Exception {
+    var created = gs.startGame("ivan");
+    var gameId = created.substring(created.lastIndexOf(' ') + 1);
+    gs.joinGame(gameId, "judy");
+
+    // Binary bodies need a plain WebSocket connection
+    var smile = new MappingJackson2MessageConverter(WireFormat.SMILE.stompContentType());
+    smile.setObjectMapper(formats.mapper(WireFormat.SMILE));
+    smile.setStrictContentTypeMatch(true);
+    var smileClient = new WebSocketStompClient(new StandardWebSocketClient());
+    smileClient.setMessageConverter(smile);
+    var connect = new StompHeaders();
+    connect.add(HttpHeaders.ACCEPT.toLowerCase(), WireFormat.SMILE.mediaType().toString());
+    var smileSession = smileClient.connect("ws://localhost:" + port + "/game/websocket", new WebSocketHttpHeaders(),
+        connect, new StompSessionHandlerAdapter() {
+        }).get(5, TimeUnit.SECONDS);
+    BlockingQueue<Object> smileResults = new LinkedBlockingQueue<>();
+    BlockingQueue<Object> smileErrors = new LinkedBlockingQueue<>();
+    smileSession.subscribe("/user/queue/results", into(smileResults, MoveResult.class));
+    smileSession.subscribe("/user/queue/errors", into(smileErrors, Map.class));
+    try {
+      // Errors are sent in the session's format too
+      var probe = new StompHeaders();
+      probe.setDestination("/app/probe/quit");
+      probe.add("player", "probe");
+      probe.setContentType(WireFormat.SMILE.stompContentType());
+      while (smileErrors.poll(100, TimeUnit.MILLISECONDS) == null)
+        smileSession.send(probe, Map.of());
+
+      var headers = new StompHeaders();
+      headers.setDestination("/app/" + gameId + "/hide");
+      headers.add("player", "ivan");
+      headers.setContentType(WireFormat.SMILE.stompContentType());
+      smileSession.send(headers, Map.of("count", 4));
+      var result = (MoveResult) smileResults.poll(5, TimeUnit.SECONDS);
+      assertEquals(gameId, result.getGameId());
+      assertEquals(4, result.getHidden());
+      assertEquals(GameStatus.IN_PROGRESS, result.getStatus());
+      assertEquals(Move.BET, result.getMove());
+      assertNull(result.getWinner());
+    } finally {
+      smileSession.disconnect();
+      smileClient.stop();
+    }
+  }
+
+  @Test
+  void pairedPlayersAreSentTheirGame() throws Exception {
+    send("/app/matchmake", "grace", Map.of());
+    send("/app/matchmake", "heidi", Map.of());
+
+    // Both players asked on this session, so it gets the game twice
+    for (int i = 0; i < 2; i++) {
+      var game = (Map<?, ?>) matches.poll(5, TimeUnit.SECONDS);
+      assertEquals("grace", game.get("player1"));
+      assertEquals("heidi", game.get("player2"));
+      assertEquals("IN_PROGRESS", game.get("status"));
+    }
+  }
+
+  @Test
+  void unpairedPlayersAreToldWhenTheWaitTimesOut() throws Exception {
+    send("/app/matchmake", "ivan", Map.of());
+
+    var error = (Map<?, ?>) errors.poll(10, TimeUnit.SECONDS);
+    assertEquals("REQUEST_TIMEOUT", error.get("status"));
+    // The slot is free again, so the next two players are paired together
+    send("/app/matchmake", "judy", Map.of());
+    send("/app/matchmake", "mallory", Map.of());
+    var game = (Map<?, ?>) matches.poll(5, TimeUnit.SECONDS);
+    assertEquals("judy", game.get("player1"));
+  }
+
+  @Test
+  void restMatchmakingRepliesNoContentWhenTheWaitTimesOut() throws Exception {
+    var http = HttpClient.newHttpClient();
+    var url = URI.create("http://localhost:" + port + "/api/v1/matchmake");
+    var oscar = HttpRequest.newBuilder(url).header("player", "oscar").POST(BodyPublishers.noBody()).build();
+    assertEquals(204, http.send(oscar, BodyHandlers.ofString()).statusCode());
+
+    // Asking again right away waits afresh and is paired
+    var retry = http.sendAsync(oscar, BodyHandlers.ofString());
+    while (meters.get("matchmaking.waiting").gauge().value() == 0)
+      Thread.sleep(10);
+    var peggy = HttpRequest.newBuilder(url).header("player", "peggy").POST(BodyPublishers.noBody()).build();
+    assertEquals(200, http.send(peggy, BodyHandlers.ofString()).statusCode());
+    var game = retry.get(5, TimeUnit.SECONDS);
+    assertEquals(200, game.statusCode());
+    assertTrue(game.body().contains("\"player1\":\"oscar\",\"player2\":\"peggy\""));
+  }
+}
@@ -0,0 +1,108 @@
+package com.example.marbleguessinggamebackend.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Map;
+
+import com.example.marbleguessinggamebackend.config.WireFormat;
+import com.example.marbleguessinggamebackend.config.WireFormats;
+import com.example.marbleguessinggamebackend.service.GameService;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class WireFormatTests {
+
+  @Autowired
+  private GameService gs;
+
+  @Autowired
+  private WireFormats formats;
+
+  @Autowired
+  private MockMvc mvc;
+
+  private String startGame(String player1, String player2) {
+    var created = gs.startGame(player1);
+    var gameId = created.substring(created.lastIndexOf(' ') + 1);
+    gs.joinGame(gameId, player2);
+    return gameId;
+  }
+
+  @Test
+  void movesAreAnsweredInTheAcceptedFormat() throws Exception {
+    var gameId = startGame("alice", "bob");
+
+    var hidden = mvc.perform(post("/api/v1/" + gameId + "/hide").header("player", "alice")
+        .contentType(MediaType.APPLICATION_JSON).content("{\"count\":2}")
+        .accept(WireFormat.SMILE.mediaType()))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(WireFormat.SMILE.mediaType()))
+        .andReturn().getResponse().getContentAsByteArray();
+    var result = formats.mapper(WireFormat.SMILE).readTree(hidden);
+    assertEquals("HIDDEN", result.path("type").asText());
+    assertEquals(2, result.path("hidden").asInt());
+    assertEquals("BET", result.path("move").asText());
+
+    // Request bodies are read in the format of their content type
+    var cbor = formats.mapper(WireFormat.CBOR);
+    var bet = mvc.perform(post("/api/v1/" + gameId + "/bet").header("player", "bob")
+        .contentType(WireFormat.CBOR.mediaType()).content(cbor.writeValueAsBytes(Map.of("count", 1)))
+        .accept(WireFormat.CBOR.mediaType()))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(WireFormat.CBOR.mediaType()))
+        .andReturn().getResponse().getContentAsByteArray();
+    assertEquals(1, cbor.readTree(bet).path("bet").asInt());
+  }
+
+  @Test
+  void jsonStaysTheDefault() throws Exception {
+    var gameId = startGame("carol", "dave");
+
+    mvc.perform(post("/api/v1/" + gameId + "/quit").header("player", "dave"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+        .andExpect(jsonPath("$.type").value("QUIT"))
+        .andExpect(jsonPath("$.status").value("ENDED"));
+    // Errors follow the Accept header too
+    var error = mvc.perform(post("/api/v1/" + gameId + "/quit").header("player", "dave")
+        .accept(WireFormat.SMILE.mediaType()))
+        .andExpect(status().isBadRequest())
+        .andReturn().getResponse().getContentAsByteArray();
+    assertEquals("Game: " + gameId + " does not exist", formats.mapper(WireFormat.SMILE).readTree(error).path("message").asText());
+  }
+
+  @Test
+  void pagesOfGamesAreStreamedInTheAcceptedFormat() throws Exception {
+    startGame("erin", "frank");
+
+    var json = page(MediaType.APPLICATION_JSON);
+    var cbor = page(WireFormat.CBOR.mediaType());
+    assertEquals(formats.mapper(WireFormat.JSON).readTree(json), formats.mapper(WireFormat.CBOR).readTree(cbor));
+    assertTrue(cbor.length < json.length);
+  }
+
+  private byte[] page(MediaType accept) throws Exception {
+    var page = mvc.perform(get("/api/v1").param("limit", "500").accept(accept))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    return mvc.perform(asyncDispatch(page))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(accept))
+        .andReturn().getResponse().getContentAsByteArray();
+  }
+}
@@ -0,0 +1,85 @@
+package com.example.marbleguessinggamebackend.journal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.service.GameRegistry;
+import com.example.marbleguessinggamebackend.service.GameService;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+@SpringBootTest(properties = "game.journal.enabled=true")
+class MappedGameJournalTests {
+
+  private static Path dir;
+
+  @DynamicPropertySource
+  static void journalDir(DynamicPropertyRegistry registry) throws IOException {
+    dir = Files.createTempDirectory("journal");
+    registry.add("game.journal.dir", dir::toString);
+  }
+
+  @Autowired
+  private GameService gs;
+
+  @Autowired
+  private GameRegistry gr;
+
+  @Autowired
+  private MappedGameJournal journal;
+
+  private static String gameId(String created) {
+    return created.substring(created.lastIndexOf(' ') + 1);
+  }
+
+  private static Map<String, Game> byId(Iterable<Game> all) {
+    var games = new HashMap<String, Game>();
+    for (var game : all)
+      games.put(game.getGameId(), game);
+    return games;
+  }
+
+  private static Map<String, Game> replay() throws IOException {
+    return byId(JournalReplay.replay(dir));
+  }
+
+  private void play() {
+    var played = gameId(gs.startGame("alice"));
+    gs.joinGame(played, "bob");
+    gs.hide(3, played, "alice");
+    gs.bet(2, played, "bob");
+    gs.guess(played, "bob", "ODD");
+
+    var won = gameId(gs.startGame("carol"));
+    gs.joinGame(won, "dave");
+    gs.hide(10, won, "carol");
+    gs.bet(10, won, "dave");
+    gs.guess(won, "dave", "EVEN");
+
+    var quit = gameId(gs.startGame("erin"));
+    gs.quitGame(quit, "erin");
+    assertNull(gr.getGame(quit));
+  }
+
+  @Test
+  void replayRebuildsRegistry() throws IOException {
+    play();
+    assertEquals(byId(gr.getGames()), replay());
+
+    // Replay from a snapshot plus the segments written after it
+    journal.snapshot();
+    play();
+    assertEquals(byId(gr.getGames()), replay());
+  }
+}
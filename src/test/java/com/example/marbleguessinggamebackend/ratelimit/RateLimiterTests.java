@@ -0,0 +1,149 @@
+package com.example.marbleguessinggamebackend.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "game.rate-limit.create.rate=0.01", "game.rate-limit.create.burst=2",
+    "game.rate-limit.move.rate=0.01", "game.rate-limit.move.burst=3" })
+@AutoConfigureMockMvc
+class RateLimiterTests {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @LocalServerPort
+  private int port;
+
+  @Autowired
+  private MockMvc mvc;
+
+  @Autowired
+  private MeterRegistry meters;
+
+  @Test
+  void bucketsAllowABurstThenRefillAtTheRate() {
+    var buckets = new TokenBuckets(2, 3, 100, 0);
+    var now = 0L;
+    for (int i = 0; i < 3; i++)
+      assertEquals(0, buckets.acquire("alice", now));
+    // The next token is half a second away
+    assertEquals(SECOND / 2, buckets.acquire("alice", now));
+    assertEquals(0, buckets.acquire("bob", now));
+
+    assertEquals(0, buckets.acquire("alice", now + SECOND / 2));
+    assertTrue(buckets.acquire("alice", now + SECOND / 2) > 0);
+    // Idle for long enough, the bucket is full again but holds no more
+    now += 10 * SECOND;
+    for (int i = 0; i < 3; i++)
+      assertEquals(0, buckets.acquire("alice", now));
+    assertTrue(buckets.acquire("alice", now) > 0);
+  }
+
+  @Test
+  void fullBucketsAreSweptAndKeysPastTheCapShareOne() {
+    var buckets = new TokenBuckets(1, 1, 2, 0);
+    assertEquals(0, buckets.acquire("alice", 0));
+    assertEquals(0, buckets.acquire("bob", 0));
+    // No room for more keys, so carol and dave share a bucket
+    assertEquals(0, buckets.acquire("carol", 0));
+    assertTrue(buckets.acquire("dave", 0) > 0);
+    assertEquals(2, buckets.size());
+
+    buckets.sweep(SECOND / 2);
+    assertEquals(2, buckets.size());
+    buckets.sweep(SECOND);
+    assertEquals(0, buckets.size());
+    assertEquals(0, buckets.acquire("dave", SECOND));
+  }
+
+  @Test
+  void requestsOverTheLimitAreAnswered429() throws Exception {
+    for (int i = 0; i < 2; i++)
+      mvc.perform(post("/api/v1/create").header("player", "mallory")).andExpect(status().isOk());
+    mvc.perform(post("/api/v1/create").header("player", "mallory"))
+        .andExpect(status().isTooManyRequests())
+        .andExpect(header().string("Retry-After", "100"));
+    // Other players and endpoints have their own buckets
+    mvc.perform(post("/api/v1/create").header("player", "trent")).andExpect(status().isOk());
+    mvc.perform(post("/api/v1/join/missing").header("player", "mallory")).andExpect(status().isBadRequest());
+
+    assertEquals(1, meters.counter("ratelimit.rejected", "endpoint", "create", "key", "player").count());
+  }
+
+  @Test
+  void messagesOverTheLimitAreDroppedWithAnError() throws Exception {
+    var client = new WebSocketStompClient(
+        new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+    client.setMessageConverter(new MappingJackson2MessageConverter());
+    var session = client.connect("http://localhost:" + port + "/game", new StompSessionHandlerAdapter() {
+    }).get(5, TimeUnit.SECONDS);
+    BlockingQueue<Map<?, ?>> errors = new LinkedBlockingQueue<>();
+    session.subscribe("/user/queue/errors", new StompFrameHandler() {
+      @Override
+      public Type getPayloadType(StompHeaders headers) {
+        return Map.class;
+      }
+
+      @Override
+      public void handleFrame(StompHeaders headers, Object payload) {
+        errors.add((Map<?, ?>) payload);
+      }
+    });
+    try {
+      var headers = new StompHeaders();
+      headers.setDestination("/app/missing/quit");
+      headers.add("player", "eve");
+      // Wait for the subscription with the first move, answered as the game
+      // doesn't exist
+      Map<?, ?> error = null;
+      var sent = 0;
+      while (error == null) {
+        session.send(headers, Map.of());
+        sent++;
+        error = errors.poll(500, TimeUnit.MILLISECONDS);
+      }
+      assertEquals("BAD_REQUEST", error.get("status"));
+      for (; sent < 3; sent++) {
+        session.send(headers, Map.of());
+        assertEquals("BAD_REQUEST", errors.poll(5, TimeUnit.SECONDS).get("status"));
+      }
+
+      session.send(headers, Map.of());
+      var limited = errors.poll(5, TimeUnit.SECONDS);
+      assertEquals("TOO_MANY_REQUESTS", limited.get("status"));
+      assertNull(errors.poll(200, TimeUnit.MILLISECONDS));
+      assertTrue(session.isConnected());
+    } finally {
+      session.disconnect();
+      client.stop();
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package com.example.marbleguessinggamebackend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+
+import com.example.marbleguessinggamebackend.config.WireFormat;
+import com.example.marbleguessinggamebackend.config.WireFormats;
+import com.example.marbleguessinggamebackend.dto.GameEvent;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.util.MimeTypeUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class GameBroadcasterTests {
+
+  private SimpMessagingTemplate mt;
+  private SimpleMeterRegistry meters;
+  private WireFormats formats;
+  // Not started, so batches are only sent by flush()
+  private GameBroadcaster broadcaster;
+
+  @BeforeEach
+  void setUp() {
+    mt = mock(SimpMessagingTemplate.class);
+    meters = new SimpleMeterRegistry();
+    formats = new WireFormats(Jackson2ObjectMapperBuilder.json());
+    broadcaster = new GameBroadcaster(mt, formats, meters, 2, Duration.ZERO, Set.of(WireFormat.JSON));
+  }
+
+  private static GameEvent event(GameEvent event, long version) {
+    event.setVersion(version);
+    return event;
+  }
+
+  @Test
+  void eventsOfAGameAreSentInOneMessageInVersionOrder() {
+    broadcaster.publish("g", event(GameEvent.betPlaced("bob", 2), 3));
+    broadcaster.publish("g", event(GameEvent.hidden("alice"), 2));
+    broadcaster.publish("g", event(GameEvent.joined("bob"), 1));
+    broadcaster.flush();
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Message<byte[]>> captor = ArgumentCaptor.forClass(Message.class);
+    verify(mt, times(1)).send(eq("/topic/gamestate/g"), captor.capture());
+    var json = new String(captor.getValue().getPayload(), StandardCharsets.UTF_8);
+    assertEquals("[{\"type\":\"JOINED\",\"version\":1,\"player\":\"bob\"},"
+        + "{\"type\":\"HIDDEN\",\"version\":2,\"player\":\"alice\"},"
+        + "{\"type\":\"BET_PLACED\",\"version\":3,\"player\":\"bob\",\"bet\":2}]", json);
+    assertEquals(2, meters.counter("broadcast.coalesced").count());
+  }
+
+  @Test
+  void oldestGameIsDroppedWhenTheQueueIsFull() {
+    broadcaster.publish("a", event(GameEvent.joined("bob"), 1));
+    broadcaster.publish("a", event(GameEvent.hidden("alice"), 2));
+    broadcaster.publish("b", event(GameEvent.joined("carol"), 1));
+    broadcaster.publish("c", event(GameEvent.joined("dave"), 1));
+
+    assertEquals(2, meters.counter("broadcast.dropped").count());
+    assertEquals(2, meters.get("broadcast.queue.depth").gauge().value());
+
+    broadcaster.flush();
+    verify(mt, never()).send(eq("/topic/gamestate/a"), any());
+    verify(mt).send(eq("/topic/gamestate/b"), any());
+    verify(mt).send(eq("/topic/gamestate/c"), any());
+    assertEquals(0, meters.get("broadcast.queue.depth").gauge().value());
+  }
+
+  @Test
+  void eachFormatIsSentToItsOwnTopic() throws Exception {
+    broadcaster = new GameBroadcaster(mt, formats, meters, 2, Duration.ZERO,
+        Set.of(WireFormat.JSON, WireFormat.SMILE));
+    broadcaster.publish("g", event(GameEvent.betPlaced("bob", 2), 3));
+    broadcaster.flush();
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Message<byte[]>> json = ArgumentCaptor.forClass(Message.class);
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Message<byte[]>> smile = ArgumentCaptor.forClass(Message.class);
+    verify(mt).send(eq("/topic/gamestate/g"), json.capture());
+    verify(mt).send(eq("/topic/gamestate/g/smile"), smile.capture());
+    assertEquals(MimeTypeUtils.APPLICATION_OCTET_STREAM,
+        smile.getValue().getHeaders().get(MessageHeaders.CONTENT_TYPE));
+    // Same events in fewer bytes
+    var events = formats.mapper(WireFormat.SMILE).readTree(smile.getValue().getPayload());
+    assertEquals(formats.mapper(WireFormat.JSON).readTree(json.getValue().getPayload()), events);
+    assertTrue(smile.getValue().getPayload().length < json.getValue().getPayload().length);
+    assertEquals(1, meters.get("broadcast.payload").tag("format", "smile").summary().count());
+  }
+
+  @Test
+  void batchesWaitOnTheBarrierOnceBeforeTheyAreSent() {
+    var barrier = mock(Runnable.class);
+    broadcaster.holdUntil(barrier);
+    broadcaster.publish("a", event(GameEvent.joined("bob"), 1));
+    broadcaster.publish("b", event(GameEvent.joined("carol"), 1));
+    broadcaster.flush();
+
+    var order = inOrder(barrier, mt);
+    order.verify(barrier).run();
+    order.verify(mt, times(2)).send(any(String.class), any(Message.class));
+
+    // A barrier that fails drops the batches rather than send them early
+    doThrow(new IllegalStateException("Journal is closed")).when(barrier).run();
+    broadcaster.publish("a", event(GameEvent.hidden("alice"), 2));
+    broadcaster.flush();
+    verify(mt, times(2)).send(any(String.class), any(Message.class));
+    assertEquals(1, meters.counter("broadcast.dropped").count());
+  }
+
+  @Test
+  void everyGamePublishedToConcurrentlyIsSent() throws Exception {
+    var games = 50_000;
+    var threads = 4;
+    broadcaster = new GameBroadcaster(new SimpMessagingTemplate((message, timeout) -> true), formats, meters,
+        games, Duration.ZERO, Set.of(WireFormat.JSON));
+    var sent = ConcurrentHashMap.<String>newKeySet();
+    var versions = ConcurrentHashMap.<Long>newKeySet();
+    broadcaster.onSent((gameId, version) -> sent.add(gameId));
+    broadcaster.onSent((gameId, version) -> versions.add(version));
+
+    // Every thread publishes to every game, so most batches are started while
+    // another thread adds to them
+    var start = new CyclicBarrier(threads);
+    var publishers = new ArrayList<Thread>();
+    for (int t = 0; t < threads; t++) {
+      var version = t + 1;
+      var publisher = new Thread(() -> {
+        try {
+          start.await();
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+        for (int g = 0; g < games; g++)
+          broadcaster.publish("g" + g, event(GameEvent.joined("bob"), version));
+      });
+      publisher.start();
+      publishers.add(publisher);
+    }
+    for (var publisher : publishers)
+      publisher.join();
+    broadcaster.flush();
+
+    // Every listener is told of each game, with the newest version sent
+    assertEquals(games, sent.size());
+    assertEquals(Set.of((long) threads), versions);
+    assertEquals(0, meters.counter("broadcast.dropped").count());
+    assertEquals(games * (threads - 1), meters.counter("broadcast.coalesced").count());
+  }
+}
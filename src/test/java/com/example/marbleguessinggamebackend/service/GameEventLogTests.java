@@ -0,0 +1,94 @@
+package com.example.marbleguessinggamebackend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.example.marbleguessinggamebackend.dto.GameEvent;
+import com.example.marbleguessinggamebackend.service.GameMetrics.Operation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.env.MockEnvironment;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class GameEventLogTests {
+
+  private final Logger logger = (Logger) LoggerFactory.getLogger("game.events");
+  private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+  private SimpleMeterRegistry meters;
+
+  @BeforeEach
+  void setUp() {
+    appender.start();
+    logger.addAppender(appender);
+    meters = new SimpleMeterRegistry();
+  }
+
+  @AfterEach
+  void tearDown() {
+    logger.detachAppender(appender);
+  }
+
+  // Not started, so entries are only written by drain()
+  private GameEventLog eventLog(MockEnvironment env, int capacity) {
+    return new GameEventLog(new ObjectMapper(), meters, env, true, capacity, 1.0);
+  }
+
+  private List<String> lines() {
+    return appender.list.stream().map(ILoggingEvent::getFormattedMessage).collect(Collectors.toList());
+  }
+
+  @Test
+  void writesEntriesAsJsonLines() {
+    var eventLog = eventLog(new MockEnvironment(), 16);
+    var event = GameEvent.betPlaced("bob", 3);
+    event.setVersion(4);
+    eventLog.started("game-1", "alice");
+    eventLog.installed("game-1", event);
+    eventLog.rejected("game-1", Operation.HIDE, MoveError.WAITING_FOR_PLAYER_1);
+    eventLog.drain();
+
+    var lines = lines();
+    assertEquals(3, lines.size());
+    assertTrue(lines.get(0).contains("\"type\":\"STARTED\""));
+    assertTrue(lines.get(0).contains("\"player\":\"alice\""));
+    assertTrue(lines.get(1).contains("\"type\":\"BET_PLACED\",\"version\":4,\"player\":\"bob\",\"bet\":3"));
+    assertTrue(lines.get(2).contains("\"reason\":\"WAITING_FOR_PLAYER_1\""));
+    assertTrue(lines.get(2).contains("\"gameId\":\"game-1\""));
+  }
+
+  @Test
+  void samplesByType() {
+    var env = new MockEnvironment().withProperty("game.event-log.rates.hidden", "0");
+    var eventLog = eventLog(env, 16);
+    eventLog.installed("game-1", GameEvent.hidden("alice"));
+    eventLog.installed("game-1", GameEvent.betPlaced("bob", 1));
+    eventLog.drain();
+
+    assertEquals(1, lines().size());
+    assertTrue(lines().get(0).contains("BET_PLACED"));
+  }
+
+  @Test
+  void dropsEntriesWhenFull() {
+    var eventLog = eventLog(new MockEnvironment(), 4);
+    for (int i = 0; i < 6; i++)
+      eventLog.started("game-" + i, "alice");
+    eventLog.drain();
+    eventLog.started("game-6", "alice");
+    eventLog.drain();
+
+    assertEquals(5, lines().size());
+    assertEquals(2, meters.get("game.event-log.dropped").counter().count());
+  }
+}
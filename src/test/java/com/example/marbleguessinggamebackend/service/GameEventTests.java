@@ -0,0 +1,112 @@
+package com.example.marbleguessinggamebackend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.example.marbleguessinggamebackend.dto.GameEvent;
+import com.example.marbleguessinggamebackend.exception.GameException;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+@SpringBootTest
+class GameEventTests {
+
+  @Autowired
+  private GameService gs;
+
+  @MockBean
+  private GameBroadcaster broadcaster;
+
+  private static String gameId(String created) {
+    return created.substring(created.lastIndexOf(' ') + 1);
+  }
+
+  private List<GameEvent> events(String gameId) {
+    var captor = ArgumentCaptor.forClass(GameEvent.class);
+    verify(broadcaster, atLeastOnce()).publish(eq(gameId), captor.capture());
+    return captor.getAllValues();
+  }
+
+  @Test
+  void movesAreBroadcastAsEvents() {
+    var gameId = gameId(gs.startGame("alice"));
+    gs.joinGame(gameId, "bob");
+    gs.hide(3, gameId, "alice");
+    gs.bet(2, gameId, "bob");
+    gs.guess(gameId, "bob", "ODD");
+
+    var events = events(gameId);
+    assertEquals(List.of(GameEvent.Type.JOINED, GameEvent.Type.HIDDEN, GameEvent.Type.BET_PLACED,
+        GameEvent.Type.GUESS_RESOLVED), events.stream().map(GameEvent::getType).collect(Collectors.toList()));
+    assertEquals(List.of(1L, 2L, 3L, 4L), events.stream().map(GameEvent::getVersion).collect(Collectors.toList()));
+
+    // The hidden count is only revealed with the guess
+    assertNull(events.get(1).getHidden());
+    var resolved = events.get(3);
+    assertEquals(true, resolved.getCorrect());
+    assertEquals(3, resolved.getHidden());
+    assertEquals(-2, resolved.getDelta());
+  }
+
+  @Test
+  void rejectedMovesAreNotInstalled() {
+    var gameId = gameId(gs.startGame("alice"));
+    gs.joinGame(gameId, "bob");
+
+    var e = assertThrows(GameException.class, () -> gs.hide(3, gameId, "bob"));
+    assertSame(MoveError.WAITING_FOR_PLAYER_1, MoveError.of(e));
+    assertEquals("Invalid turn. Waiting for alice to play", e.getMessage());
+    assertThrows(GameException.class, () -> gs.bet(2, gameId, "alice"));
+
+    // Only the join was broadcast and the version did not move
+    assertEquals(1, events(gameId).size());
+    assertEquals(1, gs.snapshot(gameId, null).getVersion());
+  }
+
+  @Test
+  void rejectionsNameTheGameAndPlayers() {
+    var gameId = gameId(gs.startGame("alice"));
+    gs.joinGame(gameId, "bob");
+
+    assertEquals("Invalid count. Can only hide marbles >0 and <=10",
+        assertThrows(GameException.class, () -> gs.hide(11, gameId, "alice")).getMessage());
+    assertEquals("Can't restart as carol is not playing the game: " + gameId,
+        assertThrows(GameException.class, () -> gs.restartGame(gameId, "carol")).getMessage());
+    assertEquals("carol is not playing the game: " + gameId,
+        assertThrows(GameException.class, () -> gs.quitGame(gameId, "carol")).getMessage());
+    assertEquals("Game: " + gameId + " is already in progress",
+        assertThrows(GameException.class, () -> gs.joinGame(gameId, "carol")).getMessage());
+    assertEquals("Game: missing does not exist",
+        assertThrows(GameException.class, () -> gs.bet(1, "missing", "bob")).getMessage());
+
+    // Every move on a game nobody joined is told it isn't in progress the same way
+    var waiting = gameId(gs.startGame("dave"));
+    assertEquals("Game: " + waiting + " is not in progress",
+        assertThrows(GameException.class, () -> gs.bet(1, waiting, "dave")).getMessage());
+    assertEquals("Game: " + waiting + " is not in progress",
+        assertThrows(GameException.class, () -> gs.hide(1, waiting, "dave")).getMessage());
+  }
+
+  @Test
+  void snapshotsOnlyShowHiddenMarblesToTheHider() {
+    var gameId = gameId(gs.startGame("alice"));
+    gs.joinGame(gameId, "bob");
+    gs.hide(3, gameId, "alice");
+
+    assertEquals(3, gs.snapshot(gameId, "alice").getHidden());
+    assertEquals(0, gs.snapshot(gameId, "bob").getHidden());
+    assertEquals(0, gs.snapshot(gameId, null).getHidden());
+  }
+}
@@ -0,0 +1,53 @@
+package com.example.marbleguessinggamebackend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.example.marbleguessinggamebackend.exception.GameException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest(properties = {
+    "game.eviction.tick=PT0.01S",
+    "game.eviction.idle-timeout=PT0.05S",
+    "game.max-games=2"
+})
+class GameEvictorTests {
+
+  @Autowired
+  private GameService gs;
+
+  @Autowired
+  private GameRegistry gr;
+
+  @Autowired
+  private GameEvictor evictor;
+
+  @Autowired
+  private MeterRegistry meters;
+
+  private static String gameId(String created) {
+    return created.substring(created.lastIndexOf(' ') + 1);
+  }
+
+  @Test
+  void idleGamesAreEvictedToMakeRoom() throws Exception {
+    var first = gameId(gs.startGame("alice"));
+    var second = gameId(gs.startGame("bob"));
+    assertThrows(GameException.class, () -> gs.startGame("carol"));
+
+    Thread.sleep(200);
+    evictor.sweep();
+
+    assertNull(gr.getGame(first));
+    assertNull(gr.getGame(second));
+    assertEquals(2, meters.counter("games.evicted", "reason", "idle").count());
+    assertEquals(0, meters.get("games.resident").gauge().value());
+    gs.startGame("carol");
+  }
+}
@@ -0,0 +1,87 @@
+package com.example.marbleguessinggamebackend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+class GameIdsTests {
+
+  @Test
+  void generatedIdsDecodeToTheirKey() {
+    for (var id : new long[] { 0, 1, 61, 62, 1234567890123L, Long.MAX_VALUE }) {
+      var gameId = GameIds.encode(id);
+      assertEquals(GameIds.LENGTH, gameId.length());
+      assertEquals(id, GameIds.key(gameId));
+    }
+    // The digits sort like the longs
+    assertTrue(GameIds.encode(61).compareTo(GameIds.encode(62)) < 0);
+  }
+
+  @Test
+  void otherIdsHashToNegativeKeys() {
+    var uuid = UUID.randomUUID().toString();
+    assertTrue(GameIds.key(uuid) < 0);
+    assertEquals(GameIds.key(uuid), GameIds.key(new String(uuid)));
+    // Right length but not base62, or past Long.MAX_VALUE
+    assertTrue(GameIds.key("game-000001") < 0);
+    assertTrue(GameIds.key("zzzzzzzzzzz") < 0);
+    assertNotEquals(GameIds.key("game-1"), GameIds.key("game-2"));
+  }
+
+  @Test
+  void timeOrderedIdsAreUniqueAcrossThreads() throws InterruptedException {
+    var ids = new TimeOrderedIdGenerator(3);
+    var seen = ConcurrentHashMap.<Long>newKeySet();
+    var ordered = new AtomicBoolean(true);
+    var start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      var thread = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        // More ids than a stripe has sequence numbers in a millisecond
+        var last = -1L;
+        for (int i = 0; i < 20000; i++) {
+          var id = ids.nextLong();
+          if (id <= last)
+            ordered.set(false);
+          last = id;
+          seen.add(id);
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (var thread : threads)
+      thread.join();
+    assertEquals(8 * 20000, seen.size());
+    // Each thread sees its ids grow
+    assertTrue(ordered.get());
+  }
+
+  @Test
+  void randomIdsAreGeneratedIds() {
+    Set<String> ids = ConcurrentHashMap.newKeySet();
+    var random = new RandomIdGenerator();
+    for (int i = 0; i < 1000; i++) {
+      var gameId = random.next();
+      assertTrue(GameIds.key(gameId) >= 0);
+      ids.add(gameId);
+    }
+    assertEquals(1000, ids.size());
+  }
+}
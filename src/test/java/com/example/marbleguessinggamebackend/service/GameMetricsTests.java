@@ -0,0 +1,64 @@
+package com.example.marbleguessinggamebackend.service;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.example.marbleguessinggamebackend.exception.GameException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest
+@AutoConfigureMetrics
+@AutoConfigureMockMvc
+class GameMetricsTests {
+
+  @Autowired
+  private GameService gs;
+
+  @Autowired
+  private MeterRegistry meters;
+
+  @Autowired
+  private MockMvc mvc;
+
+  private long count(String operation, String outcome, String reason) {
+    return meters.get("game.operations")
+        .tag("operation", operation)
+        .tag("outcome", outcome)
+        .tag("reason", reason)
+        .timer()
+        .count();
+  }
+
+  @Test
+  void operationsAreTimedByOutcome() throws Exception {
+    var hides = count("hide", "accepted", "none");
+    var outOfTurn = count("hide", "rejected", "waiting_for_player_1");
+
+    var created = gs.startGame("alice");
+    var gameId = created.substring(created.lastIndexOf(' ') + 1);
+    gs.joinGame(gameId, "bob");
+    assertThrows(GameException.class, () -> gs.hide(3, gameId, "bob"));
+    gs.hide(3, gameId, "alice");
+
+    assertEquals(hides + 1, count("hide", "accepted", "none"));
+    assertEquals(outOfTurn + 1, count("hide", "rejected", "waiting_for_player_1"));
+
+    mvc.perform(get("/actuator/prometheus"))
+        .andExpect(status().isOk())
+        .andExpect(content().string(containsString(
+            "game_operations_seconds_count{operation=\"hide\",outcome=\"rejected\",reason=\"waiting_for_player_1\",}")))
+        .andExpect(content().string(containsString("games_status{status=\"in_progress\",}")));
+  }
+}
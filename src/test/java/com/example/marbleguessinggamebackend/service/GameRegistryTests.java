@@ -0,0 +1,80 @@
+package com.example.marbleguessinggamebackend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.model.GameStatus;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GameRegistryTests {
+
+  private GameRegistry gr;
+
+  @BeforeEach
+  void setUp() {
+    gr = new GameRegistry();
+    for (int i = 0; i < 10; i++)
+      gr.addGame(new Game("game-" + i, "player-" + i));
+  }
+
+  private static List<String> ids(List<Game> games) {
+    return games.stream().map(Game::getGameId).collect(Collectors.toList());
+  }
+
+  // Join a game through the registry the way GameService does
+  private void join(String gameId) {
+    gr.update(gameId, current -> {
+      var game = current.next().player2("joiner").status(GameStatus.IN_PROGRESS).build();
+      return new Transition(game, null, null);
+    });
+  }
+
+  @Test
+  void pagesFollowCursor() {
+    assertEquals(List.of("game-0", "game-1", "game-2", "game-3"), ids(gr.page(null, null, 4)));
+    assertEquals(List.of("game-4", "game-5", "game-6", "game-7"), ids(gr.page(null, "game-3", 4)));
+    assertEquals(List.of("game-8", "game-9"), ids(gr.page(null, "game-7", 4)));
+    assertTrue(gr.page(null, "game-9", 4).isEmpty());
+  }
+
+  @Test
+  void pagesFilterByStatus() {
+    join("game-1");
+    join("game-2");
+    gr.removeGame(gr.getGame("game-3"));
+
+    assertEquals(List.of("game-1", "game-2"), ids(gr.page(GameStatus.IN_PROGRESS, null, 10)));
+    assertEquals(List.of("game-0", "game-4", "game-5"), ids(gr.page(GameStatus.NEW, null, 3)));
+    assertEquals(9, gr.page(null, null, 100).size());
+  }
+
+  @Test
+  void indexesGamesByPlayer() {
+    join("game-1");
+    join("game-2");
+    assertEquals(List.of("game-1", "game-2"), ids(gr.gamesOf("joiner")).stream().sorted().collect(Collectors.toList()));
+    assertEquals(List.of("game-3"), ids(gr.gamesOf("player-3")));
+
+    gr.removeGame(gr.getGame("game-1"));
+    assertEquals(List.of("game-2"), ids(gr.gamesOf("joiner")));
+    assertTrue(gr.gamesOf("player-1").isEmpty());
+  }
+
+  @Test
+  void removesOnlyUnchangedGames() {
+    var stale = gr.getGame("game-4");
+    join("game-4");
+
+    assertFalse(gr.removeGame(stale));
+    assertTrue(gr.removeGame(gr.getGame("game-4")));
+    assertNull(gr.getGame("game-4"));
+  }
+}
@@ -0,0 +1,195 @@
+package com.example.marbleguessinggamebackend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Objects;
+import java.util.Random;
+
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.model.GameStatus;
+import com.example.marbleguessinggamebackend.model.Move;
+import com.example.marbleguessinggamebackend.model.Turn;
+
+import org.junit.jupiter.api.Test;
+
+// Checks GameRules against the rules as GameService used to apply them, on
+// every state a game can be in: each status, move and turn, every split of the
+// marbles and every hidden count, bet, count and guess a player can send.
+class GameRulesTests {
+
+  private static final String[] PLAYERS = { "alice", "bob", "carol" };
+  private static final String[] GUESSES = { "ODD", "EVEN", "odd" };
+
+  private static Game game(GameStatus status, Move move, Turn turn, int stake1, int hidden, int bet) {
+    return new Game("game", "alice").toBuilder()
+        .player2("bob")
+        .status(status)
+        .move(move)
+        .turn(turn)
+        .stake1(stake1)
+        .stake2(GameRules.TOTAL - stake1)
+        .hidden(hidden)
+        .bet(bet)
+        .build();
+  }
+
+  // Outcome of a move: the next state, or the error it was rejected with
+  private static Object play(Game current, Move move, String player, int count, String guess) {
+    var error = GameRules.check(current, move, player);
+    if (error == null && move != Move.GUESS)
+      error = GameRules.checkCount(current, move, count);
+    if (error != null)
+      return error;
+    switch (move) {
+    case HIDE:
+      return GameRules.hide(current, count);
+    case BET:
+      return GameRules.bet(current, count);
+    default:
+      return GameRules.guess(current, guess);
+    }
+  }
+
+  // The checks and updates GameService made before the rules were a table
+  private static Object reference(Game current, Move move, String player, int count, String guess) {
+    if (!current.getStatus().equals(GameStatus.IN_PROGRESS))
+      return MoveError.NOT_IN_PROGRESS;
+    if (!current.getMove().equals(move))
+      return MoveError.currentMove(current.getMove());
+    var turn = current.getTurn();
+    if ((turn.equals(Turn.PLAYER_1) && !current.getPlayer1().equals(player))
+        || (turn.equals(Turn.PLAYER_2) && !current.getPlayer2().equals(player)))
+      return MoveError.waitingFor(turn);
+
+    var stake = turn.equals(Turn.PLAYER_1) ? current.getStake1() : current.getStake2();
+    // The next state, stamped as installed when the current one was
+    var game = current.toBuilder().version(current.getVersion() + 1);
+    if (move == Move.HIDE) {
+      if (count > stake || count <= 0)
+        return MoveError.INVALID_HIDE;
+      return game.hidden(count)
+          .turn(turn.equals(Turn.PLAYER_1) ? Turn.PLAYER_2 : Turn.PLAYER_1)
+          .move(Move.BET)
+          .build();
+    }
+    if (move == Move.BET) {
+      if (count > stake || count <= 0)
+        return MoveError.INVALID_BET;
+      return game.bet(count).move(Move.GUESS).build();
+    }
+
+    var stake1 = current.getStake1();
+    var stake2 = current.getStake2();
+    var isCorrect = current.getHidden() % 2 == 0 ? guess.equals("EVEN") : guess.equals("ODD");
+    if (isCorrect) {
+      if (turn.equals(Turn.PLAYER_1)) {
+        stake1 += current.getBet();
+        stake2 -= current.getBet();
+      } else {
+        stake2 += current.getBet();
+        stake1 -= current.getBet();
+      }
+    } else {
+      if (turn.equals(Turn.PLAYER_1)) {
+        stake1 -= current.getHidden();
+        stake2 += current.getHidden();
+      } else {
+        stake2 -= current.getHidden();
+        stake1 += current.getHidden();
+      }
+    }
+    if (stake1 <= 0)
+      return game.status(GameStatus.ENDED).winner(current.getPlayer2()).stake2(20).stake1(0).build();
+    if (stake2 <= 0)
+      return game.status(GameStatus.ENDED).winner(current.getPlayer1()).stake1(20).stake2(0).build();
+    return game.stake1(stake1).stake2(stake2).hidden(0).bet(0).move(Move.HIDE).build();
+  }
+
+  private static void assertSame(Game current, Move move, String player, int count, String guess) {
+    var expected = reference(current, move, player, count, guess);
+    var actual = play(current, move, player, count, guess);
+    if (actual instanceof Game next) {
+      // Stamped when it was built, which is what installs it
+      assertTrue(next.getUpdatedAt() >= current.getUpdatedAt(), () -> "Update time of " + next);
+      actual = next.withUpdatedAt(current.getUpdatedAt());
+    }
+    var outcome = actual;
+    assertEquals(expected, outcome,
+        () -> move + " by " + player + " with " + count + "/" + guess + " on " + current);
+
+    if (outcome instanceof Game next) {
+      // Marbles only change hands
+      assertEquals(GameRules.TOTAL, next.getStake1() + next.getStake2(), () -> "Stakes of " + next);
+      assertTrue(next.getStake1() >= 0 && next.getStake2() >= 0, () -> "Stakes of " + next);
+      // The game only ends with a winner holding every marble
+      assertEquals(next.getStatus() == GameStatus.ENDED, next.getWinner() != null, () -> "Winner of " + next);
+    }
+  }
+
+  @Test
+  void tableMatchesTheRules() {
+    for (var status : GameStatus.values())
+      for (var move : Move.values())
+        for (var turn : Turn.values())
+          for (int stake1 = 1; stake1 < GameRules.TOTAL; stake1++) {
+            for (var player : PLAYERS) {
+              var current = game(status, move, turn, stake1, 0, 0);
+              for (int count = -1; count <= GameRules.TOTAL + 1; count++) {
+                assertSame(current, Move.HIDE, player, count, null);
+                assertSame(current, Move.BET, player, count, null);
+              }
+            }
+            // Guesses depend on what was hidden and bet
+            var hider = turn == Turn.PLAYER_1 ? Turn.PLAYER_2 : Turn.PLAYER_1;
+            var hiderStake = hider == Turn.PLAYER_1 ? stake1 : GameRules.TOTAL - stake1;
+            var guesserStake = GameRules.TOTAL - hiderStake;
+            for (int hidden = 1; hidden <= hiderStake; hidden++)
+              for (int bet = 1; bet <= guesserStake; bet++) {
+                var current = game(status, move, turn, stake1, hidden, bet);
+                for (var player : PLAYERS)
+                  for (var guess : GUESSES)
+                    assertSame(current, Move.GUESS, player, 0, guess);
+              }
+          }
+  }
+
+  @Test
+  void everyStateHasOneEntry() {
+    for (var status : GameStatus.values())
+      for (var move : Move.values())
+        for (var turn : Turn.values()) {
+          var game = game(status, move, turn, GameRules.STAKE, 0, 0);
+          var step = GameRules.step(game);
+          if (status == GameStatus.IN_PROGRESS) {
+            assertEquals(move, step.move());
+            assertEquals(turn, step.player());
+          } else {
+            assertEquals(null, step.move());
+            assertEquals(MoveError.NOT_IN_PROGRESS, step.rejection());
+          }
+          // Playing any move but the expected one is rejected with the entry's error
+          for (var other : Move.values())
+            if (!Objects.equals(other, step.move()))
+              assertEquals(step.rejection(), GameRules.check(game, other, "alice"));
+        }
+  }
+
+  // Random games played to the end keep the stakes conserved
+  @Test
+  void randomGamesConserveStakes() {
+    var random = new Random(42);
+    for (int i = 0; i < 2000; i++) {
+      var game = game(GameStatus.IN_PROGRESS, Move.HIDE, Turn.PLAYER_1, GameRules.STAKE, 0, 0);
+      while (game.getStatus() == GameStatus.IN_PROGRESS) {
+        var step = GameRules.step(game);
+        var player = step.player() == Turn.PLAYER_1 ? "alice" : "bob";
+        var count = 1 + random.nextInt(GameRules.stake(game, step.player()));
+        var guess = random.nextBoolean() ? "ODD" : "EVEN";
+        assertSame(game, step.move(), player, count, guess);
+        game = (Game) play(game, step.move(), player, count, guess);
+        assertEquals(GameRules.TOTAL, game.getStake1() + game.getStake2());
+      }
+    }
+  }
+}
@@ -0,0 +1,8 @@
+package com.example.marbleguessinggamebackend.service;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+// Runs the concurrency tests against the compare-and-swap engine
+@SpringBootTest(properties = "game.engine=cas")
+class GameServiceCasConcurrencyTests extends GameServiceConcurrencyTests {
+}
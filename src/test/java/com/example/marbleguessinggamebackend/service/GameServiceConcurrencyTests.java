@@ -0,0 +1,110 @@
+package com.example.marbleguessinggamebackend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.example.marbleguessinggamebackend.exception.GameException;
+import com.example.marbleguessinggamebackend.model.GameStatus;
+import com.example.marbleguessinggamebackend.model.Turn;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class GameServiceConcurrencyTests {
+
+  private static final int THREADS = 16;
+  private static final int ROUNDS = 200;
+
+  @Autowired
+  private GameService gs;
+
+  @Autowired
+  private GameRegistry gr;
+
+  private ExecutorService clients;
+
+  @BeforeEach
+  void setUp() {
+    clients = Executors.newFixedThreadPool(THREADS);
+  }
+
+  @AfterEach
+  void tearDown() {
+    clients.shutdownNow();
+  }
+
+  // Fire the same move from many threads at once and count how many were accepted
+  private int race(Runnable move) throws Exception {
+    var start = new CountDownLatch(1);
+    var accepted = new AtomicInteger();
+    var futures = new Future<?>[THREADS];
+    for (int i = 0; i < THREADS; i++) {
+      futures[i] = clients.submit(() -> {
+        start.await();
+        try {
+          move.run();
+          accepted.incrementAndGet();
+        } catch (GameException e) {
+          // Rejected as out of turn or out of phase
+        }
+        return null;
+      });
+    }
+    start.countDown();
+    for (var f : futures)
+      f.get(10, TimeUnit.SECONDS);
+    return accepted.get();
+  }
+
+  private String currentPlayer(String gameId) {
+    var game = gr.getGame(gameId);
+    return game.getTurn() == Turn.PLAYER_1 ? game.getPlayer1() : game.getPlayer2();
+  }
+
+  @Test
+  void concurrentConflictingMovesApplyOnce() throws Exception {
+    var created = gs.startGame("alice");
+    var gameId = created.substring(created.lastIndexOf(' ') + 1);
+    gs.joinGame(gameId, "bob");
+
+    for (int round = 0; round < ROUNDS; round++) {
+      var game = gr.getGame(gameId);
+      if (game.getStatus() == GameStatus.ENDED)
+        gs.restartGame(gameId, "alice");
+
+      var hider = currentPlayer(gameId);
+      assertEquals(1, race(() -> gs.hide(1, gameId, hider)));
+
+      var guesser = currentPlayer(gameId);
+      assertEquals(1, race(() -> gs.bet(1, gameId, guesser)));
+      var guess = round % 2 == 0 ? "ODD" : "EVEN";
+      assertEquals(1, race(() -> gs.guess(gameId, guesser, guess)));
+
+      game = gr.getGame(gameId);
+      assertEquals(20, game.getStake1() + game.getStake2());
+    }
+  }
+
+  @Test
+  void concurrentJoinsAdmitOnePlayer() throws Exception {
+    var created = gs.startGame("carol");
+    var gameId = created.substring(created.lastIndexOf(' ') + 1);
+    var joiner = new AtomicInteger();
+
+    assertEquals(1, race(() -> gs.joinGame(gameId, "player-" + joiner.incrementAndGet())));
+
+    var game = gr.getGame(gameId);
+    assertEquals(GameStatus.IN_PROGRESS, game.getStatus());
+    assertEquals(20, game.getStake1() + game.getStake2());
+  }
+}
@@ -0,0 +1,8 @@
+package com.example.marbleguessinggamebackend.service;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+// Runs the concurrency tests against the sharded engine and store
+@SpringBootTest(properties = { "game.engine=sharded", "game.store=sharded", "game.shards=4" })
+class GameServiceShardedConcurrencyTests extends GameServiceConcurrencyTests {
+}
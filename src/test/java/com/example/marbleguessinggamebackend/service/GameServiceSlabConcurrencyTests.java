@@ -0,0 +1,8 @@
+package com.example.marbleguessinggamebackend.service;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+// Runs the concurrency tests against the slab store
+@SpringBootTest(properties = "game.store=slab")
+class GameServiceSlabConcurrencyTests extends GameServiceConcurrencyTests {
+}
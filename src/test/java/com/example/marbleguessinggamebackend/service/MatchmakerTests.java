@@ -0,0 +1,126 @@
+package com.example.marbleguessinggamebackend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.model.GameStatus;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MatchmakerTests {
+
+  @Autowired
+  private Matchmaker matchmaker;
+
+  @Autowired
+  private GameRegistry games;
+
+  @Autowired
+  private MockMvc mvc;
+
+  @Test
+  void pairsTheNextPlayerWithTheWaitingOne() throws Exception {
+    var alice = matchmaker.matchmake("alice", null);
+    assertFalse(alice.isDone());
+    // Asking again while waiting doesn't pair the player with themselves
+    assertSame(alice, matchmaker.matchmake("alice", null));
+
+    var game = matchmaker.matchmake("bob", null).get(1, TimeUnit.SECONDS);
+    assertSame(game, alice.get(1, TimeUnit.SECONDS));
+    assertEquals(GameStatus.IN_PROGRESS, game.getStatus());
+    assertEquals("alice", game.getPlayer1());
+    assertEquals("bob", game.getPlayer2());
+    assertEquals(GameRules.STAKE, game.getStake1());
+    assertEquals(GameRules.STAKE, game.getStake2());
+    assertSame(game, games.getGame(game.getGameId()));
+  }
+
+  @Test
+  void waitingPlayersCanStopWaiting() {
+    var carol = matchmaker.matchmake("carol", null);
+    assertFalse(matchmaker.cancel("dave"));
+    assertTrue(matchmaker.cancel("carol"));
+    assertTrue(carol.isCancelled());
+
+    // The next player waits instead of being paired with carol
+    var dave = matchmaker.matchmake("dave", null);
+    assertFalse(dave.isDone());
+    // Cancelling an earlier match doesn't cancel the one waiting
+    assertFalse(matchmaker.cancel(carol));
+    assertTrue(matchmaker.cancel(dave));
+    assertTrue(dave.isCancelled());
+  }
+
+  @Test
+  void concurrentPlayersArePairedOnce() throws Exception {
+    var threads = 8;
+    var perThread = 1000;
+    var pool = Executors.newFixedThreadPool(threads);
+    var asked = new ArrayList<Future<ArrayList<CompletableFuture<Game>>>>();
+    for (int t = 0; t < threads; t++) {
+      var thread = t;
+      asked.add(pool.submit(() -> {
+        var matches = new ArrayList<CompletableFuture<Game>>();
+        for (int i = 0; i < perThread; i++)
+          matches.add(matchmaker.matchmake("player-" + thread + "-" + i, null));
+        return matches;
+      }));
+    }
+    var matches = new ArrayList<CompletableFuture<Game>>();
+    for (var thread : asked)
+      matches.addAll(thread.get());
+    pool.shutdown();
+
+    // Every player asked once, so all of them are paired
+    var paired = new HashSet<String>();
+    var gameIds = new HashSet<String>();
+    for (var match : matches) {
+      var game = match.get(1, TimeUnit.SECONDS);
+      gameIds.add(game.getGameId());
+      paired.add(game.getPlayer1());
+      paired.add(game.getPlayer2());
+    }
+    assertEquals(threads * perThread, paired.size());
+    assertEquals(threads * perThread / 2, gameIds.size());
+  }
+
+  @Test
+  void restPlayersAreAnsweredWithTheirGame() throws Exception {
+    var erin = mvc.perform(post("/api/v1/matchmake").header("player", "erin"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    var frank = mvc.perform(post("/api/v1/matchmake").header("player", "frank"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mvc.perform(asyncDispatch(erin))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.player1").value("erin"))
+        .andExpect(jsonPath("$.player2").value("frank"))
+        .andExpect(jsonPath("$.status").value("IN_PROGRESS"));
+    mvc.perform(asyncDispatch(frank))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.player1").value("erin"));
+  }
+}
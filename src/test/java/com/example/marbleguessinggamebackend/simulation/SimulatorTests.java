@@ -0,0 +1,75 @@
+package com.example.marbleguessinggamebackend.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.model.GameStatus;
+import com.example.marbleguessinggamebackend.service.GameRules;
+
+import org.junit.jupiter.api.Test;
+
+class SimulatorTests {
+
+  // Plays a game of random moves on Game objects, drawing from the random in
+  // the same order as Strategy.RANDOM. Returns the rounds played, negative if
+  // player 2 won.
+  private static int playGame(SplittableRandom random) {
+    var game = new Game("game", "alice").toBuilder()
+        .player2("bob")
+        .status(GameStatus.IN_PROGRESS)
+        .stake1(GameRules.STAKE)
+        .stake2(GameRules.STAKE)
+        .build();
+    var rounds = 0;
+    while (game.getStatus() == GameStatus.IN_PROGRESS) {
+      var hider = GameRules.step(game).player();
+      game = GameRules.hide(game, 1 + random.nextInt(GameRules.stake(game, hider)));
+      game = GameRules.bet(game, 1 + random.nextInt(GameRules.stake(game, game.getTurn())));
+      game = GameRules.guess(game, random.nextBoolean() ? "ODD" : "EVEN");
+      rounds++;
+    }
+    return game.getWinner().equals("alice") ? rounds : -rounds;
+  }
+
+  @Test
+  void matchesPlayByTheRulesOfRealGames() {
+    var match = new Match();
+    for (long seed = 0; seed < 10_000; seed++) {
+      match.reset(GameRules.STAKE);
+      var winner = match.play(Strategy.RANDOM, Strategy.RANDOM, new SplittableRandom(seed), Simulator.MAX_ROUNDS);
+      assertEquals(playGame(new SplittableRandom(seed)), winner == 0 ? match.rounds() : -match.rounds());
+    }
+  }
+
+  @Test
+  void statsOfASeedDontDependOnThreads() {
+    var one = new Simulator(new ForkJoinPool(1)).run(Strategy.ADAPTIVE, Strategy.RANDOM, 10, 100_000, 7);
+    var four = new Simulator(new ForkJoinPool(4)).run(Strategy.ADAPTIVE, Strategy.RANDOM, 10, 100_000, 7);
+    assertEquals(100_000, four.games());
+    assertEquals(one.winRateA(), four.winRateA());
+    assertEquals(one.firstHiderWinRate(), four.firstHiderWinRate());
+    assertEquals(one.averageRounds(), four.averageRounds());
+    assertEquals(one.maxRounds(), four.maxRounds());
+  }
+
+  @Test
+  void statsAddUp() {
+    var simulator = new Simulator();
+    var random = simulator.run(Strategy.RANDOM, Strategy.RANDOM, 10, 200_000, 1);
+    assertEquals(0, random.unfinished());
+    assertEquals(1, random.winRateA() + random.winRateB(), 1e-9);
+    // Seats swap every game, so the same strategy wins about half
+    assertEquals(0.5, random.winRateA(), 0.01);
+    assertTrue(random.roundsPercentile(0.5) <= random.roundsPercentile(0.99));
+    assertTrue(random.roundsPercentile(0.99) <= random.maxRounds());
+
+    // All in on both sides, so the first guess decides
+    var greedy = simulator.run(Strategy.GREEDY, Strategy.GREEDY, 10, 10_000, 1);
+    assertEquals(1, greedy.averageRounds());
+    assertEquals(1, greedy.maxRounds());
+  }
+}
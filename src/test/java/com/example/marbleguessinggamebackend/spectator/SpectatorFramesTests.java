@@ -0,0 +1,109 @@
+package com.example.marbleguessinggamebackend.spectator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.example.marbleguessinggamebackend.service.GameService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class SpectatorFramesTests {
+
+  @LocalServerPort
+  private int port;
+
+  @Autowired
+  private GameService gs;
+
+  @Autowired
+  private MeterRegistry meters;
+
+  private final List<WebSocketStompClient> clients = new ArrayList<>();
+
+  @AfterEach
+  void disconnect() {
+    clients.forEach(WebSocketStompClient::stop);
+  }
+
+  private BlockingQueue<Map<?, ?>> spectate(String gameId) throws Exception {
+    var client = new WebSocketStompClient(
+        new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+    client.setMessageConverter(new MappingJackson2MessageConverter());
+    clients.add(client);
+    StompSession session = client.connect("http://localhost:" + port + "/game", new StompSessionHandlerAdapter() {
+    }).get(5, TimeUnit.SECONDS);
+    BlockingQueue<Map<?, ?>> views = new LinkedBlockingQueue<>();
+    session.subscribe(SpectatorFrames.TOPIC + gameId, new StompFrameHandler() {
+      @Override
+      public Type getPayloadType(StompHeaders headers) {
+        return Map.class;
+      }
+
+      @Override
+      public void handleFrame(StompHeaders headers, Object payload) {
+        views.add((Map<?, ?>) payload);
+      }
+    });
+    return views;
+  }
+
+  private double serialized() {
+    return meters.counter("spectator.frames", "format", "json").count();
+  }
+
+  @Test
+  void spectatorsShareOneFramePerVersionWithoutHiddenMarbles() throws Exception {
+    var created = gs.startGame("alice");
+    var gameId = created.substring(created.lastIndexOf(' ') + 1);
+    gs.joinGame(gameId, "bob");
+    var before = serialized();
+
+    // Late joiners are sent the latest frame as they subscribe
+    var first = spectate(gameId);
+    var joined = first.poll(5, TimeUnit.SECONDS);
+    assertEquals(1, ((Number) joined.get("version")).intValue());
+    assertEquals("IN_PROGRESS", joined.get("status"));
+    var second = spectate(gameId);
+    assertEquals(joined, second.poll(5, TimeUnit.SECONDS));
+    assertEquals(before + 1, serialized());
+
+    gs.hide(3, gameId, "alice");
+    for (var views : List.of(first, second)) {
+      var hidden = views.poll(5, TimeUnit.SECONDS);
+      assertEquals(2, ((Number) hidden.get("version")).intValue());
+      assertEquals("BET", hidden.get("move"));
+      assertFalse(hidden.containsKey("hidden"));
+    }
+    assertEquals(before + 2, serialized());
+
+    // A quit removes the game, spectators see it end
+    gs.quitGame(gameId, "bob");
+    var ended = first.poll(5, TimeUnit.SECONDS);
+    assertEquals("ENDED", ended.get("status"));
+    assertEquals(3, ((Number) ended.get("version")).intValue());
+  }
+}
@@ -0,0 +1,109 @@
+package com.example.marbleguessinggamebackend.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.stream.Stream;
+
+import com.example.marbleguessinggamebackend.model.Game;
+import com.example.marbleguessinggamebackend.model.GameStatus;
+import com.example.marbleguessinggamebackend.model.Move;
+import com.example.marbleguessinggamebackend.model.Turn;
+import com.example.marbleguessinggamebackend.service.GameIds;
+import com.example.marbleguessinggamebackend.service.GameShards;
+import com.example.marbleguessinggamebackend.service.GameStore;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class GameStoreTests {
+
+  static Stream<GameStore> stores() {
+    return Stream.of(new HeapGameStore(), new SlabGameStore(), new ShardedGameStore(new GameShards(4)));
+  }
+
+  private static Game game(String gameId) {
+    return new Game(gameId, "alice").toBuilder()
+        .player2("bob")
+        .status(GameStatus.IN_PROGRESS)
+        .stake1(10)
+        .stake2(10)
+        .build();
+  }
+
+  // Next state of a game, as a move would install it
+  private static Game next(Game current) {
+    return current.next().turn(Turn.PLAYER_2).move(Move.BET).hidden(7).build();
+  }
+
+  @ParameterizedTest
+  @MethodSource("stores")
+  void readsBackWhatWasStored(GameStore store) {
+    var game = game("game-1").toBuilder()
+        .status(GameStatus.ENDED)
+        .stake1(20)
+        .stake2(0)
+        .winner("alice")
+        .build();
+    store.put(game);
+
+    assertEquals(game, store.get("game-1"));
+    assertNull(store.get("game-2"));
+    assertEquals(1, store.size());
+  }
+
+  @ParameterizedTest
+  @MethodSource("stores")
+  void replacesAndRemovesOnlyExpectedVersion(GameStore store) {
+    var first = game("game-1");
+    store.put(first);
+    var second = next(first);
+
+    assertTrue(store.replace(first, second));
+    assertEquals(second, store.get("game-1"));
+    assertFalse(store.replace(first, next(first)));
+    assertFalse(store.remove(first));
+
+    assertTrue(store.remove(second));
+    assertNull(store.get("game-1"));
+    assertEquals(0, store.size());
+  }
+
+  @ParameterizedTest
+  @MethodSource("stores")
+  void reusesFreedSlots(GameStore store) {
+    for (int i = 0; i < 100_000; i++)
+      store.put(game("game-" + i));
+    for (int i = 0; i < 100_000; i += 2)
+      assertTrue(store.remove(store.get("game-" + i)));
+    for (int i = 0; i < 100_000; i += 2)
+      store.put(game("other-" + i));
+
+    assertEquals(100_000, store.size());
+    var ids = new HashSet<String>();
+    for (var game : store)
+      ids.add(game.getGameId());
+    assertEquals(100_000, ids.size());
+    assertTrue(ids.contains("game-99999"));
+    assertTrue(ids.contains("other-0"));
+    assertNull(store.get("game-0"));
+    assertEquals("game-1", store.get("game-1").getGameId());
+  }
+
+  @ParameterizedTest
+  @MethodSource("stores")
+  void holdsGeneratedIds(GameStore store) {
+    // Consecutive ids, as the time-ordered generator hands out
+    for (long i = 0; i < 10_000; i++)
+      store.put(game(GameIds.encode(i)));
+    for (long i = 0; i < 10_000; i += 2)
+      assertTrue(store.remove(store.get(GameIds.encode(i))));
+
+    assertEquals(5_000, store.size());
+    assertNull(store.get(GameIds.encode(0)));
+    assertEquals(GameIds.encode(9_999), store.get(GameIds.encode(9_999)).getGameId());
+  }
+}